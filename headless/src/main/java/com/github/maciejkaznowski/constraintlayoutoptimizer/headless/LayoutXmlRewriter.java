@@ -0,0 +1,474 @@
+package com.github.maciejkaznowski.constraintlayoutoptimizer.headless;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.github.maciejkaznowski.constraintlayoutoptimizer.Utils;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Writes the recommended optimisation levels of exported results into the {@code app:layout_optimizationLevel} attribute of
+ * each measured ConstraintLayout, as a patch to review and apply rather than by editing the layouts.
+ * <p>
+ * ConstraintLayouts are found by their id, or as the root element when they have none, in the {@code res/layout*} version of
+ * their layout each device configuration resolved to, e.g. only {@code layout-land} when every configuration was landscape.
+ * Versions no configuration resolved to weren't measured, so they are reported and left alone. A ConstraintLayout is only
+ * changed when every device configuration it was measured with recommends the same level, i.e. a level which is
+ * significantly faster. For example, after exporting the results with a
+ * {@link com.github.maciejkaznowski.constraintlayoutoptimizer.data.export.JsonLinesExporter}:
+ * <pre>
+ * String report = new LayoutXmlRewriter().rewrite(new File("build/optimiser/results.jsonl"), new File("build/optimiser/levels.patch"));
+ * </pre>
+ * and then {@code git apply build/optimiser/levels.patch} from the module's directory.
+ * <p>
+ * Only the start tags of the ConstraintLayouts change, the rest of each file is kept exactly as it is. ConstraintLayouts of
+ * {@code <include>}d layouts are measured as part of the including layout, so they can't be found and are reported instead.
+ */
+public class LayoutXmlRewriter {
+
+    private static final String ANDROID_NAMESPACE = "http://schemas.android.com/apk/res/android";
+    private static final String RES_AUTO_NAMESPACE = "http://schemas.android.com/apk/res-auto";
+    private static final String ATTRIBUTE = "layout_optimizationLevel";
+    private static final Pattern ATTRIBUTE_PATTERN = Pattern.compile("([A-Za-z_][\\w:.-]*)\\s*=\\s*([\"'])(.*?)\\2", Pattern.DOTALL);
+    private static final Pattern VERSION_QUALIFIER = Pattern.compile("-v\\d+$");
+
+    @NonNull private final File resDirectory;
+    @NonNull private final File baseDirectory;
+
+    /**
+     * Rewrites the layouts in {@code src/main/res}, relative to the working directory, which is the module's directory in its
+     * unit tests
+     */
+    public LayoutXmlRewriter() {
+        this(new File("src/main/res"), new File(""));
+    }
+
+    /**
+     * @param resDirectory  The resource directory with the layouts
+     * @param baseDirectory The directory the patch is applied from, the paths in the patch are relative to it
+     */
+    public LayoutXmlRewriter(@NonNull File resDirectory, @NonNull File baseDirectory) {
+        this.resDirectory = resDirectory;
+        this.baseDirectory = baseDirectory;
+    }
+
+    /**
+     * @param results A JSON Lines file written by a {@link com.github.maciejkaznowski.constraintlayoutoptimizer.data.export.JsonLinesExporter}
+     * @param patch   The file the unified diff is written to, it is overwritten and empty if nothing changes
+     * @return A report of every change, and every ConstraintLayout which was skipped and why
+     */
+    @NonNull
+    public String rewrite(@NonNull File results, @NonNull File patch) throws IOException, JSONException {
+        Map<String, List<Target>> targetsByLayout = readTargets(results);
+
+        StringBuilder report = new StringBuilder();
+        StringBuilder diff = new StringBuilder();
+        for (Map.Entry<String, List<Target>> entry : targetsByLayout.entrySet()) {
+            rewriteLayout(entry.getKey(), entry.getValue(), report, diff);
+        }
+
+        File parent = patch.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.exists() && !parent.mkdirs()) throw new IOException("Could not create " + parent);
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(patch), StandardCharsets.UTF_8)) {
+            writer.write(diff.toString());
+        }
+        return report.toString();
+    }
+
+    /**
+     * @return The ConstraintLayouts of each layout, with the level all of their device configurations agree on
+     */
+    @NonNull
+    private static Map<String, List<Target>> readTargets(@NonNull File results) throws IOException, JSONException {
+        Map<String, Target> targets = new LinkedHashMap<>();
+        for (String line : Files.readAllLines(results.toPath(), StandardCharsets.UTF_8)) {
+            if (line.trim().isEmpty()) continue;
+
+            JSONObject record = new JSONObject(line);
+            String layout = record.getString("layout");
+            String id = record.optString("constraintLayoutId", null);
+            //numbered by DeterminedOptimisers.getIndicesWithinConfiguration
+            int index = record.getInt("index");
+            String directory = getDirectory(record.optString("layoutFile", null));
+            String key = layout + "/" + directory + (id != null ? "@" + id : "#" + index);
+            Target target = targets.get(key);
+            if (target == null) {
+                target = new Target(layout, directory, id, index);
+                targets.put(key, target);
+            }
+
+            JSONObject deviceConfiguration = record.optJSONObject("deviceConfiguration");
+            String configuration = deviceConfiguration == null ? "unknown" : deviceConfiguration.optString("description", "unknown");
+            target.addResult(record.getInt("currentLevel"), record.getInt("recommendedLevel"), configuration);
+        }
+
+        Map<String, List<Target>> targetsByLayout = new LinkedHashMap<>();
+        for (Target target : targets.values()) {
+            List<Target> layoutTargets = targetsByLayout.get(target.layout);
+            if (layoutTargets == null) {
+                layoutTargets = new ArrayList<>();
+                targetsByLayout.put(target.layout, layoutTargets);
+            }
+            layoutTargets.add(target);
+        }
+        return targetsByLayout;
+    }
+
+    private void rewriteLayout(@NonNull String layout,
+                               @NonNull List<Target> targets,
+                               @NonNull StringBuilder report,
+                               @NonNull StringBuilder diff) throws IOException {
+        List<File> files = findLayoutFiles(layout);
+        Map<File, List<Target>> targetsByFile = new LinkedHashMap<>();
+        for (File file : files) targetsByFile.put(file, new ArrayList<>());
+        for (Target target : targets) {
+            if (target.directory == null) {
+                if (target.skipReason == null) target.skipReason = "the measured version of the layout wasn't exported";
+                continue;
+            }
+
+            File file = findMeasuredFile(files, target.directory);
+            if (file == null) {
+                if (target.skipReason == null) {
+                    target.skipReason = "it was measured in " + target.directory + ", which matches no single layout directory";
+                }
+                continue;
+            }
+            targetsByFile.get(file).add(target);
+        }
+
+        for (Map.Entry<File, List<Target>> entry : targetsByFile.entrySet()) {
+            File file = entry.getKey();
+            if (entry.getValue().isEmpty()) {
+                report.append(getPath(file)).append(": skipped, no device configuration was measured with it\n");
+                continue;
+            }
+
+            String xml = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+            List<StartTag> tags = findStartTags(xml);
+            if (tags.isEmpty()) continue;
+
+            List<Edit> edits = new ArrayList<>();
+            String prefix = null;
+            for (Target target : entry.getValue()) {
+                if (target.skipReason != null) continue;
+
+                StartTag tag = target.find(tags, getPrefix(tags.get(0), ANDROID_NAMESPACE, "android"));
+                if (tag == null) {
+                    report.append(getPath(file)).append(": skipped ").append(target)
+                            .append(", not found, it may be in an included layout\n");
+                    continue;
+                }
+
+                if (prefix == null) {
+                    prefix = getPrefix(tags.get(0), RES_AUTO_NAMESPACE, null);
+                    if (prefix == null) {
+                        prefix = "app";
+                        edits.add(addAttribute(xml, tags.get(0), "xmlns:app", RES_AUTO_NAMESPACE));
+                    }
+                }
+                String value = Utils.describeXmlOptimisations(target.level);
+                edits.add(setAttribute(xml, tag, prefix + ":" + ATTRIBUTE, value));
+                report.append(getPath(file)).append(": ").append(target).append(" -> ").append(value).append('\n');
+            }
+            if (edits.isEmpty()) continue;
+
+            String rewritten = apply(xml, edits);
+            diff.append(UnifiedDiff.diff(getPath(file), xml, rewritten));
+        }
+
+        for (Target target : targets) {
+            if (target.skipReason == null) continue;
+            report.append(layout).append(": skipped ").append(target).append(", ").append(target.skipReason).append('\n');
+        }
+    }
+
+    /**
+     * The build may add a version qualifier to the directory, e.g. {@code layout-v21} for a layout in {@code layout} which uses
+     * newer attributes, so it is only ignored when the directory isn't in the sources as it is
+     *
+     * @param directory The directory of the version a device configuration resolved to, e.g. {@code layout-land}
+     * @return The measured version of the layout, or null if no version or several match the directory
+     */
+    @Nullable
+    private static File findMeasuredFile(@NonNull List<File> files, @NonNull String directory) {
+        for (File file : files) {
+            if (file.getParentFile().getName().equals(directory)) return file;
+        }
+
+        String unversioned = VERSION_QUALIFIER.matcher(directory).replaceFirst("");
+        File match = null;
+        for (File file : files) {
+            if (!VERSION_QUALIFIER.matcher(file.getParentFile().getName()).replaceFirst("").equals(unversioned)) continue;
+            if (match != null) return null;
+            match = file;
+        }
+        return match;
+    }
+
+    /**
+     * @param layoutFile The path of a layout resource, e.g. {@code res/layout-land/main.xml}
+     * @return The name of its directory, e.g. {@code layout-land}, or null if there is no path
+     */
+    @Nullable
+    private static String getDirectory(@Nullable String layoutFile) {
+        if (layoutFile == null) return null;
+        int end = layoutFile.lastIndexOf('/');
+        if (end <= 0) return null;
+        return layoutFile.substring(layoutFile.lastIndexOf('/', end - 1) + 1, end);
+    }
+
+    /**
+     * @return Every version of the layout, e.g. in layout and layout-land, sorted by path
+     */
+    @NonNull
+    private List<File> findLayoutFiles(@NonNull String layout) {
+        List<File> files = new ArrayList<>();
+        File[] directories = resDirectory.listFiles();
+        if (directories == null) return files;
+
+        Arrays.sort(directories);
+        for (File directory : directories) {
+            String name = directory.getName();
+            if (!directory.isDirectory() || !(name.equals("layout") || name.startsWith("layout-"))) continue;
+
+            File file = new File(directory, layout + ".xml");
+            if (file.isFile()) files.add(file);
+        }
+        return files;
+    }
+
+    @NonNull
+    private String getPath(@NonNull File file) {
+        Path base = baseDirectory.getAbsoluteFile().toPath().normalize();
+        Path path = file.getAbsoluteFile().toPath().normalize();
+        return base.relativize(path).toString().replace(File.separatorChar, '/');
+    }
+
+    /**
+     * @return The prefix the namespace is bound to on the root element, or {@code defaultPrefix} if it isn't bound there
+     */
+    @Nullable
+    private static String getPrefix(@NonNull StartTag root, @NonNull String namespace, @Nullable String defaultPrefix) {
+        Matcher matcher = ATTRIBUTE_PATTERN.matcher(root.text);
+        while (matcher.find()) {
+            if (matcher.group(1).startsWith("xmlns:") && matcher.group(3).equals(namespace)) {
+                return matcher.group(1).substring("xmlns:".length());
+            }
+        }
+        return defaultPrefix;
+    }
+
+    /**
+     * @return An edit replacing the attribute's value, or adding the attribute if the tag doesn't have it
+     */
+    @NonNull
+    private static Edit setAttribute(@NonNull String xml, @NonNull StartTag tag, @NonNull String name, @NonNull String value) {
+        Matcher matcher = ATTRIBUTE_PATTERN.matcher(tag.text);
+        while (matcher.find()) {
+            if (matcher.group(1).equals(name)) {
+                return new Edit(tag.start + matcher.start(3), matcher.end(3) - matcher.start(3), value);
+            }
+        }
+        return addAttribute(xml, tag, name, value);
+    }
+
+    /**
+     * Adds the attribute after the last attribute of the tag, on its own line if the tag's attributes are on separate lines
+     */
+    @NonNull
+    private static Edit addAttribute(@NonNull String xml, @NonNull StartTag tag, @NonNull String name, @NonNull String value) {
+        String attribute = name + "=\"" + value + "\"";
+        Matcher matcher = ATTRIBUTE_PATTERN.matcher(tag.text);
+        int lastStart = -1;
+        int lastEnd = -1;
+        while (matcher.find()) {
+            lastStart = matcher.start();
+            lastEnd = matcher.end();
+        }
+        if (lastStart == -1) return new Edit(tag.start + 1 + tag.name.length(), 0, " " + attribute);
+
+        int lineStart = tag.text.lastIndexOf('\n', lastStart);
+        if (lineStart == -1) return new Edit(tag.start + lastEnd, 0, " " + attribute);
+
+        String lineSeparator = xml.contains("\r\n") ? "\r\n" : "\n";
+        String indent = tag.text.substring(lineStart + 1, lastStart);
+        return new Edit(tag.start + lastEnd, 0, lineSeparator + indent + attribute);
+    }
+
+    @NonNull
+    private static String apply(@NonNull String xml, @NonNull List<Edit> edits) {
+        //applied from the end, so the offsets of the edits before each one stay valid. Insertions at the same offset keep the
+        //order they were made in, e.g. xmlns:app before the attribute using it
+        Collections.reverse(edits);
+        edits.sort((o1, o2) -> Integer.compare(o2.offset, o1.offset));
+        StringBuilder rewritten = new StringBuilder(xml);
+        for (Edit edit : edits) {
+            rewritten.replace(edit.offset, edit.offset + edit.length, edit.text);
+        }
+        return rewritten.toString();
+    }
+
+    /**
+     * @return The start tags of the document in order, skipping comments, CDATA sections, declarations and end tags
+     */
+    @NonNull
+    private static List<StartTag> findStartTags(@NonNull String xml) {
+        List<StartTag> tags = new ArrayList<>();
+        int index = 0;
+        while ((index = xml.indexOf('<', index)) != -1) {
+            if (xml.startsWith("<!--", index)) {
+                index = skipPast(xml, index, "-->");
+            } else if (xml.startsWith("<![CDATA[", index)) {
+                index = skipPast(xml, index, "]]>");
+            } else if (xml.startsWith("<?", index)) {
+                index = skipPast(xml, index, "?>");
+            } else if (xml.startsWith("<!", index) || xml.startsWith("</", index)) {
+                index = skipPast(xml, index, ">");
+            } else {
+                int end = findTagEnd(xml, index);
+                if (end == -1) break;
+                tags.add(new StartTag(xml.substring(index, end), index));
+                index = end;
+            }
+        }
+        return tags;
+    }
+
+    private static int skipPast(@NonNull String xml, int from, @NonNull String terminator) {
+        int index = xml.indexOf(terminator, from);
+        return index == -1 ? xml.length() : index + terminator.length();
+    }
+
+    /**
+     * @return The index after the tag's closing {@code >}, ignoring any inside attribute values, or -1 if the tag isn't closed
+     */
+    private static int findTagEnd(@NonNull String xml, int start) {
+        char quote = 0;
+        for (int i = start + 1; i < xml.length(); i++) {
+            char c = xml.charAt(i);
+            if (quote != 0) {
+                if (c == quote) quote = 0;
+            } else if (c == '"' || c == '\'') {
+                quote = c;
+            } else if (c == '>') {
+                return i + 1;
+            }
+        }
+        return -1;
+    }
+
+    private static class StartTag {
+
+        @NonNull private final String text;
+        @NonNull private final String name;
+        private final int start;
+
+        private StartTag(@NonNull String text, int start) {
+            this.text = text;
+            this.start = start;
+            int nameEnd = 1;
+            while (nameEnd < text.length() && !Character.isWhitespace(text.charAt(nameEnd)) && text.charAt(nameEnd) != '/' && text.charAt(nameEnd) != '>') {
+                nameEnd++;
+            }
+            this.name = text.substring(1, nameEnd);
+        }
+
+        @Nullable
+        private String getAttribute(@NonNull String attributeName) {
+            Matcher matcher = ATTRIBUTE_PATTERN.matcher(text);
+            while (matcher.find()) {
+                if (matcher.group(1).equals(attributeName)) return matcher.group(3);
+            }
+            return null;
+        }
+    }
+
+    private static class Edit {
+
+        private final int offset;
+        private final int length;
+        @NonNull private final String text;
+
+        private Edit(int offset, int length, @NonNull String text) {
+            this.offset = offset;
+            this.length = length;
+            this.text = text;
+        }
+    }
+
+    /**
+     * A measured ConstraintLayout, with the level to write to it
+     */
+    private static class Target {
+
+        @NonNull private final String layout;
+        @Nullable private final String directory;
+        @Nullable private final String id;
+        private final int index;
+        @Nullable private Integer level;
+        @Nullable private String skipReason;
+
+        private Target(@NonNull String layout, @Nullable String directory, @Nullable String id, int index) {
+            this.layout = layout;
+            this.directory = directory;
+            this.id = id;
+            this.index = index;
+            //without an id, only the root of the layout can be found reliably
+            if (id == null && index != 0) skipReason = "it has no id";
+        }
+
+        private void addResult(int currentLevel, int recommendedLevel, @NonNull String configuration) {
+            if (skipReason != null) return;
+
+            if (recommendedLevel == currentLevel) {
+                skipReason = "no level is significantly faster on " + configuration;
+                level = null;
+            } else if (level != null && level != recommendedLevel) {
+                skipReason = "device configurations recommend different levels, " + Utils.describeXmlOptimisations(level) +
+                        " and " + Utils.describeXmlOptimisations(recommendedLevel) + " on " + configuration;
+                level = null;
+            } else {
+                level = recommendedLevel;
+            }
+        }
+
+        @Nullable
+        private StartTag find(@NonNull List<StartTag> tags, @NonNull String androidPrefix) {
+            if (id == null) {
+                StartTag root = tags.get(0);
+                return root.name.endsWith("ConstraintLayout") ? root : null;
+            }
+
+            for (StartTag tag : tags) {
+                String tagId = tag.getAttribute(androidPrefix + ":id");
+                if (("@+id/" + id).equals(tagId) || ("@id/" + id).equals(tagId)) return tag;
+            }
+            return null;
+        }
+
+        @Override
+        public String toString() {
+            return id != null ? "@id/" + id : "root ConstraintLayout";
+        }
+    }
+}
@@ -0,0 +1,254 @@
+package com.github.maciejkaznowski.constraintlayoutoptimizer.headless;
+
+import android.content.Context;
+import android.view.View;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.StyleRes;
+import androidx.appcompat.view.ContextThemeWrapper;
+import androidx.constraintlayout.widget.ConstraintLayout;
+import androidx.test.core.app.ApplicationProvider;
+
+import com.github.maciejkaznowski.constraintlayoutoptimizer.Layout;
+import com.github.maciejkaznowski.constraintlayoutoptimizer.Layouts;
+import com.github.maciejkaznowski.constraintlayoutoptimizer.R;
+import com.github.maciejkaznowski.constraintlayoutoptimizer.data.export.ResultExporter;
+import com.github.maciejkaznowski.constraintlayoutoptimizer.data.graph.ConstraintGraph;
+import com.github.maciejkaznowski.constraintlayoutoptimizer.data.measurer.DeterminedOptimisers;
+import com.github.maciejkaznowski.constraintlayoutoptimizer.data.measurer.DeviceConfiguration;
+import com.github.maciejkaznowski.constraintlayoutoptimizer.data.measurer.MeasurementOptions;
+import com.github.maciejkaznowski.constraintlayoutoptimizer.data.measurer.OptimiserResult;
+import com.github.maciejkaznowski.constraintlayoutoptimizer.data.measurer.ViewLayoutException;
+import com.github.maciejkaznowski.constraintlayoutoptimizer.data.measurer.ViewMeasureException;
+import com.github.maciejkaznowski.constraintlayoutoptimizer.data.regression.Baseline;
+import com.github.maciejkaznowski.constraintlayoutoptimizer.data.regression.BaselineComparator;
+import com.github.maciejkaznowski.constraintlayoutoptimizer.data.regression.BaselineDiff;
+
+import org.json.JSONException;
+import org.junit.Assume;
+import org.junit.rules.ExternalResource;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Measures layouts without a device or emulator, from a Robolectric unit test of the module whose layouts are measured.
+ * <p>
+ * The results of every layout are written to the output file as soon as it has been measured, so a CI build agent can
+ * archive them. For example:
+ * <pre>
+ * {@literal @}RunWith(RobolectricTestRunner.class)
+ * public class OptimiseLayoutsTest {
+ *
+ *     {@literal @}Rule
+ *     public OptimiserRule optimiser = new OptimiserRule(new Layouts().includeAllLayouts(true), new File("build/optimiser/results.txt"));
+ *
+ *     {@literal @}Test
+ *     public void optimiseLayouts() throws Exception {
+ *         optimiser.optimise();
+ *     }
+ * }
+ * </pre>
+ * The module must set {@code testOptions.unitTests.includeAndroidResources = true} so Robolectric can inflate its layouts.
+ * Robolectric doesn't draw to a real display, so durations are only comparable with other headless runs. Robolectric's
+ * resources aren't thread safe, so layouts are always measured one at a time on the test thread, whatever the
+ * {@link MeasurementOptions#workerCount(int) worker count}.
+ */
+public class OptimiserRule extends ExternalResource {
+
+    /**
+     * The system property which makes {@link #verifyBaseline(Map, File)} record a new baseline instead of comparing against it
+     */
+    public static final String RECORD_BASELINE_PROPERTY = "optimiser.recordBaseline";
+    /**
+     * The system property which makes {@link #assumeVerifying()} run a test, see {@link #verifyBaseline(Map, File)}
+     */
+    public static final String VERIFY_PROPERTY = "optimiser.verify";
+
+    @NonNull private final Layouts layouts;
+    @NonNull private final MeasurementOptions options;
+    @NonNull private final File output;
+    @StyleRes private final int theme;
+    private PrintWriter writer;
+
+    /**
+     * @param layouts Which layouts to measure
+     * @param output  The file the results are written to, it is overwritten and its parent directories are created
+     */
+    public OptimiserRule(@NonNull Layouts layouts, @NonNull File output) {
+        this(layouts, new MeasurementOptions(), output);
+    }
+
+    public OptimiserRule(@NonNull Layouts layouts, @NonNull MeasurementOptions options, @NonNull File output) {
+        this(layouts, options, output, R.style.OptimiserTheme);
+    }
+
+    /**
+     * @param theme The theme the layouts are inflated with, which must be an AppCompat theme if the layouts use AppCompat views
+     */
+    public OptimiserRule(@NonNull Layouts layouts, @NonNull MeasurementOptions options, @NonNull File output, @StyleRes int theme) {
+        this.layouts = layouts;
+        this.options = options;
+        this.output = output;
+        this.theme = theme;
+    }
+
+    @Override
+    protected void before() throws IOException {
+        File parent = output.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.exists() && !parent.mkdirs()) throw new IOException("Could not create " + parent);
+        writer = new PrintWriter(new OutputStreamWriter(new FileOutputStream(output), StandardCharsets.UTF_8));
+    }
+
+    @Override
+    protected void after() {
+        if (writer != null) writer.close();
+        writer = null;
+    }
+
+    /**
+     * Finds and measures the layouts, writing the results of each to the output file
+     *
+     * @return The results of each layout, in the order they were measured. Layouts which could not be measured have no results
+     * @throws Exception If the layouts could not be found, as thrown by {@link Layouts#find(Context)}
+     */
+    @NonNull
+    public Map<Layout, List<DeterminedOptimisers>> optimise() throws Exception {
+        return optimise(null);
+    }
+
+    /**
+     * @param exporter Also writes each layout's results to this as soon as it has been measured, e.g. a
+     *                 {@link com.github.maciejkaznowski.constraintlayoutoptimizer.data.export.JsonLinesExporter} for offline
+     *                 analysis. It isn't closed
+     */
+    @NonNull
+    public Map<Layout, List<DeterminedOptimisers>> optimise(@Nullable ResultExporter exporter) throws Exception {
+        if (writer == null) throw new IllegalStateException("optimise() must be called from a test using this rule");
+
+        Context context = new ContextThemeWrapper(ApplicationProvider.getApplicationContext(), theme);
+        Map<Layout, List<DeterminedOptimisers>> results = new LinkedHashMap<>();
+        for (Layout layout : layouts.find(context)) {
+            try {
+                List<DeterminedOptimisers> optimisers = DeterminedOptimisers.fromLayout(context, layout, options);
+                results.put(layout, optimisers);
+                write(layout, optimisers);
+                if (exporter != null) exporter.write(layout, optimisers);
+            } catch (ViewMeasureException | ViewLayoutException e) {
+                writer.println(layout.getResourceName() + ": could not be measured, " + e.getMessage());
+            }
+            writer.flush();
+        }
+        return results;
+    }
+
+    /**
+     * Writes the constraint graph of every ConstraintLayout, measured with the first device configuration, as one JSON object
+     * per line, so the solver can be benchmarked on a plain JVM with the solver-benchmark module
+     *
+     * @param graphs The file the graphs are written to, it is overwritten
+     * @throws Exception If the layouts could not be found, as thrown by {@link Layouts#find(Context)}
+     */
+    public void exportConstraintGraphs(@NonNull File graphs) throws Exception {
+        if (writer == null) throw new IllegalStateException("exportConstraintGraphs() must be called from a test using this rule");
+
+        DeviceConfiguration deviceConfiguration = options.getDeviceConfigurations().get(0);
+        Context context = deviceConfiguration.createContext(new ContextThemeWrapper(ApplicationProvider.getApplicationContext(), theme));
+        try (Writer graphWriter = new OutputStreamWriter(new FileOutputStream(graphs), StandardCharsets.UTF_8)) {
+            for (Layout layout : layouts.find(context)) {
+                List<ConstraintLayout> constraintLayouts;
+                try {
+                    constraintLayouts = layout.getConstraintLayouts(context);
+                } catch (Layout.InflateException e) {
+                    writer.println(layout.getResourceName() + ": could not be inflated, " + e.getMessage());
+                    continue;
+                }
+                for (int i = 0; i < constraintLayouts.size(); i++) {
+                    ConstraintLayout constraintLayout = constraintLayouts.get(i);
+                    constraintLayout.measure(View.MeasureSpec.makeMeasureSpec(deviceConfiguration.getWidthPx(), View.MeasureSpec.EXACTLY),
+                            View.MeasureSpec.makeMeasureSpec(deviceConfiguration.getHeightPx(), View.MeasureSpec.EXACTLY));
+                    constraintLayout.layout(0, 0, constraintLayout.getMeasuredWidth(), constraintLayout.getMeasuredHeight());
+                    ConstraintGraph.write(constraintLayout, layout.getResourceName() + "#" + i, graphWriter);
+                }
+            }
+        }
+    }
+
+    /**
+     * Skips the test unless the {@value #VERIFY_PROPERTY} or {@value #RECORD_BASELINE_PROPERTY} system property is true. Timing
+     * layouts on a shared build agent is noisy and slow, so call this first to keep the measurement out of the module's default
+     * {@code test} task and only run it on a dedicated agent
+     */
+    public static void assumeVerifying() {
+        Assume.assumeTrue("Run with -D" + VERIFY_PROPERTY + "=true to measure the layouts",
+                Boolean.getBoolean(VERIFY_PROPERTY) || Boolean.getBoolean(RECORD_BASELINE_PROPERTY));
+    }
+
+    /**
+     * Fails the test if any ConstraintLayout regressed compared to the baseline file, or if the baseline file doesn't exist.
+     * <p>
+     * When the {@value #RECORD_BASELINE_PROPERTY} system property is true, the results are written to the baseline file instead,
+     * so it can be committed. Gradle doesn't pass system properties on to unit tests, so the module must forward it, e.g.
+     * <pre>
+     * testOptions.unitTests.all {
+     *     systemProperty 'optimiser.verify', project.findProperty('optimiser.verify') ?: 'false'
+     *     systemProperty 'optimiser.recordBaseline', project.findProperty('recordBaseline') ?: 'false'
+     * }
+     * </pre>
+     * then verify with {@code ./gradlew test -Poptimiser.verify=true} and record with {@code ./gradlew test -PrecordBaseline=true},
+     * on the same machine since durations aren't comparable across machines.
+     *
+     * @param results  The results returned by {@link #optimise()}
+     * @param baseline The baseline file, usually checked into version control
+     */
+    public void verifyBaseline(@NonNull Map<Layout, List<DeterminedOptimisers>> results, @NonNull File baseline) throws IOException, JSONException {
+        verifyBaseline(results, baseline, new BaselineComparator());
+    }
+
+    public void verifyBaseline(@NonNull Map<Layout, List<DeterminedOptimisers>> results,
+                               @NonNull File baseline,
+                               @NonNull BaselineComparator comparator) throws IOException, JSONException {
+        Baseline fresh = Baseline.fromResults(results);
+        if (Boolean.getBoolean(RECORD_BASELINE_PROPERTY)) {
+            fresh.write(baseline);
+            if (writer != null) {
+                writer.println();
+                writer.println("Recorded a new baseline in " + baseline);
+                writer.flush();
+            }
+            return;
+        }
+        if (!baseline.exists()) {
+            throw new AssertionError("Baseline " + baseline.getAbsolutePath() + " doesn't exist, run with -D"
+                    + RECORD_BASELINE_PROPERTY + "=true to record it");
+        }
+
+        BaselineDiff diff = comparator.compare(Baseline.read(baseline), fresh);
+        if (writer != null) {
+            writer.println();
+            writer.print(diff.getReport());
+            writer.flush();
+        }
+        if (diff.hasFailures()) throw new AssertionError("Layout performance regressed compared to " + baseline + "\n" + diff.getReport());
+    }
+
+    private void write(@NonNull Layout layout, @NonNull List<DeterminedOptimisers> optimisers) {
+        for (DeterminedOptimisers optimiser : optimisers) {
+            writer.println(layout.getResourceName() + " (" + optimiser.getDeviceConfiguration().getDescription() + ")");
+            writer.println("  current:     " + optimiser.getCurrent());
+            writer.println("  recommended: " + optimiser.getRecommended());
+            for (OptimiserResult result : optimiser.getResults()) {
+                writer.println("    " + result);
+            }
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.github.maciejkaznowski.constraintlayoutoptimizer.headless;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Writes the differences between two versions of a text file as a unified diff, which {@code git apply} and {@code patch -p1}
+ * accept. Lines are matched by their longest common subsequence, which is fine for files the size of layouts.
+ */
+class UnifiedDiff {
+
+    private static final int CONTEXT_LINES = 3;
+
+    private static final int EQUAL = 0;
+    private static final int DELETE = 1;
+    private static final int INSERT = 2;
+
+    private UnifiedDiff() {
+    }
+
+    /**
+     * @param path The path of the file relative to where the patch will be applied, using / as the separator
+     * @return The diff, which is empty if the texts are equal
+     */
+    @NonNull
+    static String diff(@NonNull String path, @NonNull String oldText, @NonNull String newText) {
+        if (oldText.equals(newText)) return "";
+
+        List<String> oldLines = toLines(oldText);
+        List<String> newLines = toLines(newText);
+        List<int[]> edits = getEdits(oldLines, newLines);
+        boolean oldMissingNewline = !oldText.isEmpty() && !oldText.endsWith("\n");
+        boolean newMissingNewline = !newText.isEmpty() && !newText.endsWith("\n");
+
+        StringBuilder diff = new StringBuilder()
+                .append("--- a/").append(path).append('\n')
+                .append("+++ b/").append(path).append('\n');
+        int index = 0;
+        while (index < edits.size()) {
+            if (edits.get(index)[0] == EQUAL) {
+                index++;
+                continue;
+            }
+
+            int start = Math.max(0, index - CONTEXT_LINES);
+            int lastChange = index;
+            int end = index + 1;
+            while (end < edits.size() && end - lastChange <= CONTEXT_LINES * 2) {
+                if (edits.get(end)[0] != EQUAL) lastChange = end;
+                end++;
+            }
+            end = Math.min(edits.size(), lastChange + CONTEXT_LINES + 1);
+
+            appendHunk(diff, edits.subList(start, end), oldLines, newLines, oldMissingNewline, newMissingNewline);
+            index = end;
+        }
+        return diff.toString();
+    }
+
+    /**
+     * @return Each edit as {type, old line index, new line index}, where the indices are the positions the edit is at
+     */
+    @NonNull
+    private static List<int[]> getEdits(@NonNull List<String> oldLines, @NonNull List<String> newLines) {
+        int oldCount = oldLines.size();
+        int newCount = newLines.size();
+        //common[i][j] is the length of the longest common subsequence of oldLines from i and newLines from j
+        int[][] common = new int[oldCount + 1][newCount + 1];
+        for (int i = oldCount - 1; i >= 0; i--) {
+            for (int j = newCount - 1; j >= 0; j--) {
+                common[i][j] = oldLines.get(i).equals(newLines.get(j))
+                        ? common[i + 1][j + 1] + 1
+                        : Math.max(common[i + 1][j], common[i][j + 1]);
+            }
+        }
+
+        List<int[]> edits = new ArrayList<>();
+        int i = 0;
+        int j = 0;
+        while (i < oldCount || j < newCount) {
+            if (i < oldCount && j < newCount && oldLines.get(i).equals(newLines.get(j))) {
+                edits.add(new int[]{EQUAL, i++, j++});
+            } else if (j == newCount || (i < oldCount && common[i + 1][j] >= common[i][j + 1])) {
+                edits.add(new int[]{DELETE, i++, j});
+            } else {
+                edits.add(new int[]{INSERT, i, j++});
+            }
+        }
+        return edits;
+    }
+
+    private static void appendHunk(@NonNull StringBuilder diff,
+                                   @NonNull List<int[]> edits,
+                                   @NonNull List<String> oldLines,
+                                   @NonNull List<String> newLines,
+                                   boolean oldMissingNewline,
+                                   boolean newMissingNewline) {
+        int oldCount = 0;
+        int newCount = 0;
+        for (int[] edit : edits) {
+            if (edit[0] != INSERT) oldCount++;
+            if (edit[0] != DELETE) newCount++;
+        }
+        //an empty range starts at the line before it
+        int oldStart = edits.get(0)[1] + (oldCount == 0 ? 0 : 1);
+        int newStart = edits.get(0)[2] + (newCount == 0 ? 0 : 1);
+        diff.append("@@ -").append(oldStart).append(',').append(oldCount)
+                .append(" +").append(newStart).append(',').append(newCount).append(" @@\n");
+
+        for (int[] edit : edits) {
+            switch (edit[0]) {
+                case EQUAL:
+                    diff.append(' ').append(oldLines.get(edit[1])).append('\n');
+                    if (oldMissingNewline && edit[1] == oldLines.size() - 1) diff.append("\\ No newline at end of file\n");
+                    break;
+                case DELETE:
+                    diff.append('-').append(oldLines.get(edit[1])).append('\n');
+                    if (oldMissingNewline && edit[1] == oldLines.size() - 1) diff.append("\\ No newline at end of file\n");
+                    break;
+                default:
+                    diff.append('+').append(newLines.get(edit[2])).append('\n');
+                    if (newMissingNewline && edit[2] == newLines.size() - 1) diff.append("\\ No newline at end of file\n");
+            }
+        }
+    }
+
+    @NonNull
+    private static List<String> toLines(@NonNull String text) {
+        if (text.isEmpty()) return new ArrayList<>();
+        List<String> lines = new ArrayList<>(Arrays.asList(text.split("\n", -1)));
+        //a trailing newline ends the last line rather than starting another
+        if (text.endsWith("\n")) lines.remove(lines.size() - 1);
+        return lines;
+    }
+}
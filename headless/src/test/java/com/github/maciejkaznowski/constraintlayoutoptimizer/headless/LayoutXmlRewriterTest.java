@@ -0,0 +1,255 @@
+package com.github.maciejkaznowski.constraintlayoutoptimizer.headless;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static com.github.maciejkaznowski.constraintlayoutoptimizer.headless.UnifiedDiffTest.assertApplies;
+import static com.github.maciejkaznowski.constraintlayoutoptimizer.headless.UnifiedDiffTest.write;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LayoutXmlRewriterTest {
+
+    private static final int STANDARD = 7;
+    private static final int DIRECT = 1;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File res;
+    private File results;
+    private File patch;
+    private StringBuilder records;
+
+    @Before
+    public void setUp() {
+        res = new File(folder.getRoot(), "src/main/res");
+        results = new File(folder.getRoot(), "results.jsonl");
+        patch = new File(folder.getRoot(), "levels.patch");
+        records = new StringBuilder();
+    }
+
+    @Test
+    public void existingAttribute_isReplaced() throws Exception {
+        write(new File(res, "layout/main.xml"), "<androidx.constraintlayout.widget.ConstraintLayout\n" +
+                "    xmlns:android=\"http://schemas.android.com/apk/res/android\"\n" +
+                "    xmlns:app=\"http://schemas.android.com/apk/res-auto\"\n" +
+                "    app:layout_optimizationLevel=\"standard\"\n" +
+                "    android:layout_width=\"match_parent\"\n" +
+                "    android:layout_height=\"match_parent\" />\n");
+        addRecord("main", 0, null, "res/layout/main.xml", DIRECT);
+
+        String report = rewrite();
+
+        assertEquals("--- a/src/main/res/layout/main.xml\n" +
+                "+++ b/src/main/res/layout/main.xml\n" +
+                "@@ -1,6 +1,6 @@\n" +
+                " <androidx.constraintlayout.widget.ConstraintLayout\n" +
+                "     xmlns:android=\"http://schemas.android.com/apk/res/android\"\n" +
+                "     xmlns:app=\"http://schemas.android.com/apk/res-auto\"\n" +
+                "-    app:layout_optimizationLevel=\"standard\"\n" +
+                "+    app:layout_optimizationLevel=\"direct\"\n" +
+                "     android:layout_width=\"match_parent\"\n" +
+                "     android:layout_height=\"match_parent\" />\n", readPatch());
+        assertEquals("src/main/res/layout/main.xml: root ConstraintLayout -> direct\n", report);
+    }
+
+    @Test
+    public void missingAttribute_isAddedOnItsOwnLineWithTheAppNamespace() throws Exception {
+        write(new File(res, "layout/main.xml"), "<androidx.constraintlayout.widget.ConstraintLayout\n" +
+                "    xmlns:android=\"http://schemas.android.com/apk/res/android\"\n" +
+                "    android:layout_width=\"match_parent\"\n" +
+                "    android:layout_height=\"match_parent\" />\n");
+        addRecord("main", 0, null, "res/layout/main.xml", DIRECT);
+
+        rewrite();
+
+        assertEquals("--- a/src/main/res/layout/main.xml\n" +
+                "+++ b/src/main/res/layout/main.xml\n" +
+                "@@ -1,4 +1,6 @@\n" +
+                " <androidx.constraintlayout.widget.ConstraintLayout\n" +
+                "     xmlns:android=\"http://schemas.android.com/apk/res/android\"\n" +
+                "     android:layout_width=\"match_parent\"\n" +
+                "-    android:layout_height=\"match_parent\" />\n" +
+                "+    android:layout_height=\"match_parent\"\n" +
+                "+    xmlns:app=\"http://schemas.android.com/apk/res-auto\"\n" +
+                "+    app:layout_optimizationLevel=\"direct\" />\n", readPatch());
+    }
+
+    @Test
+    public void boundResAutoPrefix_isUsed() throws Exception {
+        write(new File(res, "layout/main.xml"), "<androidx.constraintlayout.widget.ConstraintLayout" +
+                " xmlns:android=\"http://schemas.android.com/apk/res/android\"" +
+                " xmlns:custom=\"http://schemas.android.com/apk/res-auto\" />\n");
+        addRecord("main", 0, null, "res/layout/main.xml", DIRECT);
+
+        rewrite();
+
+        assertTrue(readPatch(), readPatch().contains("+<androidx.constraintlayout.widget.ConstraintLayout" +
+                " xmlns:android=\"http://schemas.android.com/apk/res/android\"" +
+                " xmlns:custom=\"http://schemas.android.com/apk/res-auto\" custom:layout_optimizationLevel=\"direct\" />\n"));
+    }
+
+    @Test
+    public void crlf_isKept() throws Exception {
+        String xml = "<androidx.constraintlayout.widget.ConstraintLayout\r\n" +
+                "    xmlns:android=\"http://schemas.android.com/apk/res/android\"\r\n" +
+                "    xmlns:app=\"http://schemas.android.com/apk/res-auto\"\r\n" +
+                "    android:layout_width=\"match_parent\" />\r\n";
+        write(new File(res, "layout/main.xml"), xml);
+        addRecord("main", 0, null, "res/layout/main.xml", DIRECT);
+
+        rewrite();
+
+        assertTrue(readPatch(), readPatch().endsWith("" +
+                "-    android:layout_width=\"match_parent\" />\r\n" +
+                "+    android:layout_width=\"match_parent\"\r\n" +
+                "+    app:layout_optimizationLevel=\"direct\" />\r\n"));
+        assertApplies(folder.getRoot(), readPatch());
+    }
+
+    @Test
+    public void noTrailingNewline_isKept() throws Exception {
+        write(new File(res, "layout/main.xml"), "<androidx.constraintlayout.widget.ConstraintLayout" +
+                " xmlns:android=\"http://schemas.android.com/apk/res/android\"" +
+                " xmlns:app=\"http://schemas.android.com/apk/res-auto\" />");
+        addRecord("main", 0, null, "res/layout/main.xml", DIRECT);
+
+        rewrite();
+
+        assertTrue(readPatch(), readPatch().endsWith("" +
+                " xmlns:app=\"http://schemas.android.com/apk/res-auto\" app:layout_optimizationLevel=\"direct\" />\n" +
+                "\\ No newline at end of file\n"));
+        assertApplies(folder.getRoot(), readPatch());
+    }
+
+    @Test
+    public void ids_areFoundWhetherDeclaredOrReferenced() throws Exception {
+        write(new File(res, "layout/main.xml"), "<FrameLayout xmlns:android=\"http://schemas.android.com/apk/res/android\"\n" +
+                "    xmlns:app=\"http://schemas.android.com/apk/res-auto\">\n" +
+                "    <androidx.constraintlayout.widget.ConstraintLayout android:id=\"@+id/header\" />\n" +
+                "    <androidx.constraintlayout.widget.ConstraintLayout android:id=\"@+id/headerBody\" />\n" +
+                "    <androidx.constraintlayout.widget.ConstraintLayout android:id=\"@id/content\" />\n" +
+                "</FrameLayout>\n");
+        addRecord("main", 0, "header", "res/layout/main.xml", DIRECT);
+        addRecord("main", 1, "content", "res/layout/main.xml", DIRECT);
+
+        String report = rewrite();
+
+        assertEquals("--- a/src/main/res/layout/main.xml\n" +
+                "+++ b/src/main/res/layout/main.xml\n" +
+                "@@ -1,6 +1,6 @@\n" +
+                " <FrameLayout xmlns:android=\"http://schemas.android.com/apk/res/android\"\n" +
+                "     xmlns:app=\"http://schemas.android.com/apk/res-auto\">\n" +
+                "-    <androidx.constraintlayout.widget.ConstraintLayout android:id=\"@+id/header\" />\n" +
+                "+    <androidx.constraintlayout.widget.ConstraintLayout android:id=\"@+id/header\" app:layout_optimizationLevel=\"direct\" />\n" +
+                "     <androidx.constraintlayout.widget.ConstraintLayout android:id=\"@+id/headerBody\" />\n" +
+                "-    <androidx.constraintlayout.widget.ConstraintLayout android:id=\"@id/content\" />\n" +
+                "+    <androidx.constraintlayout.widget.ConstraintLayout android:id=\"@id/content\" app:layout_optimizationLevel=\"direct\" />\n" +
+                " </FrameLayout>\n", readPatch());
+        assertEquals("src/main/res/layout/main.xml: @id/header -> direct\n" +
+                "src/main/res/layout/main.xml: @id/content -> direct\n", report);
+    }
+
+    @Test
+    public void distantConstraintLayouts_separateHunksWhichApply() throws Exception {
+        StringBuilder xml = new StringBuilder("<LinearLayout xmlns:android=\"http://schemas.android.com/apk/res/android\"\n" +
+                "    xmlns:app=\"http://schemas.android.com/apk/res-auto\">\n" +
+                "    <androidx.constraintlayout.widget.ConstraintLayout android:id=\"@+id/top\" />\n");
+        for (int i = 0; i < 10; i++) xml.append("    <View android:id=\"@+id/spacer").append(i).append("\" />\n");
+        xml.append("    <androidx.constraintlayout.widget.ConstraintLayout android:id=\"@+id/bottom\" />\n" +
+                "</LinearLayout>\n");
+        write(new File(res, "layout/main.xml"), xml.toString());
+        addRecord("main", 0, "top", "res/layout/main.xml", DIRECT);
+        addRecord("main", 1, "bottom", "res/layout/main.xml", DIRECT);
+
+        rewrite();
+
+        String patch = readPatch();
+        assertEquals(patch, 2, patch.split("\n@@ ", -1).length - 1);
+        assertApplies(folder.getRoot(), patch);
+    }
+
+    @Test
+    public void onlyTheMeasuredVersion_isRewritten() throws Exception {
+        String xml = "<androidx.constraintlayout.widget.ConstraintLayout" +
+                " xmlns:app=\"http://schemas.android.com/apk/res-auto\" />\n";
+        write(new File(res, "layout/main.xml"), xml);
+        write(new File(res, "layout-land/main.xml"), xml);
+        addRecord("main", 0, null, "res/layout-land/main.xml", DIRECT);
+
+        String report = rewrite();
+
+        assertTrue(readPatch(), readPatch().startsWith("--- a/src/main/res/layout-land/main.xml\n"));
+        assertEquals(1, readPatch().split("\n--- a/", -1).length);
+        assertEquals("src/main/res/layout/main.xml: skipped, no device configuration was measured with it\n" +
+                "src/main/res/layout-land/main.xml: root ConstraintLayout -> direct\n", report);
+    }
+
+    @Test
+    public void versionQualifierAddedByTheBuild_isIgnored() throws Exception {
+        write(new File(res, "layout/main.xml"), "<androidx.constraintlayout.widget.ConstraintLayout" +
+                " xmlns:app=\"http://schemas.android.com/apk/res-auto\" />\n");
+        addRecord("main", 0, null, "res/layout-v21/main.xml", DIRECT);
+
+        String report = rewrite();
+
+        assertEquals("src/main/res/layout/main.xml: root ConstraintLayout -> direct\n", report);
+    }
+
+    @Test
+    public void noImprovementOnOneConfiguration_isSkipped() throws Exception {
+        write(new File(res, "layout/main.xml"), "<androidx.constraintlayout.widget.ConstraintLayout" +
+                " xmlns:app=\"http://schemas.android.com/apk/res-auto\" />\n");
+        addRecord("main", 0, null, "res/layout/main.xml", DIRECT);
+        addRecord("main", 0, null, "res/layout/main.xml", STANDARD);
+
+        String report = rewrite();
+
+        assertEquals("", readPatch());
+        assertTrue(report, report.startsWith("main: skipped root ConstraintLayout, no level is significantly faster"));
+    }
+
+    @Test
+    public void missingLayoutFile_isSkipped() throws Exception {
+        write(new File(res, "layout/main.xml"), "<androidx.constraintlayout.widget.ConstraintLayout" +
+                " xmlns:app=\"http://schemas.android.com/apk/res-auto\" />\n");
+        addRecord("main", 0, null, null, DIRECT);
+
+        String report = rewrite();
+
+        assertEquals("", readPatch());
+        assertEquals("src/main/res/layout/main.xml: skipped, no device configuration was measured with it\n" +
+                "main: skipped root ConstraintLayout, the measured version of the layout wasn't exported\n", report);
+    }
+
+    private void addRecord(String layout, int index, String id, String layoutFile, int recommendedLevel) throws JSONException {
+        JSONObject record = new JSONObject()
+                .put("layout", layout)
+                .put("index", index)
+                .put("currentLevel", STANDARD)
+                .put("recommendedLevel", recommendedLevel)
+                .put("deviceConfiguration", new JSONObject().put("description", "1080x1920px"));
+        if (id != null) record.put("constraintLayoutId", id);
+        if (layoutFile != null) record.put("layoutFile", layoutFile);
+        records.append(record).append('\n');
+    }
+
+    private String rewrite() throws IOException, JSONException {
+        write(results, records.toString());
+        return new LayoutXmlRewriter(res, folder.getRoot()).rewrite(results, patch);
+    }
+
+    private String readPatch() throws IOException {
+        return new String(Files.readAllBytes(patch.toPath()), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,139 @@
+package com.github.maciejkaznowski.constraintlayoutoptimizer.headless;
+
+import org.junit.Assume;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class UnifiedDiffTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void equalTexts_emptyDiff() {
+        assertEquals("", UnifiedDiff.diff("main.xml", "a\nb\n", "a\nb\n"));
+    }
+
+    @Test
+    public void changedLine_keepsContext() {
+        String diff = UnifiedDiff.diff("res/layout/main.xml", "a\nb\nc\nd\ne\n", "a\nb\nC\nd\ne\n");
+
+        assertEquals("--- a/res/layout/main.xml\n" +
+                "+++ b/res/layout/main.xml\n" +
+                "@@ -1,5 +1,5 @@\n" +
+                " a\n" +
+                " b\n" +
+                "-c\n" +
+                "+C\n" +
+                " d\n" +
+                " e\n", diff);
+    }
+
+    @Test
+    public void insertedLine() {
+        String diff = UnifiedDiff.diff("main.xml", "a\nb\n", "a\nnew\nb\n");
+
+        assertEquals("--- a/main.xml\n" +
+                "+++ b/main.xml\n" +
+                "@@ -1,2 +1,3 @@\n" +
+                " a\n" +
+                "+new\n" +
+                " b\n", diff);
+    }
+
+    @Test
+    public void noTrailingNewline_isMarked() {
+        String diff = UnifiedDiff.diff("main.xml", "a\nb", "a\nc");
+
+        assertEquals("--- a/main.xml\n" +
+                "+++ b/main.xml\n" +
+                "@@ -1,2 +1,2 @@\n" +
+                " a\n" +
+                "-b\n" +
+                "\\ No newline at end of file\n" +
+                "+c\n" +
+                "\\ No newline at end of file\n", diff);
+    }
+
+    @Test
+    public void crlf_isKeptInTheLines() {
+        String diff = UnifiedDiff.diff("main.xml", "a\r\nb\r\n", "a\r\nc\r\n");
+
+        assertEquals("--- a/main.xml\n" +
+                "+++ b/main.xml\n" +
+                "@@ -1,2 +1,2 @@\n" +
+                " a\r\n" +
+                "-b\r\n" +
+                "+c\r\n", diff);
+    }
+
+    @Test
+    public void distantChanges_separateHunks() throws Exception {
+        StringBuilder oldText = new StringBuilder();
+        for (int i = 1; i <= 20; i++) oldText.append("line ").append(i).append('\n');
+        String newText = oldText.toString().replace("line 2\n", "line two\n").replace("line 18\n", "line eighteen\n");
+
+        String diff = UnifiedDiff.diff("main.xml", oldText.toString(), newText);
+
+        assertEquals(2, diff.split("\n@@ ", -1).length - 1);
+        assertTrue(diff.contains("@@ -1,5 +1,5 @@\n"));
+        assertTrue(diff.contains("@@ -15,6 +15,6 @@\n"));
+        write(new File(folder.getRoot(), "main.xml"), oldText.toString());
+        assertApplies(folder.getRoot(), diff);
+    }
+
+    @Test
+    public void noTrailingNewlineAndCrlf_appliesWithGit() throws Exception {
+        String oldText = "<a>\r\n<b/>\r\n</a>";
+        String newText = "<a>\r\n<b c=\"d\"/>\r\n</a>";
+        write(new File(folder.getRoot(), "main.xml"), oldText);
+
+        assertApplies(folder.getRoot(), UnifiedDiff.diff("main.xml", oldText, newText));
+    }
+
+    static void write(File file, String text) throws IOException {
+        File parent = file.getParentFile();
+        if (!parent.exists() && !parent.mkdirs()) throw new IOException("Could not create " + parent);
+        Files.write(file.toPath(), text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Checks the patch with {@code git apply --check} from the directory, or skips the test if git isn't installed
+     */
+    static void assertApplies(File directory, String patch) throws IOException, InterruptedException {
+        File patchFile = File.createTempFile("changes", ".patch", directory);
+        write(patchFile, patch);
+
+        Process process;
+        try {
+            process = new ProcessBuilder("git", "apply", "--check", patchFile.getName())
+                    .directory(directory)
+                    .redirectErrorStream(true)
+                    .start();
+        } catch (IOException e) {
+            Assume.assumeNoException("git isn't installed", e);
+            return;
+        }
+        String output = read(process.getInputStream());
+        assertEquals(patch + output, 0, process.waitFor());
+    }
+
+    private static String read(InputStream input) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int read;
+        while ((read = input.read(buffer)) != -1) output.write(buffer, 0, read);
+        return new String(output.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
@@ -11,6 +11,7 @@ import androidx.annotation.LayoutRes;
 import androidx.annotation.NonNull;
 import androidx.constraintlayout.widget.ConstraintLayout;
 
+import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 
@@ -50,8 +51,18 @@ public class Layout implements Parcelable {
         return resource;
     }
 
+    /**
+     * Layouts whose XML shows they can't contain a ConstraintLayout, directly or through an {@code <include>}, aren't inflated
+     *
+     * @return The ConstraintLayouts of the inflated layout, in depth first order
+     */
     @NonNull
     public List<ConstraintLayout> getConstraintLayouts(@NonNull Context context) throws InflateException {
+        if (!LayoutScanner.mayContainConstraintLayout(context, resource)) {
+            Log.d("Layout", "skipping " + toString() + ", it has no ConstraintLayout");
+            return Collections.emptyList();
+        }
+
         Log.d("Layout", "inflating " + toString());
         View inflatedLayout = inflate(context);
         return Utils.findAllViews(inflatedLayout, ConstraintLayout.class);
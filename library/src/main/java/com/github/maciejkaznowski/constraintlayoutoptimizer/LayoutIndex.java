@@ -0,0 +1,113 @@
+package com.github.maciejkaznowski.constraintlayoutoptimizer;
+
+import android.util.SparseArray;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Maps the layout resources of an R class to their names.
+ * <p>
+ * Reading the R.layout fields reflectively is slow, so each R class is only indexed once per process and the index is
+ * shared by every {@link Layouts#find} call.
+ */
+class LayoutIndex {
+
+    private static final Map<String, LayoutIndex> INDICES = new ConcurrentHashMap<>();
+
+    /**
+     * Layout names by resource, sorted by resource
+     */
+    @NonNull private final SparseArray<String> names;
+
+    private LayoutIndex(@NonNull SparseArray<String> names) {
+        this.names = names;
+    }
+
+    /**
+     * @param rClassName The fully qualified name of the R class, e.g. com.company.app.R
+     * @return The index of the R class's layouts, which is cached for the lifetime of the process
+     */
+    @NonNull
+    static LayoutIndex forRClass(@NonNull String rClassName) throws RClassNotFoundException, LayoutClassNotFoundException, IllegalAccessException {
+        LayoutIndex index = INDICES.get(rClassName);
+        if (index != null) return index;
+
+        index = create(getLayoutClass(getRClass(rClassName)));
+        //another thread may have indexed the same class meanwhile, both indices are equal so it doesn't matter which is kept
+        INDICES.put(rClassName, index);
+        return index;
+    }
+
+    @NonNull
+    private static LayoutIndex create(@NonNull Class<?> layoutClass) throws IllegalAccessException {
+        Field[] fields = layoutClass.getDeclaredFields();
+        SparseArray<String> names = new SparseArray<>(fields.length);
+        for (Field field : fields) {
+            //R.layout only has static int fields, but coverage tools may add others
+            if (!Modifier.isStatic(field.getModifiers()) || field.getType() != int.class) continue;
+            names.put(field.getInt(null), field.getName());
+        }
+        return new LayoutIndex(names);
+    }
+
+    @NonNull
+    private static Class<?> getRClass(@NonNull String rClassName) throws RClassNotFoundException {
+        try {
+            return Class.forName(rClassName);
+        } catch (ClassNotFoundException e) {
+            throw new RClassNotFoundException(rClassName, e);
+        }
+    }
+
+    @NonNull
+    private static Class<?> getLayoutClass(@NonNull Class<?> rClass) throws LayoutClassNotFoundException {
+        for (Class<?> innerClass : rClass.getDeclaredClasses()) {
+            if (innerClass.getSimpleName().equals("layout")) {
+                return innerClass;
+            }
+        }
+
+        throw new LayoutClassNotFoundException(rClass);
+    }
+
+    /**
+     * @return The name of the layout, or null if it isn't in this R class
+     */
+    @Nullable
+    String getName(int layoutRes) {
+        return names.get(layoutRes);
+    }
+
+    int size() {
+        return names.size();
+    }
+
+    int resourceAt(int index) {
+        return names.keyAt(index);
+    }
+
+    @NonNull
+    String nameAt(int index) {
+        return names.valueAt(index);
+    }
+
+    static class RClassNotFoundException extends ClassNotFoundException {
+
+        private RClassNotFoundException(@NonNull String rClassName, @NonNull ClassNotFoundException e) {
+            super("Could not find R class " + rClassName, e);
+        }
+    }
+
+    static class LayoutClassNotFoundException extends ClassNotFoundException {
+
+        private LayoutClassNotFoundException(@NonNull Class<?> rClass) {
+            super("Could not find a layout class in " + rClass.getName());
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.github.maciejkaznowski.constraintlayoutoptimizer;
+
+import android.content.Context;
+import android.content.res.Configuration;
+import android.content.res.Resources;
+import android.content.res.XmlResourceParser;
+import android.util.Log;
+import android.util.SparseBooleanArray;
+
+import androidx.annotation.LayoutRes;
+import androidx.annotation.NonNull;
+import androidx.constraintlayout.widget.ConstraintLayout;
+
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Decides whether a layout can contain a ConstraintLayout by reading its compiled XML, which is much cheaper than inflating it.
+ * <p>
+ * Layouts are followed into the layouts they {@code <include>}. Results are memoised for each {@link Configuration}, since
+ * each configuration can resolve a different version of a layout. When in doubt, e.g. a view class can't be loaded or the
+ * XML can't be read, a layout is assumed to contain a ConstraintLayout so it is still inflated and measured.
+ */
+class LayoutScanner {
+
+    private static final String TAG = "LayoutScanner";
+    private static final String TAG_INCLUDE = "include";
+    private static final String TAG_VIEW = "view";
+
+    private static final Map<Configuration, SparseBooleanArray> RESULTS = new HashMap<>();
+    private static final Map<String, Boolean> CONSTRAINT_LAYOUT_CLASSES = new HashMap<>();
+
+    private LayoutScanner() {
+    }
+
+    /**
+     * @param context The context the layout will be inflated with
+     * @return False if inflating the layout can't produce a ConstraintLayout
+     */
+    static synchronized boolean mayContainConstraintLayout(@NonNull Context context, @LayoutRes int layoutRes) {
+        Configuration configuration = context.getResources().getConfiguration();
+        SparseBooleanArray results = RESULTS.get(configuration);
+        if (results == null) {
+            results = new SparseBooleanArray();
+            RESULTS.put(new Configuration(configuration), results);
+        }
+        return scan(context, layoutRes, results, new SparseBooleanArray());
+    }
+
+    /**
+     * @param scanning The layouts currently being scanned, to stop at recursive includes
+     */
+    private static boolean scan(@NonNull Context context,
+                                @LayoutRes int layoutRes,
+                                @NonNull SparseBooleanArray results,
+                                @NonNull SparseBooleanArray scanning) {
+        int index = results.indexOfKey(layoutRes);
+        if (index >= 0) return results.valueAt(index);
+        //a recursive include can't be inflated anyway, its first occurrence decides the result
+        if (scanning.get(layoutRes)) return false;
+
+        scanning.put(layoutRes, true);
+        boolean result = scanXml(context, layoutRes, results, scanning);
+        scanning.delete(layoutRes);
+        results.put(layoutRes, result);
+        return result;
+    }
+
+    private static boolean scanXml(@NonNull Context context,
+                                   @LayoutRes int layoutRes,
+                                   @NonNull SparseBooleanArray results,
+                                   @NonNull SparseBooleanArray scanning) {
+        try (XmlResourceParser parser = context.getResources().getLayout(layoutRes)) {
+            int event;
+            while ((event = parser.next()) != XmlPullParser.END_DOCUMENT) {
+                if (event != XmlPullParser.START_TAG) continue;
+
+                String name = parser.getName();
+                if (TAG_INCLUDE.equals(name)) {
+                    int includedLayout = parser.getAttributeResourceValue(null, "layout", 0);
+                    //an include without a layout fails to inflate, so let inflation report it
+                    if (includedLayout == 0 || scan(context, includedLayout, results, scanning)) return true;
+                } else if (TAG_VIEW.equals(name)) {
+                    String className = parser.getAttributeValue(null, "class");
+                    if (className != null && isConstraintLayout(context, className)) return true;
+                } else if (isConstraintLayout(context, name)) {
+                    return true;
+                }
+            }
+            return false;
+        } catch (XmlPullParserException | IOException | Resources.NotFoundException e) {
+            Log.w(TAG, "Could not scan layout " + Utils.getLayoutHexString(layoutRes) + ", assuming it has a ConstraintLayout", e);
+            return true;
+        }
+    }
+
+    /**
+     * @param name The tag name, which is a class name for all views outside of the android.widget, android.view and android.webkit packages
+     */
+    private static boolean isConstraintLayout(@NonNull Context context, @NonNull String name) {
+        //framework views, and tags such as merge, requestFocus and fragment
+        if (name.indexOf('.') == -1) return false;
+
+        Boolean cached = CONSTRAINT_LAYOUT_CLASSES.get(name);
+        if (cached != null) return cached;
+
+        boolean result;
+        try {
+            Class<?> viewClass = Class.forName(name, false, context.getClassLoader());
+            result = ConstraintLayout.class.isAssignableFrom(viewClass);
+        } catch (ClassNotFoundException | LinkageError e) {
+            result = true;
+        }
+        CONSTRAINT_LAYOUT_CLASSES.put(name, result);
+        return result;
+    }
+}
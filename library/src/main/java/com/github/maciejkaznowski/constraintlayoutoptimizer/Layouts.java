@@ -1,16 +1,18 @@
 package com.github.maciejkaznowski.constraintlayoutoptimizer;
 
 import android.content.Context;
+import android.content.res.Resources;
 import android.os.Parcel;
 import android.os.Parcelable;
+import android.util.SparseBooleanArray;
 
 import androidx.annotation.LayoutRes;
 import androidx.annotation.NonNull;
 import androidx.collection.ArraySet;
 
-import java.lang.reflect.Constructor;
-import java.lang.reflect.Field;
-import java.lang.reflect.InvocationTargetException;
+import com.github.maciejkaznowski.constraintlayoutoptimizer.LayoutIndex.LayoutClassNotFoundException;
+import com.github.maciejkaznowski.constraintlayoutoptimizer.LayoutIndex.RClassNotFoundException;
+
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
@@ -32,11 +34,13 @@ public class Layouts implements Parcelable {
     //TODO This will cause autoboxing, but it doesn't matter too much since included/excluded layouts won't usually be big anyway
     private Set<Integer> includedLayouts;
     private Set<Integer> excludedLayouts;
+    private List<String> rClassNames;
 
     public Layouts() {
         this.includeAllLayouts = false;
         this.includedLayouts = new ArraySet<>();
         this.excludedLayouts = new ArraySet<>();
+        this.rClassNames = new ArrayList<>();
     }
 
     protected Layouts(Parcel in) {
@@ -49,6 +53,8 @@ public class Layouts implements Parcelable {
         List<Integer> excludedLayoutsList = new ArrayList<>();
         in.readList(excludedLayoutsList, ArrayList.class.getClassLoader());
         this.excludedLayouts = new ArraySet<>(excludedLayoutsList);
+
+        this.rClassNames = in.createStringArrayList();
     }
 
     @NonNull
@@ -71,21 +77,30 @@ public class Layouts implements Parcelable {
         return this;
     }
 
+    /**
+     * Also finds layouts in the given R class, e.g. the R class of a library module whose package differs from the app's.
+     * The app's own R class, in {@link Context#getPackageName()}, is always searched when it exists
+     *
+     * @param rClassName The fully qualified name of the R class, e.g. com.company.feature.R
+     */
     @NonNull
-    public List<Layout> find(@NonNull Context context) throws RClassNotFoundException, LayoutClassNotFoundException, InvocationTargetException, CouldNotInstantiateLayoutConstructor, InstantiationException, IllegalAccessException, LayoutNotFoundException { //TODO remove throws exception
-        //the R.layout class
-        Class layoutResourceClass = getLayoutClass(context);
-        Field[] layoutFields = layoutResourceClass.getDeclaredFields();
-        Object layoutClassInstance = getLayoutClassInstance(layoutResourceClass);
+    public Layouts includeRClass(@NonNull String rClassName) {
+        if (!this.rClassNames.contains(rClassName)) this.rClassNames.add(rClassName);
+        return this;
+    }
+
+    @NonNull
+    public List<Layout> find(@NonNull Context context) throws RClassNotFoundException, LayoutClassNotFoundException, IllegalAccessException, LayoutNotFoundException {
+        List<LayoutIndex> indices = getIndices(context);
 
         if (includeAllLayouts) {
             //add all layouts which aren't in the excluded list
-            return getAllLayouts(layoutClassInstance, layoutFields, excludedLayouts);
+            return getAllLayouts(indices, excludedLayouts);
         } else {
             //add layouts which are in the include list
             List<Layout> layouts = new ArrayList<>(includedLayouts.size());
             for (int layoutRes : includedLayouts) {
-                String layoutName = resolveLayoutName(layoutClassInstance, layoutFields, layoutRes);
+                String layoutName = resolveLayoutName(context, indices, layoutRes);
                 Layout layout = new Layout(layoutName, layoutRes);
                 layouts.add(layout);
             }
@@ -95,72 +110,55 @@ public class Layouts implements Parcelable {
     }
 
     @NonNull
-    private Object getLayoutClassInstance(@NonNull Class layoutClass) throws CouldNotInstantiateLayoutConstructor, IllegalAccessException, InvocationTargetException, InstantiationException {
-        //constructor is private with no args
-        Constructor constructor;
+    private List<LayoutIndex> getIndices(@NonNull Context context) throws RClassNotFoundException, LayoutClassNotFoundException, IllegalAccessException {
+        List<LayoutIndex> indices = new ArrayList<>(rClassNames.size() + 1);
+
+        //might not be where the R class is, e.g. could be com.company.app.appended_package_name
+        String appRClassName = context.getPackageName() + ".R";
         try {
-            constructor = layoutClass.getConstructor();
-        } catch (NoSuchMethodException e) {
-            throw new CouldNotInstantiateLayoutConstructor(e);
+            indices.add(LayoutIndex.forRClass(appRClassName));
+        } catch (RClassNotFoundException e) {
+            //the layouts may all be in the explicitly included R classes
+            if (rClassNames.isEmpty()) throw e;
         }
-        constructor.setAccessible(true);
-        return constructor.newInstance();
-    }
 
-    @NonNull
-    private String resolveLayoutName(@NonNull Object layoutClassInstance,
-                                     @NonNull Field[] layoutFields,
-                                     @LayoutRes int layoutRes) throws LayoutNotFoundException, IllegalAccessException {
-        for (Field field : layoutFields) {
-            if (field.getInt(layoutClassInstance) == layoutRes) {
-                return field.getName();
-            }
+        for (String rClassName : rClassNames) {
+            if (!rClassName.equals(appRClassName)) indices.add(LayoutIndex.forRClass(rClassName));
         }
-
-        throw new LayoutNotFoundException(layoutRes);
+        return indices;
     }
 
     @NonNull
-    private Class getLayoutClass(@NonNull Context context) throws RClassNotFoundException, LayoutClassNotFoundException {
-        Class R = getRClass(context);
-        Class[] innerClasses = R.getDeclaredClasses();
-        for (Class innerClass : innerClasses) {
-            if (innerClass.getSimpleName().equals("layout")) {
-                return innerClass;
-            }
+    private String resolveLayoutName(@NonNull Context context,
+                                     @NonNull List<LayoutIndex> indices,
+                                     @LayoutRes int layoutRes) throws LayoutNotFoundException {
+        for (LayoutIndex index : indices) {
+            String name = index.getName(layoutRes);
+            if (name != null) return name;
         }
 
-        throw new LayoutClassNotFoundException();
-    }
-
-    @NonNull
-    private Class getRClass(@NonNull Context context) throws RClassNotFoundException {
-        //returns the "R" resources class, e.g. com.company.app.R.class
-        String appPackageName = context.getPackageName(); //might not be where the R class is, e.g. could be com.company.app.appended_package_name
-        String RPackageName = appPackageName;
-
+        //not in any searched R class, e.g. a library's layout when its R class isn't included
         try {
-            return Class.forName(RPackageName + ".R");
-        } catch (ClassNotFoundException e) {
-            throw new RClassNotFoundException(e);
+            return context.getResources().getResourceEntryName(layoutRes);
+        } catch (Resources.NotFoundException e) {
+            throw new LayoutNotFoundException(layoutRes);
         }
     }
 
     @NonNull
-    private List<Layout> getAllLayouts(@NonNull Object layoutClassInstance,
-                                       @NonNull Field[] layoutFields,
-                                       @NonNull Set<Integer> excludedLayouts) throws IllegalAccessException {
-        //map each field to a LayoutResource
+    private List<Layout> getAllLayouts(@NonNull List<LayoutIndex> indices, @NonNull Set<Integer> excludedLayouts) {
         List<Layout> layouts = new ArrayList<>();
-        for (int i = 0; i < layoutFields.length; i++) {
-            Field field = layoutFields[i];
-
-            int value = field.getInt(layoutClassInstance);
-            if (excludedLayouts.contains(value)) break; //ignore if in excluded list
-            String name = field.getName();
-
-            Layout layout = new Layout(name, value);
-            layouts.add(layout);
+        //the app's R class also contains the layouts of its libraries, so the same layout can be in several R classes
+        SparseBooleanArray added = new SparseBooleanArray();
+        for (LayoutIndex index : indices) {
+            for (int i = 0; i < index.size(); i++) {
+                int value = index.resourceAt(i);
+                if (excludedLayouts.contains(value) || added.get(value)) continue; //ignore if in excluded list or already added
+                added.put(value, true);
+
+                Layout layout = new Layout(index.nameAt(i), value);
+                layouts.add(layout);
+            }
         }
 
         return layouts;
@@ -176,21 +174,7 @@ public class Layouts implements Parcelable {
         dest.writeByte(this.includeAllLayouts ? (byte) 1 : (byte) 0);
         dest.writeList(new ArrayList<>(this.includedLayouts));
         dest.writeList(new ArrayList<>(this.excludedLayouts));
-    }
-
-    private static class RClassNotFoundException extends ClassNotFoundException {
-
-
-        private RClassNotFoundException(@NonNull ClassNotFoundException e) {
-            super("Could not find R class", e);
-        }
-    }
-
-    private static class LayoutClassNotFoundException extends ClassNotFoundException {
-
-        private LayoutClassNotFoundException() {
-            super("Could not find a layout class in your R class");
-        }
+        dest.writeStringList(this.rClassNames);
     }
 
     private static class LayoutNotFoundException extends Exception {
@@ -199,11 +183,4 @@ public class Layouts implements Parcelable {
             super("Could not find layout in R.layout with value " + Utils.getLayoutHexString(layoutRes));
         }
     }
-
-    private static class CouldNotInstantiateLayoutConstructor extends Exception {
-
-        CouldNotInstantiateLayoutConstructor(@NonNull NoSuchMethodException e) {
-            super("Could not instantiate layout constructor", e);
-        }
-    }
 }
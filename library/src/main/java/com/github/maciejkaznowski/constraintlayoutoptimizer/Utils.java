@@ -86,6 +86,29 @@ public class Utils {
         return optimiserString.toString();
     }
 
+    /**
+     * @return The optimisation level as the value of {@code app:layout_optimizationLevel}, e.g. {@code direct|barrier}.
+     * Flags are written out rather than using {@code standard}, whose value differs between ConstraintLayout versions
+     */
+    @NonNull
+    public static String describeXmlOptimisations(int optimizer) {
+        if (optimizer == Optimizer.OPTIMIZATION_NONE) return "none";
+
+        StringBuilder flags = new StringBuilder();
+        appendXmlFlag(flags, optimizer, Optimizer.OPTIMIZATION_DIRECT, "direct");
+        appendXmlFlag(flags, optimizer, Optimizer.OPTIMIZATION_BARRIER, "barrier");
+        appendXmlFlag(flags, optimizer, Optimizer.OPTIMIZATION_CHAIN, "chains");
+        appendXmlFlag(flags, optimizer, Optimizer.OPTIMIZATION_DIMENSIONS, "dimensions");
+        appendXmlFlag(flags, optimizer, Optimizer.OPTIMIZATION_RATIO, "ratio");
+        return flags.toString();
+    }
+
+    private static void appendXmlFlag(@NonNull StringBuilder flags, int optimizer, int flag, @NonNull String name) {
+        if (!hasFlags(optimizer, flag)) return;
+        if (flags.length() > 0) flags.append('|');
+        flags.append(name);
+    }
+
     @NonNull
     public static String nsToMs(double ns) {
         return String.format("%.2f", ns / 1_000_000F);
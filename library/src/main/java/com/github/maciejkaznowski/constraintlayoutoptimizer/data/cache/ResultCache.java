@@ -0,0 +1,361 @@
+package com.github.maciejkaznowski.constraintlayoutoptimizer.data.cache;
+
+import android.content.Context;
+import android.content.pm.PackageManager;
+import android.content.res.Resources;
+import android.os.Build;
+import android.os.Parcel;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+import androidx.constraintlayout.widget.ConstraintLayout;
+
+import com.github.maciejkaznowski.constraintlayoutoptimizer.Layout;
+import com.github.maciejkaznowski.constraintlayoutoptimizer.data.measurer.DeterminedOptimisers;
+import com.github.maciejkaznowski.constraintlayoutoptimizer.data.measurer.DeviceConfiguration;
+import com.github.maciejkaznowski.constraintlayoutoptimizer.data.measurer.MeasurementOptions;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.CodeSource;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.ProtectionDomain;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Stores the {@link DeterminedOptimisers} of measured layouts on disk, so layouts which haven't changed since a previous run
+ * don't need to be measured again.
+ * <p>
+ * Results are keyed by the layout's resource name, a hash of its compiled XML for every device configuration, the
+ * ConstraintLayout version the app ships, the device's build fingerprint and the {@link MeasurementOptions}. Changing any of these is a
+ * cache miss. When the cache grows beyond its maximum size the least recently used results are evicted.
+ * <p>
+ * The hash only covers the layout's own XML, so a layout must be {@link #invalidate(Layout) invalidated} when only a layout it
+ * {@code <include>}s changes.
+ * <p>
+ * Results are stored as JSON written by {@link DeterminedOptimisers#toJson()} rather than as parcels, since the parcel format
+ * isn't meant to outlive the process which wrote it.
+ */
+public class ResultCache {
+
+    private static final String TAG = "ResultCache";
+    private static final String DIRECTORY_NAME = "constraint_layout_optimiser_results";
+    private static final String FILE_EXTENSION = ".json";
+    /**
+     * Increment when the JSON format of {@link DeterminedOptimisers} or how its best results are chosen changes
+     */
+    private static final int FORMAT_VERSION = 6;
+    private static final long DEFAULT_MAX_SIZE_BYTES = 10 * 1024 * 1024;
+    /**
+     * Written by every AndroidX library into its jar and packaged into the app
+     */
+    private static final String[] CONSTRAINT_LAYOUT_VERSION_FILES = {
+            "META-INF/androidx.constraintlayout_constraintlayout.version",
+            "META-INF/androidx.constraintlayout_constraintlayout-solver.version"
+    };
+
+    @Nullable private static volatile String constraintLayoutVersion;
+
+    @NonNull private final File directory;
+    private final long maxSizeBytes;
+
+    /**
+     * Stores up to 10MB of results in the context's cache directory
+     */
+    public ResultCache(@NonNull Context context) {
+        this(new File(context.getCacheDir(), DIRECTORY_NAME), DEFAULT_MAX_SIZE_BYTES);
+    }
+
+    /**
+     * @param directory    The directory to store results in, which is only used by this cache
+     * @param maxSizeBytes The total size of stored results above which the least recently used are evicted
+     */
+    public ResultCache(@NonNull File directory, long maxSizeBytes) {
+        if (maxSizeBytes <= 0) throw new IllegalArgumentException("maxSizeBytes must be positive, was " + maxSizeBytes);
+        this.directory = directory;
+        this.maxSizeBytes = maxSizeBytes;
+    }
+
+    /**
+     * @param context The context the layout will be inflated with
+     * @return The results of a previous run with the same key, or null if the layout changed, was never measured or was evicted
+     */
+    @Nullable
+    @WorkerThread
+    public synchronized List<DeterminedOptimisers> get(@NonNull Context context, @NonNull Layout layout, @NonNull MeasurementOptions options) {
+        File file = getFile(context, layout, options);
+        if (file == null || !file.exists()) return null;
+
+        byte[] bytes;
+        try {
+            bytes = readFully(file);
+        } catch (IOException e) {
+            Log.w(TAG, "Could not read cached results of " + layout.getResourceName(), e);
+            return null;
+        }
+
+        try {
+            List<DeterminedOptimisers> optimisers = fromJson(new String(bytes, StandardCharsets.UTF_8));
+            //mark as recently used
+            file.setLastModified(System.currentTimeMillis());
+            return optimisers;
+        } catch (JSONException | RuntimeException e) {
+            Log.w(TAG, "Cached results of " + layout.getResourceName() + " are corrupt, deleting", e);
+            file.delete();
+            return null;
+        }
+    }
+
+    /**
+     * Stores the results, evicting the least recently used results if the cache is now too large
+     *
+     * @param context The context the layout was inflated with
+     */
+    @WorkerThread
+    public synchronized void put(@NonNull Context context,
+                                 @NonNull Layout layout,
+                                 @NonNull MeasurementOptions options,
+                                 @NonNull List<DeterminedOptimisers> optimisers) {
+        File file = getFile(context, layout, options);
+        if (file == null) return;
+
+        byte[] bytes;
+        try {
+            bytes = toJson(optimisers).getBytes(StandardCharsets.UTF_8);
+        } catch (JSONException e) {
+            Log.w(TAG, "Could not serialise results of " + layout.getResourceName() + ", not caching them", e);
+            return;
+        }
+
+        if (!directory.exists() && !directory.mkdirs()) {
+            Log.w(TAG, "Could not create " + directory);
+            return;
+        }
+        try (OutputStream outputStream = new FileOutputStream(file)) {
+            outputStream.write(bytes);
+        } catch (IOException e) {
+            Log.w(TAG, "Could not cache results of " + layout.getResourceName(), e);
+            file.delete();
+            return;
+        }
+
+        trimToSize();
+    }
+
+    /**
+     * Deletes all cached results of the layout, so it is measured again on the next run
+     */
+    public synchronized void invalidate(@NonNull Layout layout) {
+        String prefix = layout.getResourceName() + "-";
+        for (File file : listFiles()) {
+            if (file.getName().startsWith(prefix)) file.delete();
+        }
+    }
+
+    /**
+     * Deletes all cached results
+     */
+    public synchronized void invalidateAll() {
+        for (File file : listFiles()) {
+            file.delete();
+        }
+    }
+
+    private void trimToSize() {
+        //results stored in older formats are never read again
+        File[] stale = directory.listFiles((dir, name) -> !name.endsWith(FILE_EXTENSION));
+        if (stale != null) {
+            for (File file : stale) file.delete();
+        }
+
+        File[] files = listFiles();
+        long size = 0;
+        for (File file : files) {
+            size += file.length();
+        }
+        if (size <= maxSizeBytes) return;
+
+        Arrays.sort(files, (o1, o2) -> Long.compare(o1.lastModified(), o2.lastModified()));
+        for (File file : files) {
+            if (size <= maxSizeBytes) break;
+            long length = file.length();
+            if (file.delete()) size -= length;
+        }
+    }
+
+    @NonNull
+    private File[] listFiles() {
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(FILE_EXTENSION));
+        return files == null ? new File[0] : files;
+    }
+
+    /**
+     * @return The file the results are stored in, or null if the layout's XML could not be read
+     */
+    @Nullable
+    private File getFile(@NonNull Context context, @NonNull Layout layout, @NonNull MeasurementOptions options) {
+        String key;
+        try {
+            key = toHex(hashKey(context, layout, options));
+        } catch (IOException | Resources.NotFoundException e) {
+            Log.w(TAG, "Could not read " + layout.getResourceName() + ", not caching it", e);
+            return null;
+        }
+        return new File(directory, layout.getResourceName() + "-" + key + FILE_EXTENSION);
+    }
+
+    /**
+     * The version the app ships rather than the one this library was compiled against, since Gradle resolves the newest
+     * ConstraintLayout any module depends on
+     *
+     * @return The ConstraintLayout and solver versions, or where ConstraintLayout was loaded from if they aren't packaged,
+     * or when the app was last updated if even that isn't known
+     */
+    @NonNull
+    private static String getConstraintLayoutVersion(@NonNull Context context) {
+        String version = constraintLayoutVersion;
+        if (version != null) return version;
+
+        StringBuilder versions = new StringBuilder();
+        ClassLoader classLoader = ConstraintLayout.class.getClassLoader();
+        for (String file : CONSTRAINT_LAYOUT_VERSION_FILES) {
+            String fileVersion = classLoader == null ? null : readVersionFile(classLoader, file);
+            if (fileVersion != null) versions.append(file).append('=').append(fileVersion).append(';');
+        }
+        if (versions.length() == 0) versions.append(getConstraintLayoutSource(context));
+
+        version = versions.toString();
+        constraintLayoutVersion = version;
+        return version;
+    }
+
+    @Nullable
+    private static String readVersionFile(@NonNull ClassLoader classLoader, @NonNull String file) {
+        try (InputStream inputStream = classLoader.getResourceAsStream(file)) {
+            if (inputStream == null) return null;
+            byte[] buffer = new byte[256];
+            int length = 0;
+            int read;
+            while (length < buffer.length && (read = inputStream.read(buffer, length, buffer.length - length)) != -1) {
+                length += read;
+            }
+            return new String(buffer, 0, length, StandardCharsets.UTF_8).trim();
+        } catch (IOException e) {
+            Log.w(TAG, "Could not read " + file, e);
+            return null;
+        }
+    }
+
+    @NonNull
+    private static String getConstraintLayoutSource(@NonNull Context context) {
+        //on the JVM, e.g. in Robolectric tests, the jar's path contains its version
+        ProtectionDomain protectionDomain = ConstraintLayout.class.getProtectionDomain();
+        CodeSource codeSource = protectionDomain == null ? null : protectionDomain.getCodeSource();
+        if (codeSource != null && codeSource.getLocation() != null) return codeSource.getLocation().toString();
+
+        //Android has no code sources, and any update of the app may have changed ConstraintLayout
+        try {
+            return "updated " + context.getPackageManager().getPackageInfo(context.getPackageName(), 0).lastUpdateTime;
+        } catch (PackageManager.NameNotFoundException e) {
+            return "unknown";
+        }
+    }
+
+    @NonNull
+    private static byte[] hashKey(@NonNull Context context, @NonNull Layout layout, @NonNull MeasurementOptions options) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is always available", e);
+        }
+
+        digest.update((FORMAT_VERSION + "|" + getConstraintLayoutVersion(context) + "|" + Build.FINGERPRINT + "|").getBytes(StandardCharsets.UTF_8));
+        digest.update(layout.getResourceName().getBytes(StandardCharsets.UTF_8));
+
+        //each device configuration may resolve a different version of the layout, e.g. layout-land
+        for (DeviceConfiguration deviceConfiguration : options.getDeviceConfigurations()) {
+            Resources resources = deviceConfiguration.createContext(context).getResources();
+            try (InputStream inputStream = resources.openRawResource(layout.getResource())) {
+                byte[] buffer = new byte[8192];
+                int read;
+                while ((read = inputStream.read(buffer)) != -1) {
+                    digest.update(buffer, 0, read);
+                }
+            }
+        }
+
+        //the parcel is only hashed, and the build fingerprint above changes whenever its format could
+        Parcel parcel = Parcel.obtain();
+        try {
+            options.writeToParcel(parcel, 0);
+            digest.update(parcel.marshall());
+        } finally {
+            parcel.recycle();
+        }
+        return digest.digest();
+    }
+
+    @NonNull
+    private static String toJson(@NonNull List<DeterminedOptimisers> optimisers) throws JSONException {
+        JSONArray array = new JSONArray();
+        for (DeterminedOptimisers optimiser : optimisers) {
+            array.put(optimiser.toJson());
+        }
+        return new JSONObject()
+                .put("version", FORMAT_VERSION)
+                .put("results", array)
+                .toString();
+    }
+
+    @NonNull
+    private static List<DeterminedOptimisers> fromJson(@NonNull String json) throws JSONException {
+        JSONObject root = new JSONObject(json);
+        int version = root.getInt("version");
+        if (version != FORMAT_VERSION) throw new JSONException("Unsupported format version " + version);
+
+        JSONArray array = root.getJSONArray("results");
+        List<DeterminedOptimisers> optimisers = new ArrayList<>(array.length());
+        for (int i = 0; i < array.length(); i++) {
+            optimisers.add(DeterminedOptimisers.fromJson(array.getJSONObject(i)));
+        }
+        return optimisers;
+    }
+
+    @NonNull
+    private static byte[] readFully(@NonNull File file) throws IOException {
+        byte[] bytes = new byte[(int) file.length()];
+        try (InputStream inputStream = new FileInputStream(file)) {
+            int offset = 0;
+            while (offset < bytes.length) {
+                int read = inputStream.read(bytes, offset, bytes.length - offset);
+                if (read == -1) throw new IOException("Unexpected end of " + file);
+                offset += read;
+            }
+        }
+        return bytes;
+    }
+
+    @NonNull
+    private static String toHex(@NonNull byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+}
@@ -0,0 +1,111 @@
+package com.github.maciejkaznowski.constraintlayoutoptimizer.data.export;
+
+import androidx.annotation.NonNull;
+
+import com.github.maciejkaznowski.constraintlayoutoptimizer.Layout;
+import com.github.maciejkaznowski.constraintlayoutoptimizer.data.measurer.DeterminedOptimisers;
+import com.github.maciejkaznowski.constraintlayoutoptimizer.data.measurer.MeasurePhase;
+import com.github.maciejkaznowski.constraintlayoutoptimizer.data.measurer.OptimiserResult;
+import com.github.maciejkaznowski.constraintlayoutoptimizer.data.measurer.SolverCounter;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Locale;
+
+/**
+ * Writes one CSV row per optimisation level of every ConstraintLayout, with a header row first. All durations are in ns.
+ * <p>
+ * The median allocated bytes and solver counters are -1 when they weren't measured. Raw samples, when included, are written space separated in the last column so every row has the same number of columns.
+ */
+public class CsvExporter extends ResultExporter {
+
+    private boolean headerWritten = false;
+
+    public CsvExporter(@NonNull Writer writer, boolean includeSamples) {
+        super(writer, includeSamples);
+    }
+
+    @Override
+    protected void writeRecord(@NonNull Layout layout, int index, @NonNull DeterminedOptimisers optimisers) throws IOException {
+        if (!headerWritten) {
+            writeHeader();
+            headerWritten = true;
+        }
+
+        String prefix = escape(layout.getResourceName()) + "," +
+                index + "," +
+                escape(optimisers.getDeviceConfiguration().getDescription()) + ",";
+        for (OptimiserResult result : optimisers.getResults()) {
+            writeRow(prefix, "warm", optimisers, result);
+        }
+        OptimiserResult[] coldResults = optimisers.getColdResults();
+        if (coldResults != null) {
+            for (OptimiserResult result : coldResults) {
+                writeRow(prefix, "cold", optimisers, result);
+            }
+        }
+    }
+
+    private void writeHeader() throws IOException {
+        StringBuilder header = new StringBuilder("layout,index,device_configuration,kind,level,current,recommended,eliminated," +
+                "sample_count,min,max,median,average,p90,p99,interquartile_range,variance,p_value," +
+                "gc_sample_count,rejected_sample_count,gc_time_ms,median_allocated_bytes");
+        for (MeasurePhase phase : MeasurePhase.values()) {
+            header.append(',').append(phase.name().toLowerCase(Locale.US)).append("_median");
+        }
+        for (SolverCounter counter : SolverCounter.values()) {
+            header.append(',').append(counter.name().toLowerCase(Locale.US));
+        }
+        if (includeSamples) header.append(",samples");
+        writer.write(header.append('\n').toString());
+    }
+
+    private void writeRow(@NonNull String prefix,
+                          @NonNull String kind,
+                          @NonNull DeterminedOptimisers optimisers,
+                          @NonNull OptimiserResult result) throws IOException {
+        StringBuilder row = new StringBuilder(prefix)
+                .append(kind).append(',')
+                .append(result.getOptimizer()).append(',')
+                .append(result.getOptimizer() == optimisers.getCurrent().getOptimizer()).append(',')
+                .append(result.getOptimizer() == optimisers.getRecommended().getOptimizer()).append(',')
+                .append(result.isEliminated()).append(',')
+                .append(result.getSampleCount()).append(',')
+                .append(result.getMinDuration()).append(',')
+                .append(result.getMaxDuration()).append(',')
+                .append(result.getMedianDuration()).append(',')
+                .append(result.getAverageDuration()).append(',')
+                .append(result.getP90Duration()).append(',')
+                .append(result.getP99Duration()).append(',')
+                .append(result.getInterquartileRange()).append(',')
+                .append(result.getVariance()).append(',')
+                .append(result.getPValue()).append(',')
+                .append(result.getGcSampleCount()).append(',')
+                .append(result.getRejectedSampleCount()).append(',')
+                .append(result.getGcTimeMillis()).append(',')
+                .append(result.getMedianAllocatedBytes());
+        for (MeasurePhase phase : MeasurePhase.values()) {
+            row.append(',').append(result.getPhaseMedianDuration(phase));
+        }
+        for (SolverCounter counter : SolverCounter.values()) {
+            row.append(',').append(result.getSolverCounter(counter));
+        }
+        if (includeSamples) {
+            row.append(',');
+            long[] samples = result.getSamples();
+            if (samples != null) {
+                for (int i = 0; i < samples.length; i++) {
+                    if (i > 0) row.append(' ');
+                    row.append(samples[i]);
+                }
+            }
+        }
+        writer.write(row.append('\n').toString());
+    }
+
+    @NonNull
+    private static String escape(@NonNull String value) {
+        if (value.indexOf(',') == -1 && value.indexOf('"') == -1 && value.indexOf('\n') == -1) return value;
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
@@ -0,0 +1,118 @@
+package com.github.maciejkaznowski.constraintlayoutoptimizer.data.export;
+
+import androidx.annotation.NonNull;
+
+import com.github.maciejkaznowski.constraintlayoutoptimizer.Layout;
+import com.github.maciejkaznowski.constraintlayoutoptimizer.data.measurer.DeterminedOptimisers;
+import com.github.maciejkaznowski.constraintlayoutoptimizer.data.measurer.DeviceConfiguration;
+import com.github.maciejkaznowski.constraintlayoutoptimizer.data.measurer.MeasurePhase;
+import com.github.maciejkaznowski.constraintlayoutoptimizer.data.measurer.OptimiserResult;
+import com.github.maciejkaznowski.constraintlayoutoptimizer.data.measurer.SolverCounter;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Writes one JSON object per line for every ConstraintLayout, see <a href="http://jsonlines.org">jsonlines.org</a>.
+ * All durations are in ns.
+ */
+public class JsonLinesExporter extends ResultExporter {
+
+    public JsonLinesExporter(@NonNull Writer writer, boolean includeSamples) {
+        super(writer, includeSamples);
+    }
+
+    @Override
+    protected void writeRecord(@NonNull Layout layout, int index, @NonNull DeterminedOptimisers optimisers) throws IOException {
+        try {
+            JSONObject record = new JSONObject()
+                    .put("layout", layout.getResourceName())
+                    .put("index", index)
+                    .put("deviceConfiguration", toJson(optimisers.getDeviceConfiguration()))
+                    .put("schedule", optimisers.getSchedule().name())
+                    .put("seed", optimisers.getSeed())
+                    .put("currentLevel", optimisers.getCurrent().getOptimizer())
+                    .put("recommendedLevel", optimisers.getRecommended().getOptimizer())
+                    .put("ranking", optimisers.getRanking().name())
+                    .put("results", toJson(optimisers.getResults()));
+            OptimiserResult[] coldResults = optimisers.getColdResults();
+            if (coldResults != null) record.put("coldResults", toJson(coldResults));
+            String constraintLayoutId = optimisers.getConstraintLayoutId();
+            if (constraintLayoutId != null) record.put("constraintLayoutId", constraintLayoutId);
+            String layoutFile = optimisers.getLayoutFile();
+            if (layoutFile != null) record.put("layoutFile", layoutFile);
+
+            //JSONObject never writes line breaks, so each record stays on one line
+            writer.write(record.toString());
+            writer.write('\n');
+        } catch (JSONException e) {
+            throw new IOException("Could not export " + layout.getResourceName(), e);
+        }
+    }
+
+    @NonNull
+    private static JSONObject toJson(@NonNull DeviceConfiguration deviceConfiguration) throws JSONException {
+        return new JSONObject()
+                .put("widthPx", deviceConfiguration.getWidthPx())
+                .put("heightPx", deviceConfiguration.getHeightPx())
+                .put("densityDpi", deviceConfiguration.getDensityDpi())
+                .put("fontScale", deviceConfiguration.getFontScale())
+                .put("orientation", deviceConfiguration.getOrientation())
+                .put("smallestWidthDp", deviceConfiguration.getSmallestWidthDp())
+                .put("description", deviceConfiguration.getDescription());
+    }
+
+    @NonNull
+    private JSONArray toJson(@NonNull OptimiserResult[] results) throws JSONException {
+        JSONArray array = new JSONArray();
+        for (OptimiserResult result : results) {
+            JSONObject phaseMedians = new JSONObject();
+            for (MeasurePhase phase : MeasurePhase.values()) {
+                phaseMedians.put(phase.name(), result.getPhaseMedianDuration(phase));
+            }
+
+            JSONObject json = new JSONObject()
+                    .put("level", result.getOptimizer())
+                    .put("eliminated", result.isEliminated())
+                    .put("sampleCount", result.getSampleCount())
+                    .put("min", result.getMinDuration())
+                    .put("max", result.getMaxDuration())
+                    .put("median", result.getMedianDuration())
+                    .put("average", result.getAverageDuration())
+                    .put("p90", result.getP90Duration())
+                    .put("p99", result.getP99Duration())
+                    .put("interquartileRange", result.getInterquartileRange())
+                    .put("variance", result.getVariance())
+                    .put("pValue", result.getPValue())
+                    .put("phaseMedians", phaseMedians)
+                    .put("gcSampleCount", result.getGcSampleCount())
+                    .put("rejectedSampleCount", result.getRejectedSampleCount())
+                    .put("gcTimeMs", result.getGcTimeMillis());
+            if (result.hasAllocations()) json.put("medianAllocatedBytes", result.getMedianAllocatedBytes());
+            if (result.hasSolverMetrics()) {
+                JSONObject solverCounters = new JSONObject();
+                for (SolverCounter counter : SolverCounter.values()) {
+                    solverCounters.put(counter.name(), result.getSolverCounter(counter));
+                }
+                json.put("solverCounters", solverCounters).put("solverWork", result.getSolverWork());
+            }
+            long[] samples = result.getSamples();
+            if (includeSamples && samples != null) json.put("samples", toJson(samples));
+            array.put(json);
+        }
+        return array;
+    }
+
+    @NonNull
+    private static JSONArray toJson(@NonNull long[] samples) {
+        JSONArray array = new JSONArray();
+        for (long sample : samples) {
+            array.put(sample);
+        }
+        return array;
+    }
+}
@@ -0,0 +1,57 @@
+package com.github.maciejkaznowski.constraintlayoutoptimizer.data.export;
+
+import androidx.annotation.NonNull;
+
+import com.github.maciejkaznowski.constraintlayoutoptimizer.Layout;
+import com.github.maciejkaznowski.constraintlayoutoptimizer.data.measurer.DeterminedOptimisers;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+
+/**
+ * Streams results to a {@link Writer} as each layout is measured, so memory use doesn't grow with the number of layouts and
+ * an interrupted run still leaves every record written so far.
+ * <p>
+ * Every record is flushed as soon as it has been written. Closing the exporter closes the writer.
+ */
+public abstract class ResultExporter implements Closeable {
+
+    @NonNull protected final Writer writer;
+    protected final boolean includeSamples;
+
+    /**
+     * @param writer         Where records are written to
+     * @param includeSamples Whether to write the raw samples of every level. Results only have samples when measured with
+     *                       {@link com.github.maciejkaznowski.constraintlayoutoptimizer.data.measurer.MeasurementOptions#keepSamples(boolean)}
+     */
+    protected ResultExporter(@NonNull Writer writer, boolean includeSamples) {
+        this.writer = writer;
+        this.includeSamples = includeSamples;
+    }
+
+    /**
+     * Writes a record for each ConstraintLayout of the layout
+     *
+     * @param optimisers The results of the layout, as returned by {@link DeterminedOptimisers#fromLayout}
+     */
+    public void write(@NonNull Layout layout, @NonNull List<DeterminedOptimisers> optimisers) throws IOException {
+        int[] indices = DeterminedOptimisers.getIndicesWithinConfiguration(optimisers);
+        for (int i = 0; i < indices.length; i++) {
+            writeRecord(layout, indices[i], optimisers.get(i));
+        }
+        writer.flush();
+    }
+
+    /**
+     * @param index The index of the ConstraintLayout within the layout, for its device configuration, see
+     *              {@link DeterminedOptimisers#getIndicesWithinConfiguration(List)}
+     */
+    protected abstract void writeRecord(@NonNull Layout layout, int index, @NonNull DeterminedOptimisers optimisers) throws IOException;
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+}
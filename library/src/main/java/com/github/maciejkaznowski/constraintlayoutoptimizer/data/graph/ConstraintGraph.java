@@ -0,0 +1,276 @@
+package com.github.maciejkaznowski.constraintlayoutoptimizer.data.graph;
+
+import android.content.res.Resources;
+import android.view.View;
+import android.view.ViewGroup;
+
+import androidx.annotation.NonNull;
+import androidx.constraintlayout.widget.Barrier;
+import androidx.constraintlayout.widget.ConstraintLayout;
+import androidx.constraintlayout.widget.Guideline;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Describes the constraints of a measured ConstraintLayout as JSON, so the solver can be benchmarked on a plain JVM without any
+ * Android views, see the solver-benchmark module.
+ * <p>
+ * Children are described with the sizes they were measured with, so wrap_content children become fixed size widgets and the
+ * solver never has to measure a view. Match constraint children which wrap their content also carry their wrap_content size,
+ * which the solver keeps them within. Start and end constraints and margins are resolved to left and right for the layout
+ * direction of the ConstraintLayout. Circular constraints aren't described.
+ */
+public class ConstraintGraph {
+
+    public static final int FORMAT_VERSION = 2;
+
+    private static final int SOLVER_BARRIER_LEFT = 0;
+    private static final int SOLVER_BARRIER_RIGHT = 1;
+    private static final int SOLVER_BARRIER_TOP = 2;
+    private static final int SOLVER_BARRIER_BOTTOM = 3;
+
+    private ConstraintGraph() {
+    }
+
+    /**
+     * @param constraintLayout A ConstraintLayout which has been measured and laid out
+     * @param name             Identifies the graph in the benchmark's output, e.g. the layout's resource name
+     */
+    @NonNull
+    public static JSONObject toJson(@NonNull ConstraintLayout constraintLayout, @NonNull String name) throws JSONException {
+        boolean rtl = constraintLayout.getLayoutDirection() == View.LAYOUT_DIRECTION_RTL;
+        JSONArray widgets = new JSONArray();
+        for (int i = 0; i < constraintLayout.getChildCount(); i++) {
+            View child = constraintLayout.getChildAt(i);
+            ViewGroup.LayoutParams params = child.getLayoutParams();
+            if (!(params instanceof ConstraintLayout.LayoutParams)) continue;
+            widgets.put(toJson(constraintLayout, child, i, (ConstraintLayout.LayoutParams) params, rtl));
+        }
+
+        return new JSONObject()
+                .put("version", FORMAT_VERSION)
+                .put("name", name)
+                .put("width", constraintLayout.getMeasuredWidth())
+                .put("height", constraintLayout.getMeasuredHeight())
+                .put("currentLevel", constraintLayout.getOptimizationLevel())
+                .put("widgets", widgets);
+    }
+
+    /**
+     * Writes the graph on a single line, so several graphs can be written to one JSON Lines file
+     */
+    public static void write(@NonNull ConstraintLayout constraintLayout, @NonNull String name, @NonNull Writer writer) throws IOException {
+        try {
+            writer.write(toJson(constraintLayout, name).toString());
+            writer.write('\n');
+        } catch (JSONException e) {
+            throw new IOException("Could not describe " + name, e);
+        }
+    }
+
+    @NonNull
+    private static JSONObject toJson(@NonNull ConstraintLayout constraintLayout,
+                                     @NonNull View child,
+                                     int index,
+                                     @NonNull ConstraintLayout.LayoutParams params,
+                                     boolean rtl) throws JSONException {
+        JSONObject widget = new JSONObject()
+                .put("id", child.getId())
+                .put("name", getName(child, index))
+                .put("visibility", child.getVisibility());
+
+        if (child instanceof Guideline) {
+            return widget.put("type", "guideline")
+                    .put("orientation", params.orientation)
+                    .put("guideBegin", params.guideBegin)
+                    .put("guideEnd", params.guideEnd)
+                    .put("guidePercent", params.guidePercent);
+        }
+
+        if (child instanceof Barrier) {
+            Barrier barrier = (Barrier) child;
+            JSONArray referenced = new JSONArray();
+            int[] referencedIds = barrier.getReferencedIds();
+            if (referencedIds != null) {
+                for (int id : referencedIds) referenced.put(id);
+            }
+            widget.put("type", "barrier")
+                    .put("barrierType", toSolverBarrierType(barrier.getType(), rtl))
+                    .put("allowsGoneWidget", barrier.allowsGoneWidget())
+                    .put("referenced", referenced);
+        } else {
+            widget.put("type", "widget");
+        }
+
+        int measuredWidth = child.getMeasuredWidth();
+        int measuredHeight = child.getMeasuredHeight();
+        int wrapWidth = measuredWidth;
+        int wrapHeight = measuredHeight;
+        if (isMatchConstraintWrap(params.width, params.matchConstraintDefaultWidth)
+                || isMatchConstraintWrap(params.height, params.matchConstraintDefaultHeight)) {
+            measureWrapContent(constraintLayout, child);
+            wrapWidth = child.getMeasuredWidth();
+            wrapHeight = child.getMeasuredHeight();
+            //restore the size the child was laid out with
+            child.measure(View.MeasureSpec.makeMeasureSpec(measuredWidth, View.MeasureSpec.EXACTLY),
+                    View.MeasureSpec.makeMeasureSpec(measuredHeight, View.MeasureSpec.EXACTLY));
+        }
+
+        widget.put("width", toJson(params.width, measuredWidth, wrapWidth, params.matchConstraintDefaultWidth,
+                params.matchConstraintMinWidth, params.matchConstraintMaxWidth, params.matchConstraintPercentWidth))
+                .put("height", toJson(params.height, measuredHeight, wrapHeight, params.matchConstraintDefaultHeight,
+                        params.matchConstraintMinHeight, params.matchConstraintMaxHeight, params.matchConstraintPercentHeight))
+                .put("horizontalBias", params.horizontalBias)
+                .put("verticalBias", params.verticalBias)
+                .put("horizontalChainStyle", params.horizontalChainStyle)
+                .put("verticalChainStyle", params.verticalChainStyle)
+                .put("horizontalWeight", params.horizontalWeight)
+                .put("verticalWeight", params.verticalWeight)
+                .put("baseline", child.getBaseline())
+                .put("connections", getConnections(params, rtl));
+        if (params.dimensionRatio != null) widget.put("dimensionRatio", params.dimensionRatio);
+        return widget;
+    }
+
+    private static boolean isMatchConstraintWrap(int param, int matchDefault) {
+        return param == ConstraintLayout.LayoutParams.MATCH_CONSTRAINT
+                && matchDefault == ConstraintLayout.LayoutParams.MATCH_CONSTRAINT_WRAP;
+    }
+
+    /**
+     * Measures the child as wrap_content within the ConstraintLayout's padding, as ConstraintLayout does before solving a match
+     * constraint dimension which wraps its content
+     */
+    private static void measureWrapContent(@NonNull ConstraintLayout constraintLayout, @NonNull View child) {
+        int width = constraintLayout.getMeasuredWidth() - constraintLayout.getPaddingLeft() - constraintLayout.getPaddingRight();
+        int height = constraintLayout.getMeasuredHeight() - constraintLayout.getPaddingTop() - constraintLayout.getPaddingBottom();
+        child.measure(View.MeasureSpec.makeMeasureSpec(Math.max(0, width), View.MeasureSpec.AT_MOST),
+                View.MeasureSpec.makeMeasureSpec(Math.max(0, height), View.MeasureSpec.AT_MOST));
+    }
+
+    /**
+     * @param param    The width or height of the layout params
+     * @param measured The measured size, which is fixed in the graph unless the dimension is a match constraint or match parent
+     * @param wrap     The wrap_content size, only described for match constraint dimensions which wrap their content
+     */
+    @NonNull
+    private static JSONObject toJson(int param, int measured, int wrap, int matchDefault, int min, int max, float percent) throws JSONException {
+        String behaviour;
+        if (param == ConstraintLayout.LayoutParams.MATCH_CONSTRAINT) {
+            behaviour = "MATCH_CONSTRAINT";
+        } else if (param == ViewGroup.LayoutParams.MATCH_PARENT) {
+            behaviour = "MATCH_PARENT";
+        } else {
+            behaviour = "FIXED";
+        }
+        JSONObject dimension = new JSONObject()
+                .put("behaviour", behaviour)
+                .put("size", measured)
+                .put("matchDefault", matchDefault)
+                .put("min", min)
+                .put("max", max)
+                .put("percent", percent);
+        if (isMatchConstraintWrap(param, matchDefault)) dimension.put("wrapSize", wrap);
+        return dimension;
+    }
+
+    /**
+     * Start and end constraints take precedence over left and right ones, as in ConstraintLayout. The margins are already
+     * resolved for the layout direction, gone start and end margins are resolved here the same way as the constraints
+     */
+    @NonNull
+    private static JSONArray getConnections(@NonNull ConstraintLayout.LayoutParams params, boolean rtl) throws JSONException {
+        int leftToLeft = params.leftToLeft;
+        int leftToRight = params.leftToRight;
+        int rightToLeft = params.rightToLeft;
+        int rightToRight = params.rightToRight;
+
+        //start and end constraints resolved to sides, in RTL the start side is the right side
+        int relativeLeftToLeft = rtl ? params.endToEnd : params.startToStart;
+        int relativeLeftToRight = rtl ? params.endToStart : params.startToEnd;
+        int relativeRightToLeft = rtl ? params.startToEnd : params.endToStart;
+        int relativeRightToRight = rtl ? params.startToStart : params.endToEnd;
+        if (relativeLeftToLeft != ConstraintLayout.LayoutParams.UNSET || relativeLeftToRight != ConstraintLayout.LayoutParams.UNSET) {
+            leftToLeft = relativeLeftToLeft;
+            leftToRight = relativeLeftToRight;
+        }
+        if (relativeRightToLeft != ConstraintLayout.LayoutParams.UNSET || relativeRightToRight != ConstraintLayout.LayoutParams.UNSET) {
+            rightToLeft = relativeRightToLeft;
+            rightToRight = relativeRightToRight;
+        }
+
+        int goneLeftMargin = params.goneLeftMargin;
+        int goneRightMargin = params.goneRightMargin;
+        int relativeGoneLeftMargin = rtl ? params.goneEndMargin : params.goneStartMargin;
+        int relativeGoneRightMargin = rtl ? params.goneStartMargin : params.goneEndMargin;
+        if (relativeGoneLeftMargin != ConstraintLayout.LayoutParams.UNSET) goneLeftMargin = relativeGoneLeftMargin;
+        if (relativeGoneRightMargin != ConstraintLayout.LayoutParams.UNSET) goneRightMargin = relativeGoneRightMargin;
+
+        JSONArray connections = new JSONArray();
+        connect(connections, "LEFT", leftToLeft, "LEFT", params.leftMargin, goneLeftMargin);
+        connect(connections, "LEFT", leftToRight, "RIGHT", params.leftMargin, goneLeftMargin);
+        connect(connections, "RIGHT", rightToLeft, "LEFT", params.rightMargin, goneRightMargin);
+        connect(connections, "RIGHT", rightToRight, "RIGHT", params.rightMargin, goneRightMargin);
+        connect(connections, "TOP", params.topToTop, "TOP", params.topMargin, params.goneTopMargin);
+        connect(connections, "TOP", params.topToBottom, "BOTTOM", params.topMargin, params.goneTopMargin);
+        connect(connections, "BOTTOM", params.bottomToTop, "TOP", params.bottomMargin, params.goneBottomMargin);
+        connect(connections, "BOTTOM", params.bottomToBottom, "BOTTOM", params.bottomMargin, params.goneBottomMargin);
+        connect(connections, "BASELINE", params.baselineToBaseline, "BASELINE", 0, ConstraintLayout.LayoutParams.UNSET);
+        return connections;
+    }
+
+    /**
+     * @param target     The id of the target view, or {@link ConstraintLayout.LayoutParams#PARENT_ID} for the ConstraintLayout itself
+     * @param goneMargin The margin used instead when the target is gone, or {@link ConstraintLayout.LayoutParams#UNSET}
+     */
+    private static void connect(@NonNull JSONArray connections,
+                                @NonNull String from,
+                                int target,
+                                @NonNull String to,
+                                int margin,
+                                int goneMargin) throws JSONException {
+        if (target == ConstraintLayout.LayoutParams.UNSET) return;
+        connections.put(new JSONObject()
+                .put("from", from)
+                .put("target", target)
+                .put("to", to)
+                .put("margin", margin)
+                .put("goneMargin", goneMargin));
+    }
+
+    private static int toSolverBarrierType(int type, boolean rtl) {
+        switch (type) {
+            case Barrier.LEFT:
+                return SOLVER_BARRIER_LEFT;
+            case Barrier.RIGHT:
+                return SOLVER_BARRIER_RIGHT;
+            case Barrier.TOP:
+                return SOLVER_BARRIER_TOP;
+            case Barrier.BOTTOM:
+                return SOLVER_BARRIER_BOTTOM;
+            case Barrier.START:
+                return rtl ? SOLVER_BARRIER_RIGHT : SOLVER_BARRIER_LEFT;
+            case Barrier.END:
+                return rtl ? SOLVER_BARRIER_LEFT : SOLVER_BARRIER_RIGHT;
+            default:
+                throw new IllegalArgumentException("Unknown barrier type " + type);
+        }
+    }
+
+    @NonNull
+    private static String getName(@NonNull View child, int index) {
+        if (child.getId() != View.NO_ID) {
+            try {
+                return child.getResources().getResourceEntryName(child.getId());
+            } catch (Resources.NotFoundException e) {
+                //generated ids have no name
+            }
+        }
+        return child.getClass().getSimpleName() + "#" + index;
+    }
+}
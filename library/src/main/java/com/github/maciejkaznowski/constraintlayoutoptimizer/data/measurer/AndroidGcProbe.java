@@ -0,0 +1,79 @@
+package com.github.maciejkaznowski.constraintlayoutoptimizer.data.measurer;
+
+import android.os.Build;
+import android.os.Debug;
+
+import androidx.annotation.Nullable;
+
+/**
+ * Probes the Android runtime through {@link Debug}. GC statistics need API 23, allocations are counted with
+ * {@link Debug#startAllocCounting()}, which slows down allocation a little so it is only enabled when allocations are measured.
+ */
+@SuppressWarnings("deprecation")
+class AndroidGcProbe extends GcProbe {
+
+    private static final String GC_COUNT = "art.gc.gc-count";
+    private static final String GC_TIME = "art.gc.gc-time";
+
+    /**
+     * Allocation counting is global, so it is only stopped once no probe needs it any more
+     */
+    private static int allocationCounters = 0;
+
+    private final boolean gcStatsAvailable;
+    private final boolean measureAllocations;
+    private boolean closed = false;
+
+    @Nullable
+    static GcProbe create(boolean measureAllocations, boolean rejecting) {
+        boolean gcStatsAvailable = Build.VERSION.SDK_INT >= Build.VERSION_CODES.M && Debug.getRuntimeStat(GC_COUNT) != null;
+        if (!gcStatsAvailable && !measureAllocations) return null;
+        return new AndroidGcProbe(gcStatsAvailable, measureAllocations, rejecting);
+    }
+
+    private AndroidGcProbe(boolean gcStatsAvailable, boolean measureAllocations, boolean rejecting) {
+        super(rejecting);
+        this.gcStatsAvailable = gcStatsAvailable;
+        this.measureAllocations = measureAllocations;
+        if (measureAllocations) startAllocCounting();
+    }
+
+    private static synchronized void startAllocCounting() {
+        if (allocationCounters++ == 0) Debug.startAllocCounting();
+    }
+
+    private static synchronized void stopAllocCounting() {
+        if (--allocationCounters == 0) Debug.stopAllocCounting();
+    }
+
+    @Override
+    long readGcCount() {
+        return gcStatsAvailable ? readRuntimeStat(GC_COUNT) : UNAVAILABLE;
+    }
+
+    @Override
+    long readGcTimeMillis() {
+        return gcStatsAvailable ? readRuntimeStat(GC_TIME) : UNAVAILABLE;
+    }
+
+    @Override
+    long readAllocatedBytes() {
+        return measureAllocations ? Debug.getThreadAllocSize() : UNAVAILABLE;
+    }
+
+    private static long readRuntimeStat(String name) {
+        String value = Debug.getRuntimeStat(name);
+        if (value == null) return UNAVAILABLE;
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            return UNAVAILABLE;
+        }
+    }
+
+    @Override
+    void close() {
+        if (measureAllocations && !closed) stopAllocCounting();
+        closed = true;
+    }
+}
@@ -0,0 +1,116 @@
+package com.github.maciejkaznowski.constraintlayoutoptimizer.data.measurer;
+
+import android.util.SparseArray;
+import android.view.View;
+import android.view.ViewGroup;
+
+import androidx.annotation.NonNull;
+import androidx.constraintlayout.solver.widgets.Optimizer;
+import androidx.constraintlayout.widget.Barrier;
+import androidx.constraintlayout.widget.ConstraintLayout;
+
+import java.util.Arrays;
+
+/**
+ * Finds which optimisation flags can affect a ConstraintLayout, from the {@link ConstraintLayout.LayoutParams} of its children.
+ * <p>
+ * Each flag other than {@link Optimizer#OPTIMIZATION_DIRECT} only optimises one feature: barriers, chains, match constraint
+ * dimensions or dimension ratios. A flag for a feature the layout doesn't use makes no difference, so only levels made up of
+ * relevant flags need to be measured. The analysis errs on the side of keeping a flag, e.g. any view with a zero width counts as
+ * a match constraint dimension.
+ */
+class ConstraintFeatures {
+
+    private static final int ALL_FLAGS = Optimizer.OPTIMIZATION_DIRECT | Optimizer.OPTIMIZATION_BARRIER | Optimizer.OPTIMIZATION_CHAIN
+            | Optimizer.OPTIMIZATION_DIMENSIONS | Optimizer.OPTIMIZATION_RATIO;
+
+    private ConstraintFeatures() {
+    }
+
+    /**
+     * @return The bitwise or of the optimisation flags which can affect the ConstraintLayout, always including {@link Optimizer#OPTIMIZATION_DIRECT}
+     */
+    static int getRelevantFlags(@NonNull ConstraintLayout constraintLayout) {
+        int childCount = constraintLayout.getChildCount();
+        SparseArray<ConstraintLayout.LayoutParams> paramsById = new SparseArray<>(childCount);
+        for (int i = 0; i < childCount; i++) {
+            View child = constraintLayout.getChildAt(i);
+            ViewGroup.LayoutParams params = child.getLayoutParams();
+            //children added without ConstraintLayout params can't be analysed, so keep every flag
+            if (!(params instanceof ConstraintLayout.LayoutParams)) return ALL_FLAGS;
+            if (child.getId() != View.NO_ID) paramsById.put(child.getId(), (ConstraintLayout.LayoutParams) params);
+        }
+
+        int flags = Optimizer.OPTIMIZATION_DIRECT;
+        for (int i = 0; i < childCount; i++) {
+            View child = constraintLayout.getChildAt(i);
+            ConstraintLayout.LayoutParams params = (ConstraintLayout.LayoutParams) child.getLayoutParams();
+
+            if (child instanceof Barrier) flags |= Optimizer.OPTIMIZATION_BARRIER;
+            if (params.width == ConstraintLayout.LayoutParams.MATCH_CONSTRAINT || params.height == ConstraintLayout.LayoutParams.MATCH_CONSTRAINT) {
+                flags |= Optimizer.OPTIMIZATION_DIMENSIONS;
+            }
+            if (params.dimensionRatio != null && !params.dimensionRatio.isEmpty()) flags |= Optimizer.OPTIMIZATION_RATIO;
+            if (isChained(child.getId(), params, paramsById)) flags |= Optimizer.OPTIMIZATION_CHAIN;
+        }
+        return flags;
+    }
+
+    /**
+     * @param relevantFlags The flags which can affect the layout, see {@link #getRelevantFlags(ConstraintLayout)}
+     * @param currentLevel  The level the layout was inflated with, which is always a candidate so it can be compared against
+     * @return Every level made up of only relevant flags, plus the current level, in ascending order
+     */
+    @NonNull
+    static int[] getCandidateLevels(int relevantFlags, int currentLevel) {
+        boolean currentIsCandidate = (currentLevel & ~relevantFlags) == 0;
+        int count = 1 << Integer.bitCount(relevantFlags);
+        int[] levels = new int[currentIsCandidate ? count : count + 1];
+
+        int index = 0;
+        for (int level = 0; level <= ALL_FLAGS; level++) {
+            if ((level & ~relevantFlags) == 0) levels[index++] = level;
+        }
+        if (!currentIsCandidate) {
+            levels[index] = currentLevel;
+            Arrays.sort(levels);
+        }
+        return levels;
+    }
+
+    /**
+     * A view is in a chain when one of its sides is constrained to the opposite side of another view, which is constrained back to it.
+     * Start and end map to left or right depending on the layout direction, so a chain may mix start/end with left/right
+     * constraints, and any pair of opposite side horizontal constraints counts
+     */
+    private static boolean isChained(int id,
+                                     @NonNull ConstraintLayout.LayoutParams params,
+                                     @NonNull SparseArray<ConstraintLayout.LayoutParams> paramsById) {
+        if (id == View.NO_ID) return false;
+
+        for (int target : getHorizontalLinks(params)) {
+            ConstraintLayout.LayoutParams next = paramsById.get(target);
+            if (next != null && contains(getHorizontalLinks(next), id)) return true;
+        }
+        ConstraintLayout.LayoutParams next = paramsById.get(params.bottomToTop);
+        if (next != null && next.topToBottom == id) return true;
+        next = paramsById.get(params.topToBottom);
+        return next != null && next.bottomToTop == id;
+    }
+
+    /**
+     * @return The ids of the views whose opposite horizontal side the view is constrained to, unset constraints are
+     * {@link ConstraintLayout.LayoutParams#UNSET}
+     */
+    @NonNull
+    private static int[] getHorizontalLinks(@NonNull ConstraintLayout.LayoutParams params) {
+        return new int[]{params.leftToRight, params.rightToLeft, params.startToEnd, params.endToStart};
+    }
+
+    private static boolean contains(@NonNull int[] ids, int id) {
+        for (int candidate : ids) {
+            if (candidate == id) return true;
+        }
+        return false;
+    }
+}
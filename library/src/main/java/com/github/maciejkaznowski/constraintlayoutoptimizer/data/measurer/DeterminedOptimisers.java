@@ -1,19 +1,28 @@
 package com.github.maciejkaznowski.constraintlayoutoptimizer.data.measurer;
 
 import android.content.Context;
+import android.content.res.Resources;
 import android.os.Parcel;
 import android.os.Parcelable;
 import android.util.Log;
+import android.util.TypedValue;
+import android.view.View;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.constraintlayout.widget.ConstraintLayout;
 
 import com.github.maciejkaznowski.constraintlayoutoptimizer.Layout;
 
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 public class DeterminedOptimisers implements Parcelable {
 
@@ -24,7 +33,20 @@ public class DeterminedOptimisers implements Parcelable {
     @NonNull private final OptimiserResult bestByMax;
     @NonNull private final OptimiserResult bestByMean;
     @NonNull private final OptimiserResult bestByAverage;
+    @NonNull private final OptimiserResult recommended;
+    @Nullable private final OptimiserResult bestByAllocations;
+    @Nullable private final OptimiserResult bestBySolverWork;
     @NonNull private final OptimiserResult[] results;
+    @NonNull private final OptimiserResult[] bestByPhase;
+    @Nullable private final OptimiserResult coldCurrent;
+    @Nullable private final OptimiserResult coldBestByMean;
+    @Nullable private final OptimiserResult[] coldResults;
+    @NonNull private final DeviceConfiguration deviceConfiguration;
+    @NonNull private final MeasurementOptions.Schedule schedule;
+    @NonNull private final MeasurementOptions.Ranking ranking;
+    private final long seed;
+    @Nullable private final String constraintLayoutId;
+    @Nullable private final String layoutFile;
 
     /**
      * @param context The context used to inflate the layout resource
@@ -32,75 +54,352 @@ public class DeterminedOptimisers implements Parcelable {
      * @return A list of DeterminedOptimisers, where each element of the list corresponds to a single ConstraintLayout within the inflated layout
      */
     public static List<DeterminedOptimisers> fromLayout(@NonNull Context context, @NonNull Layout layout) throws ViewMeasureException, ViewLayoutException {
-        List<ConstraintLayout> layouts;
-        try {
-            layouts = layout.getConstraintLayouts(context);
-        } catch (Layout.InflateException e) {
-            Log.w(TAG, "Could not inflate layout " + layout.getResourceName() + ", skipping");
-            return Collections.emptyList();
-        }
-        List<DeterminedOptimisers> optimisers = new ArrayList<>(layouts.size());
-        for (int i = 0; i < layouts.size(); i++) {
-            ConstraintLayout constraintLayout = layouts.get(i);
+        return fromLayout(context, layout, new MeasurementOptions());
+    }
+
+    /**
+     * @param context The context used to inflate the layout resource
+     * @param layout  The layout which will be inflated
+     * @param options How each optimisation level is sampled
+     * @return A list of DeterminedOptimisers, where each element of the list corresponds to a single ConstraintLayout within the inflated layout
+     */
+    public static List<DeterminedOptimisers> fromLayout(@NonNull Context context, @NonNull Layout layout, @NonNull MeasurementOptions options) throws ViewMeasureException, ViewLayoutException {
+        return fromLayout(context, layout, options, new MeasureAndLayoutStrategy());
+    }
+
+    /**
+     * @param context  The context used to inflate the layout resource
+     * @param layout   The layout which will be inflated
+     * @param options  How each optimisation level is sampled
+     * @param strategy What each warm sample does to the layout. Cold samples always measure and lay out once
+     * @return A list of DeterminedOptimisers, where each element of the list corresponds to a single ConstraintLayout within the inflated layout
+     */
+    public static List<DeterminedOptimisers> fromLayout(@NonNull Context context,
+                                                        @NonNull Layout layout,
+                                                        @NonNull MeasurementOptions options,
+                                                        @NonNull MeasurementStrategy strategy) throws ViewMeasureException, ViewLayoutException {
+        List<DeterminedOptimisers> optimisers = new ArrayList<>();
+        for (DeviceConfiguration deviceConfiguration : options.getDeviceConfigurations()) {
+            Context configurationContext = deviceConfiguration.createContext(context);
+            String layoutFile = getLayoutFile(configurationContext, layout);
+            List<ConstraintLayout> layouts;
             try {
-                DeterminedOptimisers determinedOptimisers = DeterminedOptimisers.fromConstraintLayout(constraintLayout);
-                optimisers.add(determinedOptimisers);
-            } catch (ViewLayoutException exception) {
-                throw new ViewLayoutException(layout, exception);
-            } catch (ViewMeasureException exception) {
-                throw new ViewMeasureException(layout, exception);
+                layouts = layout.getConstraintLayouts(configurationContext);
+            } catch (Layout.InflateException e) {
+                Log.w(TAG, "Could not inflate layout " + layout.getResourceName() + " for " + deviceConfiguration.getDescription() + ", skipping");
+                continue;
+            }
+            for (int i = 0; i < layouts.size(); i++) {
+                ConstraintLayout constraintLayout = layouts.get(i);
+                try {
+                    long seed = OptimiserPerformanceMeasurer.resolveSeed(options);
+                    int[] levels = OptimiserPerformanceMeasurer.getCandidateLevels(constraintLayout, options);
+                    OptimiserMeasurements measurements = OptimiserPerformanceMeasurer.measureOptimisers(constraintLayout, levels, options, strategy, deviceConfiguration, seed);
+                    OptimiserMeasurements coldMeasurements = measureCold(configurationContext, layout, i, levels, options, deviceConfiguration, seed);
+                    optimisers.add(new DeterminedOptimisers(measurements, coldMeasurements, constraintLayout, deviceConfiguration, options, seed, layoutFile));
+                } catch (ViewLayoutException exception) {
+                    throw new ViewLayoutException(layout, exception);
+                } catch (ViewMeasureException exception) {
+                    throw new ViewMeasureException(layout, exception);
+                }
             }
         }
         return optimisers;
     }
 
+    /**
+     * ConstraintLayouts are numbered separately for each device configuration, since e.g. {@code layout-land} may have a
+     * different number of them. Exports, baselines and the headless layout XML rewriter all identify a ConstraintLayout by
+     * this index, so it must only be calculated here
+     *
+     * @param optimisers The results of a layout, as returned by {@link #fromLayout}
+     * @return The index of each result's ConstraintLayout within the layout inflated for its device configuration, in the
+     * same order as {@code optimisers}
+     */
+    @NonNull
+    public static int[] getIndicesWithinConfiguration(@NonNull List<DeterminedOptimisers> optimisers) {
+        Map<DeviceConfiguration, Integer> counts = new HashMap<>();
+        int[] indices = new int[optimisers.size()];
+        for (int i = 0; i < indices.length; i++) {
+            DeviceConfiguration deviceConfiguration = optimisers.get(i).getDeviceConfiguration();
+            Integer count = counts.get(deviceConfiguration);
+            indices[i] = count == null ? 0 : count;
+            counts.put(deviceConfiguration, indices[i] + 1);
+        }
+        return indices;
+    }
+
     public static DeterminedOptimisers fromConstraintLayout(@NonNull ConstraintLayout constraintLayout) throws ViewLayoutException, ViewMeasureException {
-        OptimiserMetric[][] metrics = OptimiserPerformanceMeasurer.measureOptimisers(constraintLayout);
-        return new DeterminedOptimisers(metrics, constraintLayout);
+        return fromConstraintLayout(constraintLayout, new MeasurementOptions());
     }
 
-    private DeterminedOptimisers(@NonNull OptimiserMetric[][] metrics, @NonNull ConstraintLayout constraintLayout) {
-        this.results = new OptimiserResult[metrics.length];
-        for (int i = 0; i < metrics.length; i++) {
-            OptimiserMetric[] optimiserMetrics = metrics[i];
-            results[i] = new OptimiserResult(optimiserMetrics);
+    /**
+     * The ConstraintLayout is already inflated, so only the viewport size of the first {@link MeasurementOptions#getDeviceConfigurations() device configuration} is used
+     */
+    public static DeterminedOptimisers fromConstraintLayout(@NonNull ConstraintLayout constraintLayout, @NonNull MeasurementOptions options) throws ViewLayoutException, ViewMeasureException {
+        return fromConstraintLayout(constraintLayout, options, new MeasureAndLayoutStrategy());
+    }
+
+    /**
+     * The ConstraintLayout is already inflated, so only the viewport size of the first {@link MeasurementOptions#getDeviceConfigurations() device configuration} is used
+     *
+     * @param strategy What each sample does to the layout, e.g. {@link MeasureLayoutAndDrawStrategy} to include the cost of drawing
+     */
+    public static DeterminedOptimisers fromConstraintLayout(@NonNull ConstraintLayout constraintLayout,
+                                                            @NonNull MeasurementOptions options,
+                                                            @NonNull MeasurementStrategy strategy) throws ViewLayoutException, ViewMeasureException {
+        DeviceConfiguration deviceConfiguration = options.getDeviceConfigurations().get(0);
+        long seed = OptimiserPerformanceMeasurer.resolveSeed(options);
+        int[] levels = OptimiserPerformanceMeasurer.getCandidateLevels(constraintLayout, options);
+        OptimiserMeasurements measurements = OptimiserPerformanceMeasurer.measureOptimisers(constraintLayout, levels, options, strategy, deviceConfiguration, seed);
+        return new DeterminedOptimisers(measurements, null, constraintLayout, deviceConfiguration, options, seed, null);
+    }
+
+    /**
+     * @param context The context with the device configuration applied
+     * @return The path of the layout's version the configuration resolves to, e.g. {@code res/layout-land/main.xml}, or null
+     * if it can't be resolved
+     */
+    @Nullable
+    private static String getLayoutFile(@NonNull Context context, @NonNull Layout layout) {
+        TypedValue value = new TypedValue();
+        try {
+            context.getResources().getValue(layout.getResource(), value, true);
+        } catch (Resources.NotFoundException e) {
+            return null;
         }
+        return value.string == null ? null : value.string.toString();
+    }
 
+    /**
+     * @param context The context with the device configuration applied
+     * @param index   The index of the ConstraintLayout within the layout, as returned by {@link Layout#getConstraintLayouts(Context)}
+     * @param levels  The optimisation levels which were measured warm
+     * @return The cold measurements, or null if cold measurement is disabled or the layout could not be inflated again
+     */
+    @Nullable
+    private static OptimiserMeasurements measureCold(@NonNull Context context,
+                                                     @NonNull Layout layout,
+                                                     int index,
+                                                     @NonNull int[] levels,
+                                                     @NonNull MeasurementOptions options,
+                                                     @NonNull DeviceConfiguration deviceConfiguration,
+                                                     long seed) throws ViewLayoutException, ViewMeasureException {
+        if (options.getColdIterations() == 0) return null;
+        try {
+            return OptimiserPerformanceMeasurer.measureColdOptimisers(() -> layout.getConstraintLayouts(context).get(index), levels, options, deviceConfiguration, seed);
+        } catch (Layout.InflateException e) {
+            Log.w(TAG, "Could not inflate layout " + layout.getResourceName() + " again, skipping cold measurement");
+            return null;
+        }
+    }
+
+    private DeterminedOptimisers(@NonNull OptimiserMeasurements measurements,
+                                 @Nullable OptimiserMeasurements coldMeasurements,
+                                 @NonNull ConstraintLayout constraintLayout,
+                                 @NonNull DeviceConfiguration deviceConfiguration,
+                                 @NonNull MeasurementOptions options,
+                                 long seed,
+                                 @Nullable String layoutFile) {
+        this.deviceConfiguration = deviceConfiguration;
+        this.schedule = options.getSchedule();
+        this.ranking = options.getRanking();
+        this.seed = seed;
+        this.constraintLayoutId = getIdName(constraintLayout);
+        this.layoutFile = layoutFile;
+        int currentLevel = constraintLayout.getOptimizationLevel();
+        this.results = toResults(measurements, currentLevel, options.isKeepingSamples());
+
+        //eliminated optimisers have fewer samples so aren't comparable, but they are always slower than a remaining optimiser
         sortByMin(results);
-        this.bestByMin = results[0];
+        this.bestByMin = firstNotEliminated(results);
 
         sortByMax(results);
-        this.bestByMax = results[0];
+        this.bestByMax = firstNotEliminated(results);
 
         sortByMedian(results);
-        this.bestByMean = results[0];
+        this.bestByMean = firstNotEliminated(results);
+
+        MeasurePhase[] phases = MeasurePhase.values();
+        this.bestByPhase = new OptimiserResult[phases.length];
+        for (MeasurePhase phase : phases) {
+            sortByPhaseMedian(results, phase);
+            bestByPhase[phase.ordinal()] = firstNotEliminated(results);
+        }
 
         sortByAverage(results);
-        this.bestByAverage = results[0];
+        this.bestByAverage = firstNotEliminated(results);
+
+        if (options.isMeasuringAllocations() && results[0].hasAllocations()) {
+            sortByAllocations(results);
+            this.bestByAllocations = firstNotEliminated(results);
+        } else {
+            this.bestByAllocations = null;
+        }
 
+        if (options.isCollectingSolverMetrics() && results[0].hasSolverMetrics()) {
+            sortBySolverWork(results);
+            this.bestBySolverWork = firstNotEliminated(results);
+        } else {
+            this.bestBySolverWork = null;
+        }
+
+        this.current = findResult(results, currentLevel);
+        this.recommended = options.getRanking() == MeasurementOptions.Ranking.SOLVER_WORK && current.hasSolverMetrics()
+                ? findRecommendedBySolverWork(results, current, options)
+                : findRecommended(results, current, options);
+
+        if (coldMeasurements != null) {
+            this.coldResults = toResults(coldMeasurements, currentLevel, options.isKeepingSamples());
+            sortByMedian(coldResults);
+            this.coldBestByMean = coldResults[0];
+            this.coldCurrent = findResult(coldResults, currentLevel);
+        } else {
+            this.coldResults = null;
+            this.coldBestByMean = null;
+            this.coldCurrent = null;
+        }
+    }
+
+    @Nullable
+    private static String getIdName(@NonNull ConstraintLayout constraintLayout) {
+        int id = constraintLayout.getId();
+        if (id == View.NO_ID) return null;
+        try {
+            return constraintLayout.getResources().getResourceEntryName(id);
+        } catch (Resources.NotFoundException e) {
+            //ids generated at runtime have no name
+            return null;
+        }
+    }
+
+    /**
+     * Every level is compared with the current level, so with e.g. 31 levels some would look significantly faster by chance
+     * alone. The p-values are Holm-Bonferroni adjusted for the number of comparisons to prevent that
+     */
+    @NonNull
+    static OptimiserResult[] toResults(@NonNull OptimiserMeasurements measurements, int currentLevel, boolean keepSamples) {
+        SampleBuffer[] buffers = measurements.getBuffers();
+        SampleBuffer current = findBuffer(buffers, currentLevel);
+        double[] pValues = new double[buffers.length - 1];
+        int comparison = 0;
+        for (SampleBuffer buffer : buffers) {
+            if (buffer == current) continue;
+            pValues[comparison++] = Statistics.mannWhitneyPValue(
+                    buffer.getSortedDurations(), buffer.getCount(),
+                    current.getSortedDurations(), current.getCount());
+        }
+        double[] adjustedPValues = Statistics.holmBonferroni(pValues);
+
+        OptimiserResult[] results = new OptimiserResult[buffers.length];
+        comparison = 0;
+        for (int i = 0; i < buffers.length; i++) {
+            SampleBuffer buffer = buffers[i];
+            double pValue = buffer == current ? 1 : adjustedPValues[comparison++];
+            results[i] = new OptimiserResult(buffer, measurements.isEliminated(i), pValue, keepSamples);
+        }
+        return results;
+    }
+
+    @NonNull
+    private static SampleBuffer findBuffer(@NonNull SampleBuffer[] buffers, int optimizationLevel) {
+        for (SampleBuffer buffer : buffers) {
+            if (buffer.getOptimizer() == optimizationLevel) {
+                return buffer;
+            }
+        }
+
+        throw new IllegalStateException("Could not determine the original metric for optimization level " + optimizationLevel);
+    }
+
+    /**
+     * @return The fastest level by median which is significantly faster than {@code current} by at least the minimum effect size,
+     * or {@code current} if there is no such level
+     */
+    @NonNull
+    static OptimiserResult findRecommended(@NonNull OptimiserResult[] results,
+                                                   @NonNull OptimiserResult current,
+                                                   @NonNull MeasurementOptions options) {
+        double maxMedian = current.getMedianDuration() * (1 - options.getMinEffectSize());
+        OptimiserResult recommended = current;
+        for (OptimiserResult result : results) {
+            if (result.isEliminated()) continue;
+            if (result.getPValue() > options.getSignificanceLevel()) continue;
+            if (result.getMedianDuration() > maxMedian) continue;
+            if (result.getMedianDuration() < recommended.getMedianDuration()) recommended = result;
+        }
+        return recommended;
+    }
+
+    /**
+     * @return The level doing the least solver work, by at least the minimum effect size less than {@code current}, or
+     * {@code current} if there is no such level. Levels doing the same work are ranked by median duration
+     */
+    @NonNull
+    private static OptimiserResult findRecommendedBySolverWork(@NonNull OptimiserResult[] results,
+                                                               @NonNull OptimiserResult current,
+                                                               @NonNull MeasurementOptions options) {
+        double maxWork = current.getSolverWork() * (1 - options.getMinEffectSize());
+        OptimiserResult recommended = current;
         for (OptimiserResult result : results) {
-            if (result.getOptimizer() == constraintLayout.getOptimizationLevel()) {
-                this.current = result;
-                return;
+            if (result.isEliminated()) continue;
+            if (result.getSolverWork() > maxWork) continue;
+            if (recommended == current
+                    || result.getSolverWork() < recommended.getSolverWork()
+                    || (result.getSolverWork() == recommended.getSolverWork() && result.getMedianDuration() < recommended.getMedianDuration())) {
+                recommended = result;
             }
         }
+        return recommended;
+    }
+
+    @NonNull
+    private static OptimiserResult findResult(@NonNull OptimiserResult[] results, int optimizationLevel) {
+        for (OptimiserResult result : results) {
+            if (result.getOptimizer() == optimizationLevel) {
+                return result;
+            }
+        }
+
+        throw new IllegalStateException("Could not determine the original metric for optimization level " + optimizationLevel);
+    }
+
+    @NonNull
+    private static OptimiserResult firstNotEliminated(@NonNull OptimiserResult[] results) {
+        for (OptimiserResult result : results) {
+            if (!result.isEliminated()) return result;
+        }
+        return results[0];
+    }
 
-        throw new IllegalStateException("Could not determine the original metric for optimization level " + constraintLayout.getOptimizationLevel());
+    private static void sortByPhaseMedian(OptimiserResult[] results, MeasurePhase phase) {
+        Arrays.sort(results, (o1, o2) -> Double.compare(o1.getPhaseMedianDuration(phase), o2.getPhaseMedianDuration(phase)));
     }
 
-    private void sortByAverage(OptimiserResult[] results) {
+    private static void sortBySolverWork(OptimiserResult[] results) {
+        Arrays.sort(results, (o1, o2) -> {
+            int byWork = Double.compare(o1.getSolverWork(), o2.getSolverWork());
+            return byWork != 0 ? byWork : Double.compare(o1.getMedianDuration(), o2.getMedianDuration());
+        });
+    }
+
+    private static void sortByAllocations(OptimiserResult[] results) {
+        Arrays.sort(results, (o1, o2) -> Double.compare(o1.getMedianAllocatedBytes(), o2.getMedianAllocatedBytes()));
+    }
+
+    private static void sortByAverage(OptimiserResult[] results) {
         Arrays.sort(results, (o1, o2) -> Double.compare(o1.getAverageDuration(), o2.getAverageDuration()));
     }
 
-    private void sortByMedian(OptimiserResult[] results) {
+    private static void sortByMedian(OptimiserResult[] results) {
         Arrays.sort(results, (o1, o2) -> Double.compare(o1.getMedianDuration(), o2.getMedianDuration()));
     }
 
-    private void sortByMax(OptimiserResult[] results) {
+    private static void sortByMax(OptimiserResult[] results) {
         Arrays.sort(results, (o1, o2) -> Long.compare(o1.getMaxDuration(), o2.getMaxDuration()));
     }
 
-    private void sortByMin(OptimiserResult[] results) {
+    private static void sortByMin(OptimiserResult[] results) {
         Arrays.sort(results, (o1, o2) -> Long.compare(o1.getMinDuration(), o2.getMinDuration()));
     }
 
@@ -124,6 +423,52 @@ public class DeterminedOptimisers implements Parcelable {
         return bestByAverage;
     }
 
+    /**
+     * Unlike the other best results, which may only be faster than the current level by noise, a level is only recommended when
+     * it is significantly faster by at least {@link MeasurementOptions#minEffectSize(double)}, or does that much less solver work
+     * when {@link MeasurementOptions.Ranking#SOLVER_WORK ranking by solver work}
+     *
+     * @return The recommended optimisation level, which is {@link #getCurrent()} when no level is a clear improvement
+     */
+    @NonNull
+    public OptimiserResult getRecommended() {
+        return recommended;
+    }
+
+    /**
+     * @return The optimisation level with the lowest median bytes allocated per sample, or null unless allocations were
+     * {@link MeasurementOptions#measureAllocations(boolean) measured}
+     */
+    @Nullable
+    public OptimiserResult getBestByAllocations() {
+        return bestByAllocations;
+    }
+
+    /**
+     * @return The optimisation level doing the least {@link OptimiserResult#getSolverWork() solver work}, or null unless solver
+     * metrics were {@link MeasurementOptions#collectSolverMetrics(boolean) collected}
+     */
+    @Nullable
+    public OptimiserResult getBestBySolverWork() {
+        return bestBySolverWork;
+    }
+
+    /**
+     * @return Whether a different optimisation level than the current one is {@link #getRecommended() recommended}
+     */
+    public boolean hasRecommendation() {
+        return recommended.getOptimizer() != current.getOptimizer();
+    }
+
+    /**
+     * @return The optimisation level with the lowest median duration of only the given phase, e.g. to tune for layouts which
+     * are only ever measured with {@link android.view.View.MeasureSpec#EXACTLY} specs
+     */
+    @NonNull
+    public OptimiserResult getBestByPhase(@NonNull MeasurePhase phase) {
+        return bestByPhase[phase.ordinal()];
+    }
+
     @NonNull
     public OptimiserResult getCurrent() {
         return current;
@@ -134,6 +479,76 @@ public class DeterminedOptimisers implements Parcelable {
         return results;
     }
 
+    /**
+     * @return The first measure and layout pass of a freshly inflated layout at the current optimisation level, or null if cold performance wasn't measured
+     */
+    @Nullable
+    public OptimiserResult getColdCurrent() {
+        return coldCurrent;
+    }
+
+    /**
+     * @return The optimisation level with the lowest median first measure and layout pass, or null if cold performance wasn't measured
+     */
+    @Nullable
+    public OptimiserResult getColdBestByMean() {
+        return coldBestByMean;
+    }
+
+    @Nullable
+    public OptimiserResult[] getColdResults() {
+        return coldResults;
+    }
+
+    /**
+     * @return The viewport and configuration the layout was inflated and measured with
+     */
+    @NonNull
+    public DeviceConfiguration getDeviceConfiguration() {
+        return deviceConfiguration;
+    }
+
+    /**
+     * @return The order the optimisation levels were measured in
+     */
+    @NonNull
+    public MeasurementOptions.Schedule getSchedule() {
+        return schedule;
+    }
+
+    /**
+     * @return What the {@link #getRecommended() recommended} level was chosen by
+     */
+    @NonNull
+    public MeasurementOptions.Ranking getRanking() {
+        return ranking;
+    }
+
+    /**
+     * @return The seed of the {@link MeasurementOptions.Schedule#RANDOMISED randomised} schedule, pass this to
+     * {@link MeasurementOptions#seed(long)} to measure the levels in the same order again
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * @return The name of the ConstraintLayout's id, e.g. {@code content} for {@code @+id/content}, or null if it has no id
+     */
+    @Nullable
+    public String getConstraintLayoutId() {
+        return constraintLayoutId;
+    }
+
+    /**
+     * @return The version of the layout which was measured, e.g. {@code res/layout-land/main.xml} when the device configuration
+     * is landscape, or null if the ConstraintLayout wasn't inflated from a layout resource
+     */
+    @Nullable
+    public String getLayoutFile() {
+        return layoutFile;
+    }
+
     @Override
     public String toString() {
         return "DeterminedOptimisers{" +
@@ -142,10 +557,122 @@ public class DeterminedOptimisers implements Parcelable {
                 ", bestByMax=" + bestByMax +
                 ", bestByMean=" + bestByMean +
                 ", bestByAverage=" + bestByAverage +
+                ", recommended=" + recommended +
+                ", bestByAllocations=" + bestByAllocations +
+                ", bestBySolverWork=" + bestBySolverWork +
+                ", coldCurrent=" + coldCurrent +
+                ", coldBestByMean=" + coldBestByMean +
+                ", deviceConfiguration=" + deviceConfiguration +
+                ", schedule=" + schedule +
+                ", ranking=" + ranking +
+                ", seed=" + seed +
+                ", constraintLayoutId=" + constraintLayoutId +
+                ", layoutFile=" + layoutFile +
                 '}';
     }
 
 
+    /**
+     * Best results are written as the optimisation level they refer to within {@link #getResults()}, since every level is only
+     * measured once
+     *
+     * @return Every field of the results, which {@link #fromJson(JSONObject)} reads back
+     */
+    @NonNull
+    public JSONObject toJson() throws JSONException {
+        JSONObject bestByPhaseJson = new JSONObject();
+        for (MeasurePhase phase : MeasurePhase.values()) {
+            bestByPhaseJson.put(phase.name(), bestByPhase[phase.ordinal()].getOptimizer());
+        }
+
+        JSONObject json = new JSONObject()
+                .put("results", toJson(results))
+                .put("current", current.getOptimizer())
+                .put("bestByMin", bestByMin.getOptimizer())
+                .put("bestByMax", bestByMax.getOptimizer())
+                .put("bestByMean", bestByMean.getOptimizer())
+                .put("bestByAverage", bestByAverage.getOptimizer())
+                .put("recommended", recommended.getOptimizer())
+                .put("bestByPhase", bestByPhaseJson)
+                .put("deviceConfiguration", deviceConfiguration.toJson())
+                .put("schedule", schedule.name())
+                .put("ranking", ranking.name())
+                .put("seed", seed);
+        if (bestByAllocations != null) json.put("bestByAllocations", bestByAllocations.getOptimizer());
+        if (bestBySolverWork != null) json.put("bestBySolverWork", bestBySolverWork.getOptimizer());
+        if (coldResults != null && coldCurrent != null && coldBestByMean != null) {
+            json.put("coldResults", toJson(coldResults))
+                    .put("coldCurrent", coldCurrent.getOptimizer())
+                    .put("coldBestByMean", coldBestByMean.getOptimizer());
+        }
+        if (constraintLayoutId != null) json.put("constraintLayoutId", constraintLayoutId);
+        if (layoutFile != null) json.put("layoutFile", layoutFile);
+        return json;
+    }
+
+    /**
+     * @param json Results written by {@link #toJson()}
+     * @throws JSONException If a field is missing, or a best result refers to a level which wasn't measured
+     */
+    @NonNull
+    public static DeterminedOptimisers fromJson(@NonNull JSONObject json) throws JSONException {
+        try {
+            return new DeterminedOptimisers(json);
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            throw new JSONException("Invalid results: " + e.getMessage());
+        }
+    }
+
+    private DeterminedOptimisers(@NonNull JSONObject json) throws JSONException {
+        this.results = resultsFromJson(json.getJSONArray("results"));
+        this.current = findResult(results, json.getInt("current"));
+        this.bestByMin = findResult(results, json.getInt("bestByMin"));
+        this.bestByMax = findResult(results, json.getInt("bestByMax"));
+        this.bestByMean = findResult(results, json.getInt("bestByMean"));
+        this.bestByAverage = findResult(results, json.getInt("bestByAverage"));
+        this.recommended = findResult(results, json.getInt("recommended"));
+        this.bestByAllocations = json.has("bestByAllocations") ? findResult(results, json.getInt("bestByAllocations")) : null;
+        this.bestBySolverWork = json.has("bestBySolverWork") ? findResult(results, json.getInt("bestBySolverWork")) : null;
+
+        MeasurePhase[] phases = MeasurePhase.values();
+        JSONObject bestByPhaseJson = json.getJSONObject("bestByPhase");
+        this.bestByPhase = new OptimiserResult[phases.length];
+        for (MeasurePhase phase : phases) {
+            bestByPhase[phase.ordinal()] = findResult(results, bestByPhaseJson.getInt(phase.name()));
+        }
+
+        if (json.has("coldResults")) {
+            this.coldResults = resultsFromJson(json.getJSONArray("coldResults"));
+            this.coldCurrent = findResult(coldResults, json.getInt("coldCurrent"));
+            this.coldBestByMean = findResult(coldResults, json.getInt("coldBestByMean"));
+        } else {
+            this.coldResults = null;
+            this.coldCurrent = null;
+            this.coldBestByMean = null;
+        }
+
+        this.deviceConfiguration = DeviceConfiguration.fromJson(json.getJSONObject("deviceConfiguration"));
+        this.schedule = MeasurementOptions.Schedule.valueOf(json.getString("schedule"));
+        this.ranking = MeasurementOptions.Ranking.valueOf(json.getString("ranking"));
+        this.seed = json.getLong("seed");
+        this.constraintLayoutId = json.has("constraintLayoutId") ? json.getString("constraintLayoutId") : null;
+        this.layoutFile = json.has("layoutFile") ? json.getString("layoutFile") : null;
+    }
+
+    @NonNull
+    private static JSONArray toJson(@NonNull OptimiserResult[] results) throws JSONException {
+        JSONArray array = new JSONArray();
+        for (OptimiserResult result : results) array.put(result.toJson());
+        return array;
+    }
+
+    @NonNull
+    private static OptimiserResult[] resultsFromJson(@NonNull JSONArray array) throws JSONException {
+        OptimiserResult[] results = new OptimiserResult[array.length()];
+        for (int i = 0; i < results.length; i++) results[i] = OptimiserResult.fromJson(array.getJSONObject(i));
+        return results;
+    }
+
     @Override
     public int describeContents() {
         return 0;
@@ -158,7 +685,20 @@ public class DeterminedOptimisers implements Parcelable {
         dest.writeParcelable(this.bestByMax, flags);
         dest.writeParcelable(this.bestByMean, flags);
         dest.writeParcelable(this.bestByAverage, flags);
+        dest.writeParcelable(this.recommended, flags);
+        dest.writeParcelable(this.bestByAllocations, flags);
+        dest.writeParcelable(this.bestBySolverWork, flags);
         dest.writeTypedArray(this.results, flags);
+        dest.writeTypedArray(this.bestByPhase, flags);
+        dest.writeParcelable(this.coldCurrent, flags);
+        dest.writeParcelable(this.coldBestByMean, flags);
+        dest.writeTypedArray(this.coldResults, flags);
+        dest.writeParcelable(this.deviceConfiguration, flags);
+        dest.writeInt(this.schedule.ordinal());
+        dest.writeInt(this.ranking.ordinal());
+        dest.writeLong(this.seed);
+        dest.writeString(this.constraintLayoutId);
+        dest.writeString(this.layoutFile);
     }
 
     protected DeterminedOptimisers(Parcel in) {
@@ -167,7 +707,20 @@ public class DeterminedOptimisers implements Parcelable {
         this.bestByMax = in.readParcelable(OptimiserResult.class.getClassLoader());
         this.bestByMean = in.readParcelable(OptimiserResult.class.getClassLoader());
         this.bestByAverage = in.readParcelable(OptimiserResult.class.getClassLoader());
+        this.recommended = in.readParcelable(OptimiserResult.class.getClassLoader());
+        this.bestByAllocations = in.readParcelable(OptimiserResult.class.getClassLoader());
+        this.bestBySolverWork = in.readParcelable(OptimiserResult.class.getClassLoader());
         this.results = in.createTypedArray(OptimiserResult.CREATOR);
+        this.bestByPhase = in.createTypedArray(OptimiserResult.CREATOR);
+        this.coldCurrent = in.readParcelable(OptimiserResult.class.getClassLoader());
+        this.coldBestByMean = in.readParcelable(OptimiserResult.class.getClassLoader());
+        this.coldResults = in.createTypedArray(OptimiserResult.CREATOR);
+        this.deviceConfiguration = in.readParcelable(DeviceConfiguration.class.getClassLoader());
+        this.schedule = MeasurementOptions.Schedule.values()[in.readInt()];
+        this.ranking = MeasurementOptions.Ranking.values()[in.readInt()];
+        this.seed = in.readLong();
+        this.constraintLayoutId = in.readString();
+        this.layoutFile = in.readString();
     }
 
     public static final Parcelable.Creator<DeterminedOptimisers> CREATOR = new Parcelable.Creator<DeterminedOptimisers>() {
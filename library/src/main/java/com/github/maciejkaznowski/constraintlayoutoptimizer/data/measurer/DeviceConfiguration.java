@@ -0,0 +1,261 @@
+package com.github.maciejkaznowski.constraintlayoutoptimizer.data.measurer;
+
+import android.app.Activity;
+import android.content.Context;
+import android.content.ContextWrapper;
+import android.content.pm.PackageManager;
+import android.content.res.Configuration;
+import android.os.Parcel;
+import android.os.Parcelable;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.StyleRes;
+import androidx.appcompat.view.ContextThemeWrapper;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.Objects;
+
+/**
+ * A viewport size to measure layouts at, along with optional {@link Configuration} overrides which change the resources
+ * (e.g. {@code layout-land} or {@code layout-sw600dp}) that layouts are inflated with.
+ * <p>
+ * Values which aren't set are taken from the device the layouts are measured on.
+ */
+public class DeviceConfiguration implements Parcelable {
+
+    public static final Parcelable.Creator<DeviceConfiguration> CREATOR = new Parcelable.Creator<DeviceConfiguration>() {
+        @Override
+        public DeviceConfiguration createFromParcel(Parcel source) {
+            return new DeviceConfiguration(source);
+        }
+
+        @Override
+        public DeviceConfiguration[] newArray(int size) {
+            return new DeviceConfiguration[size];
+        }
+    };
+    private final int widthPx;
+    private final int heightPx;
+    private int densityDpi;
+    private float fontScale;
+    private int orientation;
+    private int smallestWidthDp;
+
+    /**
+     * @param widthPx  The width the layouts are measured with
+     * @param heightPx The height the layouts are measured with
+     */
+    public DeviceConfiguration(int widthPx, int heightPx) {
+        if (widthPx <= 0 || heightPx <= 0) throw new IllegalArgumentException("Viewport must be positive, was " + widthPx + "x" + heightPx);
+        this.widthPx = widthPx;
+        this.heightPx = heightPx;
+        this.densityDpi = Configuration.DENSITY_DPI_UNDEFINED;
+        this.fontScale = 0;
+        this.orientation = Configuration.ORIENTATION_UNDEFINED;
+        this.smallestWidthDp = Configuration.SMALLEST_SCREEN_WIDTH_DP_UNDEFINED;
+    }
+
+    protected DeviceConfiguration(Parcel in) {
+        this.widthPx = in.readInt();
+        this.heightPx = in.readInt();
+        this.densityDpi = in.readInt();
+        this.fontScale = in.readFloat();
+        this.orientation = in.readInt();
+        this.smallestWidthDp = in.readInt();
+    }
+
+    @NonNull
+    public DeviceConfiguration densityDpi(int densityDpi) {
+        this.densityDpi = densityDpi;
+        return this;
+    }
+
+    @NonNull
+    public DeviceConfiguration fontScale(float fontScale) {
+        this.fontScale = fontScale;
+        return this;
+    }
+
+    /**
+     * @param orientation {@link Configuration#ORIENTATION_PORTRAIT} or {@link Configuration#ORIENTATION_LANDSCAPE}
+     */
+    @NonNull
+    public DeviceConfiguration orientation(int orientation) {
+        this.orientation = orientation;
+        return this;
+    }
+
+    @NonNull
+    public DeviceConfiguration smallestWidthDp(int smallestWidthDp) {
+        this.smallestWidthDp = smallestWidthDp;
+        return this;
+    }
+
+    public int getWidthPx() {
+        return widthPx;
+    }
+
+    public int getHeightPx() {
+        return heightPx;
+    }
+
+    public int getDensityDpi() {
+        return densityDpi;
+    }
+
+    public float getFontScale() {
+        return fontScale;
+    }
+
+    public int getOrientation() {
+        return orientation;
+    }
+
+    public int getSmallestWidthDp() {
+        return smallestWidthDp;
+    }
+
+    private boolean hasConfigurationOverrides() {
+        return densityDpi != Configuration.DENSITY_DPI_UNDEFINED
+                || fontScale != 0
+                || orientation != Configuration.ORIENTATION_UNDEFINED
+                || smallestWidthDp != Configuration.SMALLEST_SCREEN_WIDTH_DP_UNDEFINED;
+    }
+
+    /**
+     * @param context The context to apply the overrides to, its theme is applied again to the configured resources so themed
+     *                views can still be inflated
+     * @return A context whose resources use this configuration, or {@code context} itself if nothing is overridden
+     */
+    @NonNull
+    public Context createContext(@NonNull Context context) {
+        return createContext(context, getThemeResId(context));
+    }
+
+    /**
+     * @param context The context to apply the overrides to
+     * @param theme   The theme the returned context inflates views with, it's resolved against the configured resources
+     * @return A context whose resources use this configuration, or {@code context} itself if nothing is overridden
+     */
+    @NonNull
+    public Context createContext(@NonNull Context context, @StyleRes int theme) {
+        if (!hasConfigurationOverrides()) return context;
+
+        Configuration configuration = new Configuration(context.getResources().getConfiguration());
+        if (densityDpi != Configuration.DENSITY_DPI_UNDEFINED) configuration.densityDpi = densityDpi;
+        if (fontScale != 0) configuration.fontScale = fontScale;
+        if (orientation != Configuration.ORIENTATION_UNDEFINED) configuration.orientation = orientation;
+        if (smallestWidthDp != Configuration.SMALLEST_SCREEN_WIDTH_DP_UNDEFINED) configuration.smallestScreenWidthDp = smallestWidthDp;
+
+        //the wrapper creates its theme lazily from its own resources, so ?attr/ values and themed dimensions are resolved
+        //against the overridden configuration. Passing the context's Theme instead would keep it bound to the original resources
+        ContextThemeWrapper configurationContext = new ContextThemeWrapper(context, theme);
+        configurationContext.applyOverrideConfiguration(configuration);
+        return configurationContext;
+    }
+
+    /**
+     * @return The theme resource of the innermost themed wrapper or Activity around {@code context}, or the application's theme
+     */
+    @StyleRes
+    private static int getThemeResId(@NonNull Context context) {
+        Context current = context;
+        while (current != null) {
+            if (current instanceof ContextThemeWrapper && ((ContextThemeWrapper) current).getThemeResId() != 0) {
+                return ((ContextThemeWrapper) current).getThemeResId();
+            }
+            if (current instanceof Activity) {
+                try {
+                    Activity activity = (Activity) current;
+                    int theme = activity.getPackageManager().getActivityInfo(activity.getComponentName(), 0).getThemeResource();
+                    if (theme != 0) return theme;
+                } catch (PackageManager.NameNotFoundException ignored) {
+                    //fall back to the application's theme
+                }
+            }
+            current = current instanceof ContextWrapper ? ((ContextWrapper) current).getBaseContext() : null;
+        }
+        return context.getApplicationInfo().theme;
+    }
+
+    /**
+     * @return A short description such as "1080x1920px, 420dpi, land"
+     */
+    @NonNull
+    public String getDescription() {
+        StringBuilder description = new StringBuilder()
+                .append(widthPx).append('x').append(heightPx).append("px");
+        if (densityDpi != Configuration.DENSITY_DPI_UNDEFINED) description.append(", ").append(densityDpi).append("dpi");
+        if (fontScale != 0) description.append(", font ").append(fontScale).append('x');
+        if (orientation == Configuration.ORIENTATION_PORTRAIT) description.append(", port");
+        if (orientation == Configuration.ORIENTATION_LANDSCAPE) description.append(", land");
+        if (smallestWidthDp != Configuration.SMALLEST_SCREEN_WIDTH_DP_UNDEFINED) description.append(", sw").append(smallestWidthDp).append("dp");
+        return description.toString();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        DeviceConfiguration that = (DeviceConfiguration) o;
+        return widthPx == that.widthPx &&
+                heightPx == that.heightPx &&
+                densityDpi == that.densityDpi &&
+                Float.compare(that.fontScale, fontScale) == 0 &&
+                orientation == that.orientation &&
+                smallestWidthDp == that.smallestWidthDp;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(widthPx, heightPx, densityDpi, fontScale, orientation, smallestWidthDp);
+    }
+
+    @Override
+    public String toString() {
+        return "DeviceConfiguration{" + getDescription() + '}';
+    }
+
+    /**
+     * @return The viewport and overrides, which {@link #fromJson(JSONObject)} reads back
+     */
+    @NonNull
+    public JSONObject toJson() throws JSONException {
+        return new JSONObject()
+                .put("widthPx", widthPx)
+                .put("heightPx", heightPx)
+                .put("densityDpi", densityDpi)
+                .put("fontScale", fontScale)
+                .put("orientation", orientation)
+                .put("smallestWidthDp", smallestWidthDp);
+    }
+
+    /**
+     * @param json A device configuration written by {@link #toJson()}
+     */
+    @NonNull
+    public static DeviceConfiguration fromJson(@NonNull JSONObject json) throws JSONException {
+        return new DeviceConfiguration(json.getInt("widthPx"), json.getInt("heightPx"))
+                .densityDpi(json.getInt("densityDpi"))
+                .fontScale((float) json.getDouble("fontScale"))
+                .orientation(json.getInt("orientation"))
+                .smallestWidthDp(json.getInt("smallestWidthDp"));
+    }
+
+    @Override
+    public int describeContents() {
+        return 0;
+    }
+
+    @Override
+    public void writeToParcel(Parcel dest, int flags) {
+        dest.writeInt(this.widthPx);
+        dest.writeInt(this.heightPx);
+        dest.writeInt(this.densityDpi);
+        dest.writeFloat(this.fontScale);
+        dest.writeInt(this.orientation);
+        dest.writeInt(this.smallestWidthDp);
+    }
+}
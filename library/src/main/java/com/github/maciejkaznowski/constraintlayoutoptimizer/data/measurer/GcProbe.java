@@ -0,0 +1,132 @@
+package com.github.maciejkaznowski.constraintlayoutoptimizer.data.measurer;
+
+import androidx.annotation.Nullable;
+
+/**
+ * Reads the garbage collections and the bytes allocated by the current thread around each sample, so samples which
+ * included a GC pause can be flagged or rejected and the allocation cost of each optimisation level reported.
+ * <p>
+ * The probe is read outside of the timed window of a sample, and the allocation counter is read last on {@link #start()}
+ * and first on {@link #stop()} so reading the GC counters isn't counted as allocations of the sample. A probe must only be
+ * used by the thread which created it.
+ */
+abstract class GcProbe {
+
+    static final long UNAVAILABLE = -1;
+
+    private final boolean rejecting;
+    private long gcCountBefore;
+    private long gcTimeBefore;
+    private long allocatedBefore;
+    private long gcCount;
+    private long gcTime;
+    private long allocatedBytes = UNAVAILABLE;
+    private long allocationOverhead = 0;
+
+    /**
+     * @param options Decides whether the probe is needed, see {@link MeasurementOptions#gcPolicy(MeasurementOptions.GcPolicy)}
+     *                and {@link MeasurementOptions#measureAllocations(boolean)}
+     * @return A probe for the current runtime, or null if nothing needs to be probed or the runtime can't be probed
+     */
+    @Nullable
+    static GcProbe create(MeasurementOptions options) {
+        boolean measureAllocations = options.isMeasuringAllocations();
+        boolean rejecting = options.getGcPolicy() == MeasurementOptions.GcPolicy.REJECT;
+        if (options.getGcPolicy() == MeasurementOptions.GcPolicy.IGNORE && !measureAllocations) return null;
+
+        //the JVM probe is tried first, since Robolectric's shadows of the Android runtime stats return nothing useful
+        GcProbe probe = JvmGcProbe.create(measureAllocations, rejecting);
+        if (probe == null) probe = AndroidGcProbe.create(measureAllocations, rejecting);
+        if (probe != null) probe.calibrate();
+        return probe;
+    }
+
+    GcProbe(boolean rejecting) {
+        this.rejecting = rejecting;
+    }
+
+    /**
+     * Reads the counters before a sample
+     */
+    final void start() {
+        gcCountBefore = readGcCount();
+        gcTimeBefore = readGcTimeMillis();
+        allocatedBefore = readAllocatedBytes();
+    }
+
+    /**
+     * Reads the counters after a sample, the differences are available until the next {@link #start()}
+     */
+    final void stop() {
+        long allocatedAfter = readAllocatedBytes();
+        long gcCountAfter = readGcCount();
+        long gcTimeAfter = readGcTimeMillis();
+
+        gcCount = gcCountBefore == UNAVAILABLE || gcCountAfter == UNAVAILABLE ? 0 : gcCountAfter - gcCountBefore;
+        gcTime = gcTimeBefore == UNAVAILABLE || gcTimeAfter == UNAVAILABLE ? 0 : gcTimeAfter - gcTimeBefore;
+        allocatedBytes = allocatedBefore == UNAVAILABLE || allocatedAfter == UNAVAILABLE
+                ? UNAVAILABLE
+                : Math.max(0, allocatedAfter - allocatedBefore - allocationOverhead);
+    }
+
+    /**
+     * @return Whether a garbage collection ran during the last sample
+     */
+    final boolean hadGc() {
+        return gcCount > 0;
+    }
+
+    final long getGcTimeMillis() {
+        return gcTime;
+    }
+
+    /**
+     * @return The bytes allocated by the current thread during the last sample, or {@link #UNAVAILABLE}
+     */
+    final long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+
+    /**
+     * @param buffer The buffer the last sample would be recorded into
+     * @return Whether the last sample should be discarded and measured again. Samples are never rejected more often than they
+     * have been kept, so every level always has samples and a level which always collects garbage still finishes
+     */
+    final boolean shouldReject(SampleBuffer buffer) {
+        return rejecting && hadGc() && buffer.getRejectedCount() < buffer.getCount();
+    }
+
+    /**
+     * Finds the bytes allocated by reading the probe itself, which are subtracted from every sample
+     */
+    private void calibrate() {
+        long overhead = Long.MAX_VALUE;
+        for (int i = 0; i < 5; i++) {
+            start();
+            stop();
+            if (allocatedBytes != UNAVAILABLE) overhead = Math.min(overhead, allocatedBytes);
+        }
+        allocationOverhead = overhead == Long.MAX_VALUE ? 0 : overhead;
+    }
+
+    /**
+     * Stops any counting started by the probe
+     */
+    void close() {
+    }
+
+    /**
+     * @return The number of garbage collections of the process so far, or {@link #UNAVAILABLE}
+     */
+    abstract long readGcCount();
+
+    /**
+     * @return The time spent in garbage collection by the process so far in ms, or {@link #UNAVAILABLE}
+     */
+    abstract long readGcTimeMillis();
+
+    /**
+     * @return The bytes allocated by the current thread so far, or {@link #UNAVAILABLE} if allocations aren't measured
+     */
+    abstract long readAllocatedBytes();
+}
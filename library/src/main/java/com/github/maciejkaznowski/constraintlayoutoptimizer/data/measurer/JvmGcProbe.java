@@ -0,0 +1,106 @@
+package com.github.maciejkaznowski.constraintlayoutoptimizer.data.measurer;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.lang.reflect.Method;
+import java.util.List;
+
+/**
+ * Probes a desktop JVM, e.g. when measuring with Robolectric, through its GarbageCollectorMXBeans and ThreadMXBean.
+ * <p>
+ * java.lang.management isn't part of the Android SDK, so it is only accessed reflectively.
+ */
+class JvmGcProbe extends GcProbe {
+
+    @NonNull private final Object[] garbageCollectors;
+    @NonNull private final Method getCollectionCount;
+    @NonNull private final Method getCollectionTime;
+    @Nullable private final Object threadBean;
+    @Nullable private final Method getThreadAllocatedBytes;
+    @NonNull private final Object[] threadId;
+
+    @Nullable
+    static GcProbe create(boolean measureAllocations, boolean rejecting) {
+        try {
+            Class<?> managementFactory = Class.forName("java.lang.management.ManagementFactory");
+            Class<?> garbageCollectorBean = Class.forName("java.lang.management.GarbageCollectorMXBean");
+            List<?> garbageCollectors = (List<?>) managementFactory.getMethod("getGarbageCollectorMXBeans").invoke(null);
+
+            Object threadBean = null;
+            Method getThreadAllocatedBytes = null;
+            if (measureAllocations) {
+                Class<?> allocatingThreadBean = Class.forName("com.sun.management.ThreadMXBean");
+                Object bean = managementFactory.getMethod("getThreadMXBean").invoke(null);
+                if (allocatingThreadBean.isInstance(bean)
+                        && (Boolean) allocatingThreadBean.getMethod("isThreadAllocatedMemorySupported").invoke(bean)) {
+                    allocatingThreadBean.getMethod("setThreadAllocatedMemoryEnabled", boolean.class).invoke(bean, true);
+                    threadBean = bean;
+                    getThreadAllocatedBytes = allocatingThreadBean.getMethod("getThreadAllocatedBytes", long.class);
+                }
+            }
+
+            return new JvmGcProbe(garbageCollectors.toArray(),
+                    garbageCollectorBean.getMethod("getCollectionCount"),
+                    garbageCollectorBean.getMethod("getCollectionTime"),
+                    threadBean,
+                    getThreadAllocatedBytes,
+                    rejecting);
+        } catch (ReflectiveOperationException | RuntimeException | LinkageError e) {
+            //not a desktop JVM
+            return null;
+        }
+    }
+
+    private JvmGcProbe(@NonNull Object[] garbageCollectors,
+                       @NonNull Method getCollectionCount,
+                       @NonNull Method getCollectionTime,
+                       @Nullable Object threadBean,
+                       @Nullable Method getThreadAllocatedBytes,
+                       boolean rejecting) {
+        super(rejecting);
+        this.garbageCollectors = garbageCollectors;
+        this.getCollectionCount = getCollectionCount;
+        this.getCollectionTime = getCollectionTime;
+        this.threadBean = threadBean;
+        this.getThreadAllocatedBytes = getThreadAllocatedBytes;
+        //reused so reading the counter doesn't allocate an argument array
+        this.threadId = new Object[]{Thread.currentThread().getId()};
+    }
+
+    @Override
+    long readGcCount() {
+        return sum(getCollectionCount);
+    }
+
+    @Override
+    long readGcTimeMillis() {
+        return sum(getCollectionTime);
+    }
+
+    @Override
+    long readAllocatedBytes() {
+        if (threadBean == null || getThreadAllocatedBytes == null) return UNAVAILABLE;
+        try {
+            return (Long) getThreadAllocatedBytes.invoke(threadBean, threadId);
+        } catch (ReflectiveOperationException e) {
+            return UNAVAILABLE;
+        }
+    }
+
+    /**
+     * @return The sum over all collectors, each of which returns -1 if it doesn't support the statistic
+     */
+    private long sum(@NonNull Method statistic) {
+        long sum = 0;
+        try {
+            for (Object garbageCollector : garbageCollectors) {
+                long value = (Long) statistic.invoke(garbageCollector);
+                if (value > 0) sum += value;
+            }
+        } catch (ReflectiveOperationException e) {
+            return UNAVAILABLE;
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,56 @@
+package com.github.maciejkaznowski.constraintlayoutoptimizer.data.measurer;
+
+import androidx.annotation.NonNull;
+
+import java.util.Random;
+
+/**
+ * Decides the order in which optimisation levels are measured within each round, so that drift over the run (thermal
+ * throttling, GC, frequency scaling) is spread across all levels instead of lining up with the level number
+ */
+class LevelScheduler {
+
+    @NonNull private final MeasurementOptions.Schedule schedule;
+    @NonNull private final Random random;
+    @NonNull private final int[] order;
+    private int round = 0;
+
+    /**
+     * @param seed       Seeds the order of {@link MeasurementOptions.Schedule#RANDOMISED} rounds, the same seed always gives the same order
+     * @param levelCount The number of optimisation levels, which are numbered from 0
+     */
+    LevelScheduler(@NonNull MeasurementOptions.Schedule schedule, long seed, int levelCount) {
+        this.schedule = schedule;
+        this.random = new Random(seed);
+        this.order = new int[levelCount];
+        for (int i = 0; i < levelCount; i++) order[i] = i;
+    }
+
+    /**
+     * @return Every optimisation level in the order it should be measured in the next round. The returned array is reused by the next call
+     */
+    @NonNull
+    int[] nextRound() {
+        switch (schedule) {
+            case RANDOMISED:
+                shuffle();
+                break;
+            case ROUND_ROBIN:
+            case SEQUENTIAL:
+                //rotate so that every level takes a turn at being measured first
+                for (int i = 0; i < order.length; i++) order[i] = (i + round) % order.length;
+                break;
+        }
+        round++;
+        return order;
+    }
+
+    private void shuffle() {
+        for (int i = order.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = order[i];
+            order[i] = order[j];
+            order[j] = swap;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.github.maciejkaznowski.constraintlayoutoptimizer.data.measurer;
+
+import android.view.View;
+
+import androidx.annotation.NonNull;
+import androidx.constraintlayout.widget.ConstraintLayout;
+
+/**
+ * Measures and lays out with {@link View.MeasureSpec#AT_MOST} specs, then again with {@link View.MeasureSpec#EXACTLY} specs.
+ * This is the default strategy.
+ */
+public class MeasureAndLayoutStrategy implements MeasurementStrategy {
+
+    @Override
+    public void prepare(@NonNull DeviceConfiguration viewport) {
+    }
+
+    @Override
+    public void measure(@NonNull ConstraintLayout constraintLayout,
+                        @NonNull DeviceConfiguration viewport,
+                        @NonNull PhaseRecorder recorder) throws ViewMeasureException, ViewLayoutException {
+        // Not to use the view cache in the View class, use the different measureSpecs
+        // for each calculation. (Switching the
+        // View.MeasureSpec.EXACT and View.MeasureSpec.AT_MOST alternately)
+        long wrapMeasureFromNs = System.nanoTime();
+        OptimiserPerformanceMeasurer.measure(constraintLayout, View.MeasureSpec.AT_MOST, viewport);
+        long wrapLayoutFromNs = System.nanoTime();
+        OptimiserPerformanceMeasurer.layout(constraintLayout);
+        long exactMeasureFromNs = System.nanoTime();
+        OptimiserPerformanceMeasurer.measure(constraintLayout, View.MeasureSpec.EXACTLY, viewport);
+        long exactLayoutFromNs = System.nanoTime();
+        OptimiserPerformanceMeasurer.layout(constraintLayout);
+        long toNs = System.nanoTime();
+
+        recorder.setPhaseDuration(MeasurePhase.WRAP_MEASURE, wrapLayoutFromNs - wrapMeasureFromNs);
+        recorder.setPhaseDuration(MeasurePhase.WRAP_LAYOUT, exactMeasureFromNs - wrapLayoutFromNs);
+        recorder.setPhaseDuration(MeasurePhase.EXACT_MEASURE, exactLayoutFromNs - exactMeasureFromNs);
+        recorder.setPhaseDuration(MeasurePhase.EXACT_LAYOUT, toNs - exactLayoutFromNs);
+    }
+}
@@ -0,0 +1,52 @@
+package com.github.maciejkaznowski.constraintlayoutoptimizer.data.measurer;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.constraintlayout.widget.ConstraintLayout;
+
+/**
+ * Runs the {@link MeasureAndLayoutStrategy} and then draws the ConstraintLayout into an offscreen software {@link Bitmap},
+ * since some optimisation levels change the bounds of children in ways which change how much has to be drawn.
+ * <p>
+ * The bitmap has the size of the viewport and is reused by every sample. Drawing in software isn't representative of the
+ * absolute cost of a hardware accelerated frame, but differences between levels still show. Drawing is the last step of
+ * laying out a layout, so failures to draw are reported as {@link ViewLayoutException}s.
+ */
+public class MeasureLayoutAndDrawStrategy implements MeasurementStrategy {
+
+    @NonNull private final MeasureAndLayoutStrategy measureAndLayout = new MeasureAndLayoutStrategy();
+    @NonNull private final Canvas canvas = new Canvas();
+    @Nullable private Bitmap bitmap;
+
+    @Override
+    public void prepare(@NonNull DeviceConfiguration viewport) {
+        measureAndLayout.prepare(viewport);
+        if (bitmap != null && bitmap.getWidth() == viewport.getWidthPx() && bitmap.getHeight() == viewport.getHeightPx()) return;
+
+        if (bitmap != null) bitmap.recycle();
+        bitmap = Bitmap.createBitmap(viewport.getWidthPx(), viewport.getHeightPx(), Bitmap.Config.ARGB_8888);
+        canvas.setBitmap(bitmap);
+    }
+
+    @Override
+    public void measure(@NonNull ConstraintLayout constraintLayout,
+                        @NonNull DeviceConfiguration viewport,
+                        @NonNull PhaseRecorder recorder) throws ViewMeasureException, ViewLayoutException {
+        if (bitmap == null) throw new IllegalStateException("prepare() must be called before measure()");
+
+        measureAndLayout.measure(constraintLayout, viewport, recorder);
+
+        long drawFromNs = System.nanoTime();
+        try {
+            constraintLayout.draw(canvas);
+        } catch (Exception e) {
+            throw new ViewLayoutException(constraintLayout, e);
+        }
+        long toNs = System.nanoTime();
+
+        recorder.setPhaseDuration(MeasurePhase.DRAW, toNs - drawFromNs);
+    }
+}
@@ -0,0 +1,31 @@
+package com.github.maciejkaznowski.constraintlayoutoptimizer.data.measurer;
+
+import android.view.View;
+
+import androidx.annotation.NonNull;
+import androidx.constraintlayout.widget.ConstraintLayout;
+
+/**
+ * Measures with {@link View.MeasureSpec#AT_MOST} and then {@link View.MeasureSpec#EXACTLY} specs without laying out, for
+ * layouts which are measured more often than they are laid out, e.g. inside a parent which measures its children several times
+ */
+public class MeasureOnlyStrategy implements MeasurementStrategy {
+
+    @Override
+    public void prepare(@NonNull DeviceConfiguration viewport) {
+    }
+
+    @Override
+    public void measure(@NonNull ConstraintLayout constraintLayout,
+                        @NonNull DeviceConfiguration viewport,
+                        @NonNull PhaseRecorder recorder) throws ViewMeasureException {
+        long wrapMeasureFromNs = System.nanoTime();
+        OptimiserPerformanceMeasurer.measure(constraintLayout, View.MeasureSpec.AT_MOST, viewport);
+        long exactMeasureFromNs = System.nanoTime();
+        OptimiserPerformanceMeasurer.measure(constraintLayout, View.MeasureSpec.EXACTLY, viewport);
+        long toNs = System.nanoTime();
+
+        recorder.setPhaseDuration(MeasurePhase.WRAP_MEASURE, exactMeasureFromNs - wrapMeasureFromNs);
+        recorder.setPhaseDuration(MeasurePhase.EXACT_MEASURE, toNs - exactMeasureFromNs);
+    }
+}
@@ -0,0 +1,28 @@
+package com.github.maciejkaznowski.constraintlayoutoptimizer.data.measurer;
+
+import androidx.annotation.NonNull;
+
+/**
+ * The separately timed parts of a single sample. By default each sample first measures and lays out with {@link android.view.View.MeasureSpec#AT_MOST}
+ * specs, then with {@link android.view.View.MeasureSpec#EXACTLY} specs, so that the View measure cache is never hit.
+ * Which phases are run depends on the {@link MeasurementStrategy}, phases which aren't run have a duration of 0
+ */
+public enum MeasurePhase {
+
+    WRAP_MEASURE("AT_MOST measure"),
+    WRAP_LAYOUT("AT_MOST layout"),
+    EXACT_MEASURE("EXACTLY measure"),
+    EXACT_LAYOUT("EXACTLY layout"),
+    DRAW("draw");
+
+    @NonNull private final String description;
+
+    MeasurePhase(@NonNull String description) {
+        this.description = description;
+    }
+
+    @NonNull
+    public String getDescription() {
+        return description;
+    }
+}
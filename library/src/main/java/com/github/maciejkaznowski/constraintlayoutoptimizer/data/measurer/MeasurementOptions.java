@@ -0,0 +1,578 @@
+package com.github.maciejkaznowski.constraintlayoutoptimizer.data.measurer;
+
+import android.os.Parcel;
+import android.os.Parcelable;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Configures how {@link OptimiserPerformanceMeasurer} samples each optimisation level.
+ * <p>
+ * By default every level is sampled a fixed {@link #iterationCount(int) number of times}. In {@link #adaptive(boolean) adaptive}
+ * mode each level is instead sampled until the 95% confidence interval of its median duration is narrower than
+ * {@link #targetRelativeConfidenceWidth(double)} of the median, bounded by {@link #minIterations(int)} and {@link #maxIterations(int)}.
+ * <p>
+ * In {@link #racing(boolean) racing} mode all levels are sampled in rounds, levels which are clearly slower than the fastest level
+ * are dropped after each round, and the iterations they would have used are spent on the remaining levels.
+ * <p>
+ * Before sampling, every level is measured {@link #warmupIterations(int)} times and the results discarded, so that class loading
+ * and JIT compilation don't penalise the first levels measured. Separately, {@link #coldIterations(int)} measures only the first
+ * measure and layout pass of freshly inflated layouts, which is the cost users see when a screen is opened.
+ * <p>
+ * The {@link #schedule(Schedule) schedule} decides whether levels are measured one after another or interleaved, so that
+ * drift during the run doesn't line up with the level number.
+ * <p>
+ * A level is only {@link DeterminedOptimisers#getRecommended() recommended} over the current level when it is significantly
+ * faster at the {@link #significanceLevel(double) significance level} and by at least the {@link #minEffectSize(double) minimum effect size}.
+ * <p>
+ * When {@link #pruneLevels(boolean) pruning}, only the optimisation levels whose flags can affect a layout are measured,
+ * e.g. a layout without chains isn't measured with and without {@link androidx.constraintlayout.solver.widgets.Optimizer#OPTIMIZATION_CHAIN}.
+ * <p>
+ * Samples during which a garbage collection ran are {@link #gcPolicy(GcPolicy) flagged or rejected}, and the bytes allocated by
+ * each sample can be {@link #measureAllocations(boolean) measured}, since allocating less also means fewer GC pauses later.
+ * <p>
+ * Levels are {@link #ranking(Ranking) ranked} by wall clock time, or by the work the solver did, which is the same for every
+ * sample and so needs far fewer iterations. Solver work is only counted when {@link #collectSolverMetrics(boolean) collected}.
+ * <p>
+ * A {@link MeasurementRunner} measures one layout at a time unless given more {@link #workerCount(int) workers}, each of which
+ * inflates and measures its own layouts. Workers contend for caches, memory bandwidth and thermal headroom, so
+ * {@link #reservedCores(int)} cores are always left idle and durations should only be compared with runs using the same worker count.
+ * <p>
+ * Every layout is measured once for each of the {@link #deviceConfiguration(DeviceConfiguration) device configurations},
+ * which defaults to a single 1920x1080 viewport with the device's own configuration.
+ */
+public class MeasurementOptions implements Parcelable {
+
+    public static final Parcelable.Creator<MeasurementOptions> CREATOR = new Parcelable.Creator<MeasurementOptions>() {
+        @Override
+        public MeasurementOptions createFromParcel(Parcel source) {
+            return new MeasurementOptions(source);
+        }
+
+        @Override
+        public MeasurementOptions[] newArray(int size) {
+            return new MeasurementOptions[size];
+        }
+    };
+    private int iterationCount;
+    private boolean adaptive;
+    private int minIterations;
+    private int maxIterations;
+    private double targetRelativeConfidenceWidth;
+    private boolean racing;
+    private int racingRounds;
+    private int warmupIterations;
+    private int coldIterations;
+    @NonNull private Schedule schedule;
+    private boolean hasSeed;
+    private long seed;
+    @NonNull private List<DeviceConfiguration> deviceConfigurations;
+    private double significanceLevel;
+    private double minEffectSize;
+    private boolean keepSamples;
+    private boolean pruneLevels;
+    private int workerCount;
+    private int reservedCores;
+    @NonNull private GcPolicy gcPolicy;
+    private boolean measureAllocations;
+    private boolean collectSolverMetrics;
+    @NonNull private Ranking ranking;
+
+    public MeasurementOptions() {
+        this.iterationCount = 5;
+        this.adaptive = false;
+        this.minIterations = 5;
+        this.maxIterations = 100;
+        this.targetRelativeConfidenceWidth = 0.05;
+        this.racing = false;
+        this.racingRounds = 3;
+        this.warmupIterations = 1;
+        this.coldIterations = 0;
+        this.schedule = Schedule.SEQUENTIAL;
+        this.hasSeed = false;
+        this.seed = 0;
+        this.deviceConfigurations = new ArrayList<>();
+        this.significanceLevel = 0.05;
+        this.minEffectSize = 0.02;
+        this.keepSamples = false;
+        this.pruneLevels = false;
+        this.workerCount = 1;
+        this.reservedCores = 1;
+        this.gcPolicy = GcPolicy.FLAG;
+        this.measureAllocations = false;
+        this.collectSolverMetrics = false;
+        this.ranking = Ranking.WALL_CLOCK;
+    }
+
+    protected MeasurementOptions(Parcel in) {
+        this.iterationCount = in.readInt();
+        this.adaptive = in.readByte() != 0;
+        this.minIterations = in.readInt();
+        this.maxIterations = in.readInt();
+        this.targetRelativeConfidenceWidth = in.readDouble();
+        this.racing = in.readByte() != 0;
+        this.racingRounds = in.readInt();
+        this.warmupIterations = in.readInt();
+        this.coldIterations = in.readInt();
+        this.schedule = Schedule.values()[in.readInt()];
+        this.hasSeed = in.readByte() != 0;
+        this.seed = in.readLong();
+        this.deviceConfigurations = in.createTypedArrayList(DeviceConfiguration.CREATOR);
+        this.significanceLevel = in.readDouble();
+        this.minEffectSize = in.readDouble();
+        this.keepSamples = in.readByte() != 0;
+        this.pruneLevels = in.readByte() != 0;
+        this.workerCount = in.readInt();
+        this.reservedCores = in.readInt();
+        this.gcPolicy = GcPolicy.values()[in.readInt()];
+        this.measureAllocations = in.readByte() != 0;
+        this.collectSolverMetrics = in.readByte() != 0;
+        this.ranking = Ranking.values()[in.readInt()];
+    }
+
+    /**
+     * @param iterationCount The number of times each optimisation level is sampled when not {@link #adaptive(boolean) adaptive}
+     */
+    @NonNull
+    public MeasurementOptions iterationCount(int iterationCount) {
+        if (iterationCount < 1) throw new IllegalArgumentException("iterationCount must be at least 1, was " + iterationCount);
+        this.iterationCount = iterationCount;
+        return this;
+    }
+
+    @NonNull
+    public MeasurementOptions adaptive(boolean adaptive) {
+        this.adaptive = adaptive;
+        return this;
+    }
+
+    /**
+     * @param minIterations The number of samples taken for each optimisation level before checking the confidence interval in {@link #adaptive(boolean) adaptive} mode
+     */
+    @NonNull
+    public MeasurementOptions minIterations(int minIterations) {
+        if (minIterations < 1) throw new IllegalArgumentException("minIterations must be at least 1, was " + minIterations);
+        this.minIterations = minIterations;
+        return this;
+    }
+
+    /**
+     * @param maxIterations The most samples taken for each optimisation level in {@link #adaptive(boolean) adaptive} mode, even if the confidence interval is still too wide
+     */
+    @NonNull
+    public MeasurementOptions maxIterations(int maxIterations) {
+        if (maxIterations < 1) throw new IllegalArgumentException("maxIterations must be at least 1, was " + maxIterations);
+        this.maxIterations = maxIterations;
+        return this;
+    }
+
+    /**
+     * @param targetRelativeConfidenceWidth The width of the median's confidence interval, as a fraction of the median, below which
+     *                                      sampling of an optimisation level stops in {@link #adaptive(boolean) adaptive} mode, e.g. 0.05 for 5%
+     */
+    @NonNull
+    public MeasurementOptions targetRelativeConfidenceWidth(double targetRelativeConfidenceWidth) {
+        if (targetRelativeConfidenceWidth <= 0) throw new IllegalArgumentException("targetRelativeConfidenceWidth must be positive, was " + targetRelativeConfidenceWidth);
+        this.targetRelativeConfidenceWidth = targetRelativeConfidenceWidth;
+        return this;
+    }
+
+    /**
+     * @param racing Whether to stop sampling optimisation levels once they are statistically slower than the fastest level.
+     *               The total number of iterations stays the same, so this is most useful with a large {@link #iterationCount(int)}.
+     *               Racing always measures in rounds, so a {@link Schedule#SEQUENTIAL} schedule is treated as {@link Schedule#ROUND_ROBIN}
+     */
+    @NonNull
+    public MeasurementOptions racing(boolean racing) {
+        this.racing = racing;
+        return this;
+    }
+
+    /**
+     * @param racingRounds The number of rounds over all optimisation levels before any level can be eliminated in {@link #racing(boolean) racing} mode
+     */
+    @NonNull
+    public MeasurementOptions racingRounds(int racingRounds) {
+        if (racingRounds < 1) throw new IllegalArgumentException("racingRounds must be at least 1, was " + racingRounds);
+        this.racingRounds = racingRounds;
+        return this;
+    }
+
+    /**
+     * @param warmupIterations The number of times every optimisation level is measured and discarded before sampling starts
+     */
+    @NonNull
+    public MeasurementOptions warmupIterations(int warmupIterations) {
+        if (warmupIterations < 0) throw new IllegalArgumentException("warmupIterations must not be negative, was " + warmupIterations);
+        this.warmupIterations = warmupIterations;
+        return this;
+    }
+
+    /**
+     * @param coldIterations The number of freshly inflated layouts whose first measure and layout pass is sampled for each
+     *                       optimisation level, or 0 to not measure cold performance. Each cold sample inflates the layout again
+     */
+    @NonNull
+    public MeasurementOptions coldIterations(int coldIterations) {
+        if (coldIterations < 0) throw new IllegalArgumentException("coldIterations must not be negative, was " + coldIterations);
+        this.coldIterations = coldIterations;
+        return this;
+    }
+
+    @NonNull
+    public MeasurementOptions schedule(@NonNull Schedule schedule) {
+        this.schedule = schedule;
+        return this;
+    }
+
+    /**
+     * @param seed Seeds the {@link Schedule#RANDOMISED} schedule so a run can be reproduced. If not set a random seed is used,
+     *             which is recorded in {@link DeterminedOptimisers#getSeed()}
+     */
+    @NonNull
+    public MeasurementOptions seed(long seed) {
+        this.hasSeed = true;
+        this.seed = seed;
+        return this;
+    }
+
+    /**
+     * Adds a cell to the matrix of device configurations each layout is measured with. Each cell produces its own
+     * {@link DeterminedOptimisers}, so the levels which win on each kind of device can be compared
+     */
+    @NonNull
+    public MeasurementOptions deviceConfiguration(@NonNull DeviceConfiguration deviceConfiguration) {
+        this.deviceConfigurations.add(deviceConfiguration);
+        return this;
+    }
+
+    /**
+     * @param significanceLevel The largest Mann-Whitney U p-value at which a level is considered to differ from the current
+     *                          level, e.g. 0.05. It applies to all the levels together, the p-values are adjusted for how many
+     *                          levels are compared
+     */
+    @NonNull
+    public MeasurementOptions significanceLevel(double significanceLevel) {
+        if (significanceLevel <= 0 || significanceLevel >= 1) throw new IllegalArgumentException("significanceLevel must be between 0 and 1, was " + significanceLevel);
+        this.significanceLevel = significanceLevel;
+        return this;
+    }
+
+    /**
+     * @param minEffectSize The smallest reduction of the median duration, as a fraction of the current level's median, for which
+     *                      a level is recommended, e.g. 0.02 for 2%
+     */
+    @NonNull
+    public MeasurementOptions minEffectSize(double minEffectSize) {
+        if (minEffectSize < 0 || minEffectSize >= 1) throw new IllegalArgumentException("minEffectSize must be at least 0 and less than 1, was " + minEffectSize);
+        this.minEffectSize = minEffectSize;
+        return this;
+    }
+
+    /**
+     * @param keepSamples Whether every {@link OptimiserResult} keeps its raw samples, e.g. to export them for offline analysis.
+     *                    This makes results, and so the {@link com.github.maciejkaznowski.constraintlayoutoptimizer.data.cache.ResultCache cache},
+     *                    grow with the number of iterations
+     */
+    @NonNull
+    public MeasurementOptions keepSamples(boolean keepSamples) {
+        this.keepSamples = keepSamples;
+        return this;
+    }
+
+    /**
+     * @param pruneLevels Whether to skip optimisation levels which only differ by flags for features the layout doesn't use,
+     *                    i.e. barriers, chains, match constraint dimensions and dimension ratios. This can reduce the 32 levels
+     *                    to as few as 2, plus the current level. Off by default, so every level is measured and reported unless
+     *                    asked otherwise
+     */
+    @NonNull
+    public MeasurementOptions pruneLevels(boolean pruneLevels) {
+        this.pruneLevels = pruneLevels;
+        return this;
+    }
+
+    /**
+     * @param workerCount The number of layouts a {@link MeasurementRunner} measures at the same time, each on its own thread.
+     *                    1 measures one layout at a time
+     */
+    @NonNull
+    public MeasurementOptions workerCount(int workerCount) {
+        if (workerCount < 1) throw new IllegalArgumentException("workerCount must be at least 1, was " + workerCount);
+        this.workerCount = workerCount;
+        return this;
+    }
+
+    /**
+     * Android doesn't allow pinning threads to cores, so cores are isolated by never running more workers than there are
+     * cores left after reserving these, e.g. for the main thread and the system
+     *
+     * @param reservedCores The number of cores left idle when choosing the {@link #getWorkerCount(int) worker count}
+     */
+    @NonNull
+    public MeasurementOptions reservedCores(int reservedCores) {
+        if (reservedCores < 0) throw new IllegalArgumentException("reservedCores must not be negative, was " + reservedCores);
+        this.reservedCores = reservedCores;
+        return this;
+    }
+
+    @NonNull
+    public MeasurementOptions gcPolicy(@NonNull GcPolicy gcPolicy) {
+        this.gcPolicy = gcPolicy;
+        return this;
+    }
+
+    /**
+     * @param measureAllocations Whether to measure the bytes allocated by each sample, see {@link OptimiserResult#getMedianAllocatedBytes()}.
+     *                           On Android this enables allocation counting, which makes allocating slightly slower
+     */
+    @NonNull
+    public MeasurementOptions measureAllocations(boolean measureAllocations) {
+        this.measureAllocations = measureAllocations;
+        return this;
+    }
+
+    /**
+     * ConstraintLayout keeps the solver's metrics in a static field, so collecting them limits a {@link MeasurementRunner} to
+     * a single worker. Counting also adds a little to every sample's duration, equally for every level
+     *
+     * @param collectSolverMetrics Whether to record the {@link SolverCounter solver work} of every sample
+     */
+    @NonNull
+    public MeasurementOptions collectSolverMetrics(boolean collectSolverMetrics) {
+        this.collectSolverMetrics = collectSolverMetrics;
+        return this;
+    }
+
+    /**
+     * @param ranking What the {@link DeterminedOptimisers#getRecommended() recommended} level is chosen by.
+     *                {@link Ranking#SOLVER_WORK} always collects solver metrics
+     */
+    @NonNull
+    public MeasurementOptions ranking(@NonNull Ranking ranking) {
+        this.ranking = ranking;
+        return this;
+    }
+
+    public int getIterationCount() {
+        return iterationCount;
+    }
+
+    public boolean isAdaptive() {
+        return adaptive;
+    }
+
+    public int getMinIterations() {
+        return minIterations;
+    }
+
+    public int getMaxIterations() {
+        return Math.max(minIterations, maxIterations);
+    }
+
+    public double getTargetRelativeConfidenceWidth() {
+        return targetRelativeConfidenceWidth;
+    }
+
+    public boolean isRacing() {
+        return racing;
+    }
+
+    public int getRacingRounds() {
+        return racingRounds;
+    }
+
+    public int getWarmupIterations() {
+        return warmupIterations;
+    }
+
+    public int getColdIterations() {
+        return coldIterations;
+    }
+
+    @NonNull
+    public Schedule getSchedule() {
+        return schedule;
+    }
+
+    public boolean hasSeed() {
+        return hasSeed;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * @return The device configurations to measure with, never empty
+     */
+    @NonNull
+    public List<DeviceConfiguration> getDeviceConfigurations() {
+        if (deviceConfigurations.isEmpty()) return Collections.singletonList(new DeviceConfiguration(1920, 1080));
+        return Collections.unmodifiableList(deviceConfigurations);
+    }
+
+    public double getSignificanceLevel() {
+        return significanceLevel;
+    }
+
+    public double getMinEffectSize() {
+        return minEffectSize;
+    }
+
+    public boolean isKeepingSamples() {
+        return keepSamples;
+    }
+
+    public boolean isPruningLevels() {
+        return pruneLevels;
+    }
+
+    public int getWorkerCount() {
+        return workerCount;
+    }
+
+    /**
+     * @param availableProcessors The number of cores of the device, see {@link Runtime#availableProcessors()}
+     * @return The number of workers to use on the device, which is at least 1 even if every core is reserved, and 1 when
+     * {@link #collectSolverMetrics(boolean) collecting solver metrics}
+     */
+    public int getWorkerCount(int availableProcessors) {
+        if (isCollectingSolverMetrics()) return 1;
+        return Math.max(1, Math.min(workerCount, availableProcessors - reservedCores));
+    }
+
+    public int getReservedCores() {
+        return reservedCores;
+    }
+
+    @NonNull
+    public GcPolicy getGcPolicy() {
+        return gcPolicy;
+    }
+
+    public boolean isMeasuringAllocations() {
+        return measureAllocations;
+    }
+
+    public boolean isCollectingSolverMetrics() {
+        return collectSolverMetrics || ranking == Ranking.SOLVER_WORK;
+    }
+
+    @NonNull
+    public Ranking getRanking() {
+        return ranking;
+    }
+
+    @Override
+    public String toString() {
+        return "MeasurementOptions{" +
+                "iterationCount=" + iterationCount +
+                ", adaptive=" + adaptive +
+                ", minIterations=" + minIterations +
+                ", maxIterations=" + maxIterations +
+                ", targetRelativeConfidenceWidth=" + targetRelativeConfidenceWidth +
+                ", racing=" + racing +
+                ", racingRounds=" + racingRounds +
+                ", warmupIterations=" + warmupIterations +
+                ", coldIterations=" + coldIterations +
+                ", schedule=" + schedule +
+                (hasSeed ? ", seed=" + seed : "") +
+                ", deviceConfigurations=" + deviceConfigurations +
+                ", significanceLevel=" + significanceLevel +
+                ", minEffectSize=" + minEffectSize +
+                ", keepSamples=" + keepSamples +
+                ", pruneLevels=" + pruneLevels +
+                ", workerCount=" + workerCount +
+                ", reservedCores=" + reservedCores +
+                ", gcPolicy=" + gcPolicy +
+                ", measureAllocations=" + measureAllocations +
+                ", collectSolverMetrics=" + collectSolverMetrics +
+                ", ranking=" + ranking +
+                '}';
+    }
+
+    @Override
+    public int describeContents() {
+        return 0;
+    }
+
+    @Override
+    public void writeToParcel(Parcel dest, int flags) {
+        dest.writeInt(this.iterationCount);
+        dest.writeByte(this.adaptive ? (byte) 1 : (byte) 0);
+        dest.writeInt(this.minIterations);
+        dest.writeInt(this.maxIterations);
+        dest.writeDouble(this.targetRelativeConfidenceWidth);
+        dest.writeByte(this.racing ? (byte) 1 : (byte) 0);
+        dest.writeInt(this.racingRounds);
+        dest.writeInt(this.warmupIterations);
+        dest.writeInt(this.coldIterations);
+        dest.writeInt(this.schedule.ordinal());
+        dest.writeByte(this.hasSeed ? (byte) 1 : (byte) 0);
+        dest.writeLong(this.seed);
+        dest.writeTypedList(this.deviceConfigurations);
+        dest.writeDouble(this.significanceLevel);
+        dest.writeDouble(this.minEffectSize);
+        dest.writeByte(this.keepSamples ? (byte) 1 : (byte) 0);
+        dest.writeByte(this.pruneLevels ? (byte) 1 : (byte) 0);
+        dest.writeInt(this.workerCount);
+        dest.writeInt(this.reservedCores);
+        dest.writeInt(this.gcPolicy.ordinal());
+        dest.writeByte(this.measureAllocations ? (byte) 1 : (byte) 0);
+        dest.writeByte(this.collectSolverMetrics ? (byte) 1 : (byte) 0);
+        dest.writeInt(this.ranking.ordinal());
+    }
+
+    public enum Schedule {
+        /**
+         * All iterations of one optimisation level are measured before moving on to the next level
+         */
+        SEQUENTIAL,
+        /**
+         * Each round measures every optimisation level once, starting from a different level each round
+         */
+        ROUND_ROBIN,
+        /**
+         * Each round measures every optimisation level once, in a seeded random order
+         */
+        RANDOMISED
+    }
+
+    /**
+     * What the recommended optimisation level is chosen by
+     */
+    public enum Ranking {
+        /**
+         * The median duration, when significantly faster than the current level by at least the minimum effect size
+         */
+        WALL_CLOCK,
+        /**
+         * The {@link OptimiserResult#getSolverWork() solver work}, when lower than the current level's by at least the minimum
+         * effect size. Levels doing the same work are ranked by median duration
+         */
+        SOLVER_WORK
+    }
+
+    /**
+     * What to do with samples during which a garbage collection ran, whose durations include the GC pause instead of only the solver
+     */
+    public enum GcPolicy {
+        /**
+         * Don't check for garbage collections
+         */
+        IGNORE,
+        /**
+         * Keep the samples but count them, see {@link OptimiserResult#getGcSampleCount()}
+         */
+        FLAG,
+        /**
+         * Discard the samples and measure again, at most once for every kept sample, see {@link OptimiserResult#getRejectedSampleCount()}
+         */
+        REJECT
+    }
+}
@@ -0,0 +1,295 @@
+package com.github.maciejkaznowski.constraintlayoutoptimizer.data.measurer;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+import androidx.appcompat.view.ContextThemeWrapper;
+
+import com.github.maciejkaznowski.constraintlayoutoptimizer.Layout;
+import com.github.maciejkaznowski.constraintlayoutoptimizer.Layouts;
+import com.github.maciejkaznowski.constraintlayoutoptimizer.data.cache.ResultCache;
+import com.github.maciejkaznowski.constraintlayoutoptimizer.data.export.ResultExporter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Finds, inflates and measures layouts on a background thread, delivering the {@link DeterminedOptimisers}
+ * of each layout to a {@link Listener} on the main thread as soon as that layout has been measured.
+ * <p>
+ * With more than one {@link MeasurementOptions#workerCount(int) worker}, layouts are measured on a pool of worker threads.
+ * Every layout is inflated through its own context, with its own LayoutInflater and copy of the theme, and inflated hierarchies
+ * are never attached to a window, so workers share no views. Results are delivered in the order layouts finish, the cache and
+ * exporter are shared by all workers.
+ * <p>
+ * A layout which fails to measure is reported with no results, and doesn't stop the other layouts from being measured.
+ */
+public class MeasurementRunner {
+
+    private static final String TAG = "MeasurementRunner";
+
+    @NonNull private final Context context;
+    @NonNull private final Layouts layouts;
+    @NonNull private final MeasurementOptions options;
+    @NonNull private final Listener listener;
+    @Nullable private final ResultCache cache;
+    @Nullable private final ResultExporter exporter;
+    @NonNull private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    @NonNull private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, TAG));
+    @Nullable private volatile ExecutorService workers;
+    private volatile boolean cancelled = false;
+
+    /**
+     * @param context  The context used to find and inflate the layouts, e.g. the hosting Activity so the layouts are inflated with its theme
+     * @param layouts  The layouts to measure
+     * @param options  How each layout is measured
+     * @param listener Notified on the main thread of progress
+     */
+    public MeasurementRunner(@NonNull Context context,
+                             @NonNull Layouts layouts,
+                             @NonNull MeasurementOptions options,
+                             @NonNull Listener listener) {
+        this(context, layouts, options, null, listener);
+    }
+
+    /**
+     * @param cache Results of layouts which haven't changed since they were cached are taken from here instead of measuring
+     *              them again, and newly measured results are stored in it. Null to always measure
+     */
+    public MeasurementRunner(@NonNull Context context,
+                             @NonNull Layouts layouts,
+                             @NonNull MeasurementOptions options,
+                             @Nullable ResultCache cache,
+                             @NonNull Listener listener) {
+        this(context, layouts, options, cache, null, listener);
+    }
+
+    /**
+     * @param exporter Each layout's results are written to this as soon as the layout has been measured, it is closed when
+     *                 measuring finishes or is cancelled. Null to not export results
+     */
+    public MeasurementRunner(@NonNull Context context,
+                             @NonNull Layouts layouts,
+                             @NonNull MeasurementOptions options,
+                             @Nullable ResultCache cache,
+                             @Nullable ResultExporter exporter,
+                             @NonNull Listener listener) {
+        this.context = context;
+        this.layouts = layouts;
+        this.options = options;
+        this.cache = cache;
+        this.exporter = exporter;
+        this.listener = listener;
+    }
+
+    @MainThread
+    public void start() {
+        executor.execute(this::measureLayouts);
+    }
+
+    /**
+     * Stops measuring after the layout currently being measured, no further callbacks will be delivered to the listener
+     */
+    @MainThread
+    public void cancel() {
+        cancelled = true;
+        mainHandler.removeCallbacksAndMessages(null);
+        executor.shutdownNow();
+        ExecutorService workers = this.workers;
+        if (workers != null) workers.shutdownNow();
+    }
+
+    @WorkerThread
+    private void measureLayouts() {
+        try {
+            measureAndExportLayouts();
+        } finally {
+            closeExporter();
+        }
+    }
+
+    @WorkerThread
+    private void measureAndExportLayouts() {
+        List<Layout> layouts;
+        try {
+            layouts = this.layouts.find(context);
+        } catch (Throwable throwable) {
+            post(() -> listener.onError(throwable));
+            return;
+        }
+
+        List<Layout> foundLayouts = new ArrayList<>(layouts);
+        post(() -> listener.onLayoutsFound(foundLayouts));
+
+        int workerCount = options.getWorkerCount(Runtime.getRuntime().availableProcessors());
+        if (workerCount == 1) {
+            for (Layout layout : layouts) {
+                measureLayout(layout);
+            }
+        } else {
+            measureLayoutsInParallel(layouts, workerCount);
+        }
+        if (cancelled) return;
+
+        Log.d(TAG, "Finished");
+        post(listener::onFinished);
+    }
+
+    /**
+     * Measures the layouts on a new pool of worker threads, returning when all layouts have been measured or measuring was cancelled
+     */
+    @WorkerThread
+    private void measureLayoutsInParallel(@NonNull List<Layout> layouts, int workerCount) {
+        AtomicInteger workerNumber = new AtomicInteger();
+        ExecutorService workers = Executors.newFixedThreadPool(workerCount, runnable -> new Thread(runnable, TAG + "-" + workerNumber.incrementAndGet()));
+        this.workers = workers;
+        try {
+            List<Future<?>> futures = new ArrayList<>(layouts.size());
+            for (Layout layout : layouts) {
+                futures.add(workers.submit(() -> measureLayout(layout)));
+            }
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    futures.get(i).get();
+                } catch (ExecutionException e) {
+                    //measureLayout() reports exceptions itself, so only errors end up here
+                    Layout layout = layouts.get(i);
+                    Log.e(TAG, "Could not measure " + layout, e.getCause());
+                    post(() -> listener.onLayoutMeasured(layout, new ArrayList<>()));
+                }
+            }
+            workers.shutdown();
+        } catch (InterruptedException | RejectedExecutionException e) {
+            //cancelled, so stop the layouts which haven't been measured yet
+            workers.shutdownNow();
+            Thread.currentThread().interrupt();
+        } finally {
+            this.workers = null;
+        }
+    }
+
+    /**
+     * Measures the layout and delivers its results, which are empty if it could not be measured
+     */
+    @WorkerThread
+    private void measureLayout(@NonNull Layout layout) {
+        if (cancelled) return;
+
+        List<DeterminedOptimisers> result;
+        try {
+            result = determineOptimisers(layout);
+        } catch (RuntimeException e) {
+            Log.e(TAG, "Could not measure " + layout, e);
+            result = new ArrayList<>();
+        }
+        List<DeterminedOptimisers> optimisers = result;
+        export(layout, optimisers);
+        post(() -> listener.onLayoutMeasured(layout, optimisers));
+    }
+
+    /**
+     * Inflating through a shared context would use a single LayoutInflater, whose inflate() is synchronized, and a single
+     * theme, so every layout gets its own
+     *
+     * @return A context with the theme of {@link #context}, but its own LayoutInflater and copy of the theme
+     */
+    @NonNull
+    private Context createLayoutContext() {
+        Resources.Theme theme = context.getResources().newTheme();
+        theme.setTo(context.getTheme());
+        return new ContextThemeWrapper(context, theme);
+    }
+
+    @WorkerThread
+    private void export(@NonNull Layout layout, @NonNull List<DeterminedOptimisers> optimisers) {
+        if (exporter == null) return;
+        //workers finish in any order, but each layout's records must stay together
+        synchronized (exporter) {
+            try {
+                exporter.write(layout, optimisers);
+            } catch (IOException e) {
+                Log.w(TAG, "Could not export results of " + layout, e);
+            }
+        }
+    }
+
+    @WorkerThread
+    private void closeExporter() {
+        if (exporter == null) return;
+        synchronized (exporter) {
+            try {
+                exporter.close();
+            } catch (IOException e) {
+                Log.w(TAG, "Could not close exporter", e);
+            }
+        }
+    }
+
+    @NonNull
+    @WorkerThread
+    private List<DeterminedOptimisers> determineOptimisers(@NonNull Layout layout) {
+        if (cache != null) {
+            List<DeterminedOptimisers> cached = cache.get(context, layout, options);
+            if (cached != null) {
+                Log.d(TAG, "using cached optimisers for " + layout);
+                return cached;
+            }
+        }
+
+        List<DeterminedOptimisers> determinedOptimisers = new ArrayList<>();
+        try {
+            determinedOptimisers = DeterminedOptimisers.fromLayout(createLayoutContext(), layout, options);
+        } catch (ViewMeasureException | ViewLayoutException e) {
+            e.printStackTrace();
+        }
+        Log.d(TAG, "finished determining optimisers for " + layout);
+
+        //don't cache failures, they may be fixed without changing the layout
+        if (cache != null && !determinedOptimisers.isEmpty()) cache.put(context, layout, options, determinedOptimisers);
+        return determinedOptimisers;
+    }
+
+    private void post(@NonNull Runnable runnable) {
+        mainHandler.post(() -> {
+            if (!cancelled) runnable.run();
+        });
+    }
+
+    /**
+     * All methods are called on the main thread
+     */
+    public interface Listener {
+
+        /**
+         * @param layouts The layouts which will be measured, in the order they will be measured when there is a single worker
+         */
+        void onLayoutsFound(@NonNull List<Layout> layouts);
+
+        /**
+         * @param layout     The layout which has just been measured
+         * @param optimisers One element for each ConstraintLayout in the layout, empty if the layout could not be measured
+         */
+        void onLayoutMeasured(@NonNull Layout layout, @NonNull List<DeterminedOptimisers> optimisers);
+
+        void onFinished();
+
+        /**
+         * @param throwable Why the layouts could not be found, no further callbacks will be made
+         */
+        void onError(@NonNull Throwable throwable);
+    }
+}
@@ -0,0 +1,31 @@
+package com.github.maciejkaznowski.constraintlayoutoptimizer.data.measurer;
+
+import androidx.annotation.NonNull;
+import androidx.constraintlayout.widget.ConstraintLayout;
+
+/**
+ * Decides what a single sample of an optimisation level does to the ConstraintLayout, e.g. {@link MeasureOnlyStrategy only measure it},
+ * {@link MeasureAndLayoutStrategy measure and lay it out} or {@link MeasureLayoutAndDrawStrategy also draw it}.
+ * <p>
+ * The whole sample is timed, so {@link #measure} must not allocate. Anything which needs allocating belongs in {@link #prepare}.
+ * Strategies may keep state between samples, so an instance must only be used by one thread at a time.
+ */
+public interface MeasurementStrategy {
+
+    /**
+     * Called before any sample of a ConstraintLayout, outside of the timed window
+     *
+     * @param viewport The size the layout will be measured with
+     */
+    void prepare(@NonNull DeviceConfiguration viewport);
+
+    /**
+     * Runs one sample. The optimisation level has already been set. Each sample must measure with different specs than the
+     * previous sample, so the View measure cache is never hit
+     *
+     * @param recorder Receives the duration of each phase the sample runs
+     */
+    void measure(@NonNull ConstraintLayout constraintLayout,
+                 @NonNull DeviceConfiguration viewport,
+                 @NonNull PhaseRecorder recorder) throws ViewMeasureException, ViewLayoutException;
+}
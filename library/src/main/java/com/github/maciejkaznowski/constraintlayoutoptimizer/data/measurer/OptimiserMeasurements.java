@@ -0,0 +1,27 @@
+package com.github.maciejkaznowski.constraintlayoutoptimizer.data.measurer;
+
+import androidx.annotation.NonNull;
+
+class OptimiserMeasurements {
+
+    @NonNull private final SampleBuffer[] buffers;
+    @NonNull private final boolean[] eliminated;
+
+    /**
+     * @param buffers    The samples of each measured optimisation level
+     * @param eliminated Whether each optimisation level was dropped early for being slower than the leader
+     */
+    OptimiserMeasurements(@NonNull SampleBuffer[] buffers, @NonNull boolean[] eliminated) {
+        this.buffers = buffers;
+        this.eliminated = eliminated;
+    }
+
+    @NonNull
+    SampleBuffer[] getBuffers() {
+        return buffers;
+    }
+
+    boolean isEliminated(int index) {
+        return eliminated[index];
+    }
+}
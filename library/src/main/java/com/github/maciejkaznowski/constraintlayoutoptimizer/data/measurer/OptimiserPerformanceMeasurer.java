@@ -3,53 +3,378 @@ package com.github.maciejkaznowski.constraintlayoutoptimizer.data.measurer;
 import android.view.View;
 
 import androidx.annotation.NonNull;
-import androidx.constraintlayout.solver.widgets.Optimizer;
+import androidx.annotation.Nullable;
+import androidx.constraintlayout.solver.Metrics;
 import androidx.constraintlayout.widget.ConstraintLayout;
 
+import com.github.maciejkaznowski.constraintlayoutoptimizer.Layout;
+
+import java.util.Random;
+
 class OptimiserPerformanceMeasurer {
 
-    private static final int MIN_OPTIMISATION = Optimizer.OPTIMIZATION_NONE;
-    private static final int MAX_OPTIMISATION = 31; //bitwise or of all available optimisers
-    private static final int ITERATION_COUNT = 5;
+    private static final int ALL_OPTIMISATIONS = 31; //bitwise or of all available optimisers
 
-    static OptimiserMetric[][] measureOptimisers(@NonNull ConstraintLayout constraintLayout) throws ViewMeasureException, ViewLayoutException {
+    /**
+     * @return The seed from the options, or a new random seed if the options don't have one
+     */
+    static long resolveSeed(@NonNull MeasurementOptions options) {
+        return options.hasSeed() ? options.getSeed() : new Random().nextLong();
+    }
+
+    /**
+     * @return The optimisation levels worth measuring for the ConstraintLayout, which always include its current level.
+     * When {@link MeasurementOptions#pruneLevels(boolean) pruning}, levels which only differ by flags for features the layout
+     * doesn't use are left out, see {@link ConstraintFeatures}
+     */
+    @NonNull
+    static int[] getCandidateLevels(@NonNull ConstraintLayout constraintLayout, @NonNull MeasurementOptions options) {
+        int relevantFlags = options.isPruningLevels() ? ConstraintFeatures.getRelevantFlags(constraintLayout) : ALL_OPTIMISATIONS;
+        return ConstraintFeatures.getCandidateLevels(relevantFlags, constraintLayout.getOptimizationLevel());
+    }
+
+    /**
+     * The sampling loop records into preallocated {@link SampleBuffer}s, so nothing is allocated between the
+     * {@link System#nanoTime()} reads of a sample and no GC caused by earlier samples lands inside a later sample.
+     * Garbage collections which still run during a sample are handled by the {@link MeasurementOptions#gcPolicy(MeasurementOptions.GcPolicy) GC policy}.
+     *
+     * @param levels   The optimisation levels to measure, see {@link #getCandidateLevels(ConstraintLayout, MeasurementOptions)}
+     * @param strategy What each sample does to the layout
+     * @param viewport The size the layout is measured with
+     * @param seed     Seeds the order levels are measured in, see {@link #resolveSeed(MeasurementOptions)}
+     */
+    static OptimiserMeasurements measureOptimisers(@NonNull ConstraintLayout constraintLayout,
+                                                   @NonNull int[] levels,
+                                                   @NonNull MeasurementOptions options,
+                                                   @NonNull MeasurementStrategy strategy,
+                                                   @NonNull DeviceConfiguration viewport,
+                                                   long seed) throws ViewMeasureException, ViewLayoutException {
         //save the original optimisations to restore after changing it
         int originalOptimisations = constraintLayout.getOptimizationLevel();
 
-        final OptimiserMetric[][] metrics = new OptimiserMetric[MAX_OPTIMISATION - MIN_OPTIMISATION + 1][ITERATION_COUNT];
-
-        for (int optimisation = MIN_OPTIMISATION; optimisation <= MAX_OPTIMISATION; optimisation++) {
-            for (int iteration = 0; iteration < ITERATION_COUNT; iteration++) {
-                long fromNs = System.nanoTime();
-                constraintLayout.setOptimizationLevel(optimisation);
-                // Not to use the view cache in the View class, use the different measureSpecs
-                // for each calculation. (Switching the
-                // View.MeasureSpec.EXACT and View.MeasureSpec.AT_MOST alternately)
-                measureAndLayoutWrapLength(constraintLayout);
-                measureAndLayoutExactLength(constraintLayout);
-                metrics[optimisation][iteration] = new OptimiserMetric(System.nanoTime() - fromNs, optimisation);
+        strategy.prepare(viewport);
+        warmUp(constraintLayout, levels, options, strategy, viewport);
+
+        final int levelCount = levels.length;
+        LevelScheduler scheduler = new LevelScheduler(options.getSchedule(), seed, levelCount);
+        GcProbe probe = GcProbe.create(options);
+        Metrics metrics = options.isCollectingSolverMetrics() ? new Metrics() : null;
+        if (metrics != null) constraintLayout.fillMetrics(metrics);
+        OptimiserMeasurements measurements;
+        try {
+            if (options.isRacing()) {
+                measurements = race(constraintLayout, levels, options, strategy, viewport, scheduler, probe, metrics);
+            } else if (options.getSchedule() == MeasurementOptions.Schedule.SEQUENTIAL) {
+                SampleBuffer[] buffers = createBuffers(levels, getIterationsPerOptimisation(options), false);
+                for (SampleBuffer buffer : buffers) {
+                    measureOptimiser(constraintLayout, buffer, options, strategy, viewport, probe, metrics);
+                }
+                measurements = new OptimiserMeasurements(buffers, new boolean[levelCount]);
+            } else {
+                measurements = measureInterleaved(constraintLayout, levels, options, strategy, viewport, scheduler, probe, metrics);
             }
+        } finally {
+            if (probe != null) probe.close();
+            //the solver's metrics are static, so stop other layouts from counting into them
+            if (metrics != null) constraintLayout.fillMetrics(null);
         }
 
         //restore original optimisation level
         constraintLayout.setOptimizationLevel(originalOptimisations);
 
-        return metrics;
+        return measurements;
     }
 
-    private static void measureAndLayoutWrapLength(ConstraintLayout constraintLayout) throws ViewLayoutException, ViewMeasureException {
-        measureAndLayout(constraintLayout, View.MeasureSpec.AT_MOST);
+    /**
+     * Measures only the first measure and layout pass of each freshly inflated ConstraintLayout, i.e. before any of the
+     * solver's or views' caches have been populated.
+     *
+     * @param factory  Inflates a new copy of the ConstraintLayout for every sample
+     * @param levels   The optimisation levels to measure
+     * @param viewport The size the layout is measured with
+     * @param seed     Seeds the order levels are measured in, see {@link #resolveSeed(MeasurementOptions)}
+     */
+    static OptimiserMeasurements measureColdOptimisers(@NonNull ConstraintLayoutFactory factory,
+                                                       @NonNull int[] levels,
+                                                       @NonNull MeasurementOptions options,
+                                                       @NonNull DeviceConfiguration viewport,
+                                                       long seed) throws ViewMeasureException, ViewLayoutException, Layout.InflateException {
+        return measureColdOptimisers(factory, levels, options, viewport, seed, GcProbe.create(options));
     }
 
-    private static void measureAndLayoutExactLength(ConstraintLayout constraintLayout) throws ViewLayoutException, ViewMeasureException {
-        measureAndLayout(constraintLayout, View.MeasureSpec.EXACTLY);
+    static OptimiserMeasurements measureColdOptimisers(@NonNull ConstraintLayoutFactory factory,
+                                                       @NonNull int[] levels,
+                                                       @NonNull MeasurementOptions options,
+                                                       @NonNull DeviceConfiguration viewport,
+                                                       long seed,
+                                                       @Nullable GcProbe probe) throws ViewMeasureException, ViewLayoutException, Layout.InflateException {
+        final int levelCount = levels.length;
+        SampleBuffer[] buffers = createBuffers(levels, options.getColdIterations(), false);
+        LevelScheduler scheduler = new LevelScheduler(options.getSchedule(), seed, levelCount);
+
+        //alternate between the levels so that each level sees the same state of the class loader and JIT
+        try {
+            for (int iteration = 0; iteration < options.getColdIterations(); iteration++) {
+                for (int index : scheduler.nextRound()) {
+                    //a rejected sample is inflated and measured again, so every level keeps the same number of samples. The
+                    //probe rejects at most one sample per kept sample, so this ends
+                    boolean kept;
+                    do {
+                        kept = measureColdOnce(factory, buffers[index], viewport, probe);
+                    } while (!kept);
+                }
+            }
+        } finally {
+            if (probe != null) probe.close();
+        }
+
+        return new OptimiserMeasurements(buffers, new boolean[levelCount]);
     }
 
-    private static void measureAndLayout(ConstraintLayout constraintLayout, int mode) throws ViewMeasureException, ViewLayoutException {
-        int width = View.MeasureSpec.makeMeasureSpec(1920, mode);
-        int height = View.MeasureSpec.makeMeasureSpec(1080, mode);
-        measure(constraintLayout, width, height);
+    /**
+     * Inflates a new ConstraintLayout and records its first measure and layout pass into the buffer
+     *
+     * @return False if the sample was rejected and must be measured again
+     */
+    private static boolean measureColdOnce(@NonNull ConstraintLayoutFactory factory,
+                                           @NonNull SampleBuffer buffer,
+                                           @NonNull DeviceConfiguration viewport,
+                                           @Nullable GcProbe probe) throws ViewMeasureException, ViewLayoutException, Layout.InflateException {
+        ConstraintLayout constraintLayout = factory.create();
+        if (probe != null) probe.start();
+        long fromNs = System.nanoTime();
+        constraintLayout.setOptimizationLevel(buffer.getOptimizer());
+        long measureFromNs = System.nanoTime();
+        measure(constraintLayout, View.MeasureSpec.EXACTLY, viewport);
+        long layoutFromNs = System.nanoTime();
         layout(constraintLayout);
+        long toNs = System.nanoTime();
+        if (probe != null && rejectOrKeep(probe, buffer)) return false;
+
+        buffer.setPhaseDuration(MeasurePhase.EXACT_MEASURE, layoutFromNs - measureFromNs);
+        buffer.setPhaseDuration(MeasurePhase.EXACT_LAYOUT, toNs - layoutFromNs);
+        buffer.record(toNs - fromNs);
+        return true;
+    }
+
+    /**
+     * Runs every optimisation level a few times without recording anything, so that class loading, JIT compilation and
+     * solver caches don't penalise whichever levels happen to be measured first
+     */
+    private static void warmUp(@NonNull ConstraintLayout constraintLayout,
+                               @NonNull int[] levels,
+                               @NonNull MeasurementOptions options,
+                               @NonNull MeasurementStrategy strategy,
+                               @NonNull DeviceConfiguration viewport) throws ViewMeasureException, ViewLayoutException {
+        if (options.getWarmupIterations() == 0) return;
+
+        SampleBuffer discarded = new SampleBuffer(levels[0], 1, false);
+        for (int iteration = 0; iteration < options.getWarmupIterations(); iteration++) {
+            for (int optimisation : levels) {
+                measureOnce(constraintLayout, optimisation, strategy, viewport, discarded, null, null);
+                discarded.clear();
+            }
+        }
+    }
+
+    private static void measureOptimiser(@NonNull ConstraintLayout constraintLayout,
+                                         @NonNull SampleBuffer buffer,
+                                         @NonNull MeasurementOptions options,
+                                         @NonNull MeasurementStrategy strategy,
+                                         @NonNull DeviceConfiguration viewport,
+                                         @Nullable GcProbe probe,
+                                         @Nullable Metrics metrics) throws ViewMeasureException, ViewLayoutException {
+        while (!buffer.isFull()) {
+            measureOnce(constraintLayout, buffer.getOptimizer(), strategy, viewport, buffer, probe, metrics);
+            if (isPreciseEnough(buffer, options)) break;
+        }
+    }
+
+    /**
+     * Samples every optimisation level once per round, in the order given by the scheduler, until each level has either been
+     * sampled enough times or is {@link #isPreciseEnough(SampleBuffer, MeasurementOptions) precise enough}
+     */
+    @NonNull
+    private static OptimiserMeasurements measureInterleaved(@NonNull ConstraintLayout constraintLayout,
+                                                            @NonNull int[] levels,
+                                                            @NonNull MeasurementOptions options,
+                                                            @NonNull MeasurementStrategy strategy,
+                                                            @NonNull DeviceConfiguration viewport,
+                                                            @NonNull LevelScheduler scheduler,
+                                                            @Nullable GcProbe probe,
+                                                            @Nullable Metrics metrics) throws ViewMeasureException, ViewLayoutException {
+        final int levelCount = levels.length;
+        SampleBuffer[] buffers = createBuffers(levels, getIterationsPerOptimisation(options), false);
+        boolean[] finished = new boolean[levelCount];
+        int remaining = levelCount;
+
+        while (remaining > 0) {
+            for (int index : scheduler.nextRound()) {
+                if (finished[index]) continue;
+
+                SampleBuffer buffer = buffers[index];
+                measureOnce(constraintLayout, buffer.getOptimizer(), strategy, viewport, buffer, probe, metrics);
+
+                if (buffer.isFull() || isPreciseEnough(buffer, options)) {
+                    finished[index] = true;
+                    remaining--;
+                }
+            }
+        }
+
+        return new OptimiserMeasurements(buffers, new boolean[levelCount]);
+    }
+
+    /**
+     * @return Whether sampling can stop because the median is known precisely enough, only ever true in adaptive mode
+     */
+    private static boolean isPreciseEnough(@NonNull SampleBuffer buffer, @NonNull MeasurementOptions options) {
+        return options.isAdaptive()
+                && buffer.getCount() >= options.getMinIterations()
+                && Statistics.relativeMedianConfidenceWidth(buffer.getSortedDurations(), buffer.getCount()) <= options.getTargetRelativeConfidenceWidth();
+    }
+
+    /**
+     * Samples every optimisation level once per round. After the {@link MeasurementOptions#getRacingRounds() initial rounds}, any level
+     * whose median confidence interval lies entirely above the leader's is eliminated, and the iterations it would have used are
+     * spent on the remaining levels instead.
+     * <p>
+     * The buffers start with room for the iterations of a normal run and double when a surviving level needs more, which only
+     * allocates after a sample has been recorded.
+     */
+    @NonNull
+    private static OptimiserMeasurements race(@NonNull ConstraintLayout constraintLayout,
+                                              @NonNull int[] levels,
+                                              @NonNull MeasurementOptions options,
+                                              @NonNull MeasurementStrategy strategy,
+                                              @NonNull DeviceConfiguration viewport,
+                                              @NonNull LevelScheduler scheduler,
+                                              @Nullable GcProbe probe,
+                                              @Nullable Metrics metrics) throws ViewMeasureException, ViewLayoutException {
+        final int levelCount = levels.length;
+        final int budget = levelCount * getIterationsPerOptimisation(options);
+
+        SampleBuffer[] buffers = createBuffers(levels, getIterationsPerOptimisation(options), true);
+        boolean[] eliminated = new boolean[levelCount];
+        int survivorCount = levelCount;
+
+        int spent = 0;
+        int round = 0;
+        while (spent < budget && survivorCount > 1) {
+            for (int index : scheduler.nextRound()) {
+                if (spent == budget) break;
+                if (eliminated[index]) continue;
+                measureOnce(constraintLayout, buffers[index].getOptimizer(), strategy, viewport, buffers[index], probe, metrics);
+                spent++;
+            }
+            round++;
+
+            if (round < options.getRacingRounds()) continue;
+
+            survivorCount -= eliminateLosers(buffers, eliminated);
+            if (options.isAdaptive() && round >= options.getMinIterations() && allPreciseEnough(buffers, eliminated, options)) {
+                break;
+            }
+        }
+
+        return new OptimiserMeasurements(buffers, eliminated);
+    }
+
+    /**
+     * @return The number of newly eliminated levels
+     */
+    private static int eliminateLosers(@NonNull SampleBuffer[] buffers, @NonNull boolean[] eliminated) {
+        int leader = -1;
+        double leaderMedian = Double.MAX_VALUE;
+        for (int i = 0; i < buffers.length; i++) {
+            if (eliminated[i]) continue;
+            double median = Statistics.median(buffers[i].getSortedDurations(), buffers[i].getCount());
+            if (leader == -1 || median < leaderMedian) {
+                leader = i;
+                leaderMedian = median;
+            }
+        }
+
+        long leaderUpperBound = Statistics.medianUpperBound(buffers[leader].getSortedDurations(), buffers[leader].getCount());
+        int eliminatedCount = 0;
+        for (int i = 0; i < buffers.length; i++) {
+            if (eliminated[i] || i == leader) continue;
+            if (Statistics.medianLowerBound(buffers[i].getSortedDurations(), buffers[i].getCount()) > leaderUpperBound) {
+                eliminated[i] = true;
+                eliminatedCount++;
+            }
+        }
+        return eliminatedCount;
+    }
+
+    private static boolean allPreciseEnough(@NonNull SampleBuffer[] buffers, @NonNull boolean[] eliminated, @NonNull MeasurementOptions options) {
+        for (int i = 0; i < buffers.length; i++) {
+            if (eliminated[i]) continue;
+            if (Statistics.relativeMedianConfidenceWidth(buffers[i].getSortedDurations(), buffers[i].getCount()) > options.getTargetRelativeConfidenceWidth()) return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return One buffer for every optimisation level, in the same order as the levels
+     */
+    @NonNull
+    private static SampleBuffer[] createBuffers(@NonNull int[] levels, int capacity, boolean growable) {
+        SampleBuffer[] buffers = new SampleBuffer[levels.length];
+        for (int i = 0; i < buffers.length; i++) {
+            buffers[i] = new SampleBuffer(levels[i], capacity, growable);
+        }
+        return buffers;
+    }
+
+    private static int getIterationsPerOptimisation(@NonNull MeasurementOptions options) {
+        return options.isAdaptive() ? options.getMaxIterations() : options.getIterationCount();
+    }
+
+    /**
+     * Measures and records a single sample into the buffer without allocating
+     *
+     * @param probe   Reads garbage collections and allocations around the sample, or null to not probe
+     * @param metrics Filled by the ConstraintLayout with the solver work of the sample, or null to not record solver work
+     */
+    static void measureOnce(@NonNull ConstraintLayout constraintLayout,
+                            int optimisation,
+                            @NonNull MeasurementStrategy strategy,
+                            @NonNull DeviceConfiguration viewport,
+                            @NonNull SampleBuffer buffer,
+                            @Nullable GcProbe probe,
+                            @Nullable Metrics metrics) throws ViewMeasureException, ViewLayoutException {
+        if (metrics != null) metrics.reset();
+        if (probe != null) probe.start();
+        long fromNs = System.nanoTime();
+        constraintLayout.setOptimizationLevel(optimisation);
+        strategy.measure(constraintLayout, viewport, buffer);
+        long toNs = System.nanoTime();
+        if (probe != null && rejectOrKeep(probe, buffer)) return;
+
+        if (metrics != null) buffer.setSolverCounters(metrics);
+        buffer.record(toNs - fromNs);
+    }
+
+    /**
+     * Stops the probe after a sample
+     *
+     * @return True if the sample was rejected and must not be recorded
+     */
+    private static boolean rejectOrKeep(@NonNull GcProbe probe, @NonNull SampleBuffer buffer) {
+        probe.stop();
+        if (probe.shouldReject(buffer)) {
+            buffer.reject(probe);
+            return true;
+        }
+        buffer.setProbeResult(probe);
+        return false;
+    }
+
+    static void measure(ConstraintLayout constraintLayout, int mode, DeviceConfiguration viewport) throws ViewMeasureException {
+        int width = View.MeasureSpec.makeMeasureSpec(viewport.getWidthPx(), mode);
+        int height = View.MeasureSpec.makeMeasureSpec(viewport.getHeightPx(), mode);
+        measure(constraintLayout, width, height);
     }
 
     private static void measure(ConstraintLayout constraintLayout, int width, int height) throws ViewMeasureException {
@@ -60,11 +385,20 @@ class OptimiserPerformanceMeasurer {
         }
     }
 
-    private static void layout(ConstraintLayout constraintLayout) throws ViewLayoutException {
+    static void layout(ConstraintLayout constraintLayout) throws ViewLayoutException {
         try {
             constraintLayout.layout(0, 0, constraintLayout.getMeasuredWidth(), constraintLayout.getMeasuredHeight());
         } catch (Exception e) {
             throw new ViewLayoutException(constraintLayout, e);
         }
     }
+
+    interface ConstraintLayoutFactory {
+
+        /**
+         * @return A newly inflated ConstraintLayout which has not been measured or laid out
+         */
+        @NonNull
+        ConstraintLayout create() throws Layout.InflateException;
+    }
 }
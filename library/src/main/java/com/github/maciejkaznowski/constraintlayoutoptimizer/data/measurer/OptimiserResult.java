@@ -3,8 +3,15 @@ package com.github.maciejkaznowski.constraintlayoutoptimizer.data.measurer;
 import android.os.Parcel;
 import android.os.Parcelable;
 
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
 import com.github.maciejkaznowski.constraintlayoutoptimizer.Utils;
 
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
 import java.util.Arrays;
 
 import static com.github.maciejkaznowski.constraintlayoutoptimizer.Utils.nsToMs;
@@ -16,23 +23,100 @@ public class OptimiserResult implements Parcelable {
     private final long maxDuration;
     private final double medianDuration;
     private final double averageDuration;
+    private final double p25Duration;
+    private final double p75Duration;
+    private final double p90Duration;
+    private final double p99Duration;
+    private final double variance;
     private final int optimizer;
+    private final int sampleCount;
+    private final boolean eliminated;
+    private final double[] phaseMedianDurations;
+    private final double[] phaseAverageDurations;
+    private final double pValue;
+    @Nullable private final long[] samples;
+    private final int gcSampleCount;
+    private final int rejectedSampleCount;
+    private final long gcTimeMillis;
+    private final double medianAllocatedBytes;
+    @Nullable private final double[] solverCounterMedians;
 
-    OptimiserResult(OptimiserMetric[] metrics) {
-        Arrays.sort(metrics, (o1, o2) -> Long.compare(o1.getDuration(), o2.getDuration()));
-        minDuration = metrics[0].getDuration();
-        maxDuration = metrics[metrics.length - 1].getDuration();
-        medianDuration = metrics[metrics.length / 2].getDuration();
-        averageDuration = calculateAverageDuration(metrics);
-        optimizer = metrics[0].getOptimiser();
+    /**
+     * @param pValue      The Mann-Whitney U p-value of the samples against those of the current optimisation level, adjusted for
+     *                    the number of levels compared
+     * @param keepSamples Whether to keep a copy of the raw samples, see {@link #getSamples()}
+     */
+    OptimiserResult(SampleBuffer buffer, boolean eliminated, double pValue, boolean keepSamples) {
+        int count = buffer.getCount();
+        long[] sortedDurations = buffer.getSortedDurations();
+        minDuration = sortedDurations[0];
+        maxDuration = sortedDurations[count - 1];
+        medianDuration = Statistics.median(sortedDurations, count);
+        averageDuration = Statistics.mean(sortedDurations, count);
+        p25Duration = Statistics.quantile(sortedDurations, count, 0.25);
+        p75Duration = Statistics.quantile(sortedDurations, count, 0.75);
+        p90Duration = Statistics.quantile(sortedDurations, count, 0.90);
+        p99Duration = Statistics.quantile(sortedDurations, count, 0.99);
+        variance = Statistics.variance(sortedDurations, count, averageDuration);
+        optimizer = buffer.getOptimizer();
+        sampleCount = count;
+        this.eliminated = eliminated;
+        this.pValue = pValue;
+        this.samples = keepSamples ? Arrays.copyOf(buffer.getDurations(), count) : null;
+        this.gcSampleCount = buffer.getGcCount();
+        this.rejectedSampleCount = buffer.getRejectedCount();
+        this.gcTimeMillis = buffer.getGcTimeMillis();
+        if (buffer.isAllocationsMeasured()) {
+            long[] allocatedBytes = Arrays.copyOf(buffer.getAllocatedBytes(), count);
+            Arrays.sort(allocatedBytes);
+            medianAllocatedBytes = Statistics.median(allocatedBytes, count);
+        } else {
+            medianAllocatedBytes = -1;
+        }
+
+        if (buffer.isSolverCountersRecorded()) {
+            SolverCounter[] counters = SolverCounter.values();
+            solverCounterMedians = new double[counters.length];
+            for (SolverCounter counter : counters) {
+                long[] values = Arrays.copyOf(buffer.getSolverCounters(counter), count);
+                Arrays.sort(values);
+                solverCounterMedians[counter.ordinal()] = Statistics.median(values, count);
+            }
+        } else {
+            solverCounterMedians = null;
+        }
+
+        MeasurePhase[] phases = MeasurePhase.values();
+        phaseMedianDurations = new double[phases.length];
+        phaseAverageDurations = new double[phases.length];
+        for (MeasurePhase phase : phases) {
+            long[] phaseDurations = Arrays.copyOf(buffer.getPhaseDurations(phase), count);
+            Arrays.sort(phaseDurations);
+            phaseMedianDurations[phase.ordinal()] = Statistics.median(phaseDurations, count);
+            phaseAverageDurations[phase.ordinal()] = calculateAverageDuration(phaseDurations, count);
+        }
     }
 
-    private static double calculateAverageDuration(OptimiserMetric[] metrics) {
+    private static double calculateAverageDuration(long[] durations, int count) {
         double average = 0;
-        for (OptimiserMetric metric : metrics) {
-            average += metric.getDuration();
+        for (int i = 0; i < count; i++) {
+            average += durations[i];
         }
-        return average / metrics.length;
+        return average / count;
+    }
+
+    /**
+     * @return The median duration of the phase in ns, 0 if the phase wasn't run
+     */
+    public double getPhaseMedianDuration(MeasurePhase phase) {
+        return phaseMedianDurations[phase.ordinal()];
+    }
+
+    /**
+     * @return The average duration of the phase in ns, 0 if the phase wasn't run
+     */
+    public double getPhaseAverageDuration(MeasurePhase phase) {
+        return phaseAverageDurations[phase.ordinal()];
     }
 
     public long getMinDuration() {
@@ -51,10 +135,131 @@ public class OptimiserResult implements Parcelable {
         return averageDuration;
     }
 
+    /**
+     * @return The 90th percentile duration in ns
+     */
+    public double getP90Duration() {
+        return p90Duration;
+    }
+
+    /**
+     * @return The 99th percentile duration in ns. Only meaningful with at least 100 samples
+     */
+    public double getP99Duration() {
+        return p99Duration;
+    }
+
+    /**
+     * @return The interquartile range in ns, i.e. the spread of the middle half of the durations
+     */
+    public double getInterquartileRange() {
+        return p75Duration - p25Duration;
+    }
+
+    /**
+     * @return The sample variance of the durations in ns^2
+     */
+    public double getVariance() {
+        return variance;
+    }
+
+    public double getStandardDeviation() {
+        return Math.sqrt(variance);
+    }
+
     public int getOptimizer() {
         return optimizer;
     }
 
+    /**
+     * @return The number of times this optimisation level was measured
+     */
+    public int getSampleCount() {
+        return sampleCount;
+    }
+
+    /**
+     * @return Whether sampling of this optimisation level stopped early because it was statistically slower than the fastest level
+     */
+    public boolean isEliminated() {
+        return eliminated;
+    }
+
+    /**
+     * @return The probability of durations differing at least this much from the current optimisation level's if the level made
+     * no difference, Holm-Bonferroni adjusted for every level being compared with the current level. 1 for the current level
+     * itself
+     */
+    public double getPValue() {
+        return pValue;
+    }
+
+    /**
+     * @return The duration of every sample in ns, in the order they were measured, or null unless
+     * {@link MeasurementOptions#keepSamples(boolean)} was set
+     */
+    @Nullable
+    public long[] getSamples() {
+        return samples;
+    }
+
+    /**
+     * @return The number of kept samples during which a garbage collection ran, so their durations include a GC pause.
+     * Always 0 when GC is {@link MeasurementOptions.GcPolicy#IGNORE ignored}
+     */
+    public int getGcSampleCount() {
+        return gcSampleCount;
+    }
+
+    /**
+     * @return The number of samples discarded and measured again because a garbage collection ran during them, see
+     * {@link MeasurementOptions.GcPolicy#REJECT}
+     */
+    public int getRejectedSampleCount() {
+        return rejectedSampleCount;
+    }
+
+    /**
+     * @return The time spent in garbage collection during the kept and rejected samples in ms
+     */
+    public long getGcTimeMillis() {
+        return gcTimeMillis;
+    }
+
+    /**
+     * @return The median number of bytes allocated by one sample, i.e. two measure and layout passes, or -1 unless
+     * {@link MeasurementOptions#measureAllocations(boolean)} was set
+     */
+    public double getMedianAllocatedBytes() {
+        return medianAllocatedBytes;
+    }
+
+    public boolean hasAllocations() {
+        return medianAllocatedBytes >= 0;
+    }
+
+    /**
+     * @return The median of the counter over all samples, or -1 unless {@link MeasurementOptions#collectSolverMetrics(boolean)} was set
+     */
+    public double getSolverCounter(@NonNull SolverCounter counter) {
+        return solverCounterMedians == null ? -1 : solverCounterMedians[counter.ordinal()];
+    }
+
+    /**
+     * The counters measure different things, e.g. a variable isn't worth an iteration, so they aren't summed. The simplex
+     * iterations are what the optimisations save and grow with both the variables and the solver passes
+     *
+     * @return The median of {@link SolverCounter#ITERATIONS}, which is used to rank levels by
+     * {@link MeasurementOptions.Ranking#SOLVER_WORK}, or -1 unless solver metrics were collected
+     */
+    public double getSolverWork() {
+        return getSolverCounter(SolverCounter.ITERATIONS);
+    }
+
+    public boolean hasSolverMetrics() {
+        return solverCounterMedians != null;
+    }
+
     @Override
     public String toString() {
         return "min = " +
@@ -73,6 +278,31 @@ public class OptimiserResult implements Parcelable {
                 nsToMs(averageDuration) +
                 "ms" +
                 ", " +
+                "p90 = " +
+                nsToMs(p90Duration) +
+                "ms" +
+                ", " +
+                "p99 = " +
+                nsToMs(p99Duration) +
+                "ms" +
+                ", " +
+                "iqr = " +
+                nsToMs(getInterquartileRange()) +
+                "ms" +
+                ", " +
+                "samples = " +
+                sampleCount +
+                (eliminated ? " (eliminated)" : "") +
+                ", " +
+                "p = " +
+                pValue +
+                ", " +
+                "gc samples = " +
+                gcSampleCount +
+                (rejectedSampleCount > 0 ? " (" + rejectedSampleCount + " rejected)" : "") +
+                ", " +
+                (hasAllocations() ? "allocated = " + (long) medianAllocatedBytes + "B, " : "") +
+                (hasSolverMetrics() ? "solver work = " + (long) getSolverWork() + ", " : "") +
                 optimizer +
                 ", " +
                 Integer.toBinaryString(optimizer) +
@@ -80,6 +310,116 @@ public class OptimiserResult implements Parcelable {
                 Utils.describeOptimisations(optimizer);
     }
 
+    /**
+     * @return Every field of the result, which {@link #fromJson(JSONObject)} reads back
+     */
+    @NonNull
+    public JSONObject toJson() throws JSONException {
+        JSONObject json = new JSONObject()
+                .put("minDuration", minDuration)
+                .put("maxDuration", maxDuration)
+                .put("medianDuration", medianDuration)
+                .put("averageDuration", averageDuration)
+                .put("p25Duration", p25Duration)
+                .put("p75Duration", p75Duration)
+                .put("p90Duration", p90Duration)
+                .put("p99Duration", p99Duration)
+                .put("variance", variance)
+                .put("optimizer", optimizer)
+                .put("sampleCount", sampleCount)
+                .put("eliminated", eliminated)
+                .put("phaseMedianDurations", toJson(phaseMedianDurations))
+                .put("phaseAverageDurations", toJson(phaseAverageDurations))
+                .put("pValue", pValue)
+                .put("gcSampleCount", gcSampleCount)
+                .put("rejectedSampleCount", rejectedSampleCount)
+                .put("gcTimeMillis", gcTimeMillis)
+                .put("medianAllocatedBytes", medianAllocatedBytes);
+        if (samples != null) {
+            JSONArray array = new JSONArray();
+            for (long sample : samples) array.put(sample);
+            json.put("samples", array);
+        }
+        if (solverCounterMedians != null) {
+            JSONObject counters = new JSONObject();
+            for (SolverCounter counter : SolverCounter.values()) {
+                counters.put(counter.name(), solverCounterMedians[counter.ordinal()]);
+            }
+            json.put("solverCounterMedians", counters);
+        }
+        return json;
+    }
+
+    /**
+     * @param json A result written by {@link #toJson()}
+     */
+    @NonNull
+    public static OptimiserResult fromJson(@NonNull JSONObject json) throws JSONException {
+        return new OptimiserResult(json);
+    }
+
+    private OptimiserResult(@NonNull JSONObject json) throws JSONException {
+        this.minDuration = json.getLong("minDuration");
+        this.maxDuration = json.getLong("maxDuration");
+        this.medianDuration = json.getDouble("medianDuration");
+        this.averageDuration = json.getDouble("averageDuration");
+        this.p25Duration = json.getDouble("p25Duration");
+        this.p75Duration = json.getDouble("p75Duration");
+        this.p90Duration = json.getDouble("p90Duration");
+        this.p99Duration = json.getDouble("p99Duration");
+        this.variance = json.getDouble("variance");
+        this.optimizer = json.getInt("optimizer");
+        this.sampleCount = json.getInt("sampleCount");
+        this.eliminated = json.getBoolean("eliminated");
+        this.phaseMedianDurations = phasesFromJson(json.getJSONObject("phaseMedianDurations"));
+        this.phaseAverageDurations = phasesFromJson(json.getJSONObject("phaseAverageDurations"));
+        this.pValue = json.getDouble("pValue");
+        this.gcSampleCount = json.getInt("gcSampleCount");
+        this.rejectedSampleCount = json.getInt("rejectedSampleCount");
+        this.gcTimeMillis = json.getLong("gcTimeMillis");
+        this.medianAllocatedBytes = json.getDouble("medianAllocatedBytes");
+
+        JSONArray samples = json.optJSONArray("samples");
+        if (samples != null) {
+            this.samples = new long[samples.length()];
+            for (int i = 0; i < samples.length(); i++) this.samples[i] = samples.getLong(i);
+        } else {
+            this.samples = null;
+        }
+
+        JSONObject counters = json.optJSONObject("solverCounterMedians");
+        if (counters != null) {
+            this.solverCounterMedians = new double[SolverCounter.values().length];
+            for (SolverCounter counter : SolverCounter.values()) {
+                solverCounterMedians[counter.ordinal()] = counters.getDouble(counter.name());
+            }
+        } else {
+            this.solverCounterMedians = null;
+        }
+    }
+
+    /**
+     * Phases are written by name, so reordering {@link MeasurePhase} doesn't mix up their durations
+     */
+    @NonNull
+    private static JSONObject toJson(@NonNull double[] phaseDurations) throws JSONException {
+        JSONObject json = new JSONObject();
+        for (MeasurePhase phase : MeasurePhase.values()) {
+            json.put(phase.name(), phaseDurations[phase.ordinal()]);
+        }
+        return json;
+    }
+
+    @NonNull
+    private static double[] phasesFromJson(@NonNull JSONObject json) throws JSONException {
+        MeasurePhase[] phases = MeasurePhase.values();
+        double[] phaseDurations = new double[phases.length];
+        for (MeasurePhase phase : phases) {
+            phaseDurations[phase.ordinal()] = json.getDouble(phase.name());
+        }
+        return phaseDurations;
+    }
+
     @Override
     public int describeContents() {
         return 0;
@@ -91,7 +431,23 @@ public class OptimiserResult implements Parcelable {
         dest.writeLong(this.maxDuration);
         dest.writeDouble(this.medianDuration);
         dest.writeDouble(this.averageDuration);
+        dest.writeDouble(this.p25Duration);
+        dest.writeDouble(this.p75Duration);
+        dest.writeDouble(this.p90Duration);
+        dest.writeDouble(this.p99Duration);
+        dest.writeDouble(this.variance);
         dest.writeInt(this.optimizer);
+        dest.writeInt(this.sampleCount);
+        dest.writeByte(this.eliminated ? (byte) 1 : (byte) 0);
+        dest.writeDoubleArray(this.phaseMedianDurations);
+        dest.writeDoubleArray(this.phaseAverageDurations);
+        dest.writeDouble(this.pValue);
+        dest.writeLongArray(this.samples);
+        dest.writeInt(this.gcSampleCount);
+        dest.writeInt(this.rejectedSampleCount);
+        dest.writeLong(this.gcTimeMillis);
+        dest.writeDouble(this.medianAllocatedBytes);
+        dest.writeDoubleArray(this.solverCounterMedians);
     }
 
     protected OptimiserResult(Parcel in) {
@@ -99,7 +455,23 @@ public class OptimiserResult implements Parcelable {
         this.maxDuration = in.readLong();
         this.medianDuration = in.readDouble();
         this.averageDuration = in.readDouble();
+        this.p25Duration = in.readDouble();
+        this.p75Duration = in.readDouble();
+        this.p90Duration = in.readDouble();
+        this.p99Duration = in.readDouble();
+        this.variance = in.readDouble();
         this.optimizer = in.readInt();
+        this.sampleCount = in.readInt();
+        this.eliminated = in.readByte() != 0;
+        this.phaseMedianDurations = in.createDoubleArray();
+        this.phaseAverageDurations = in.createDoubleArray();
+        this.pValue = in.readDouble();
+        this.samples = in.createLongArray();
+        this.gcSampleCount = in.readInt();
+        this.rejectedSampleCount = in.readInt();
+        this.gcTimeMillis = in.readLong();
+        this.medianAllocatedBytes = in.readDouble();
+        this.solverCounterMedians = in.createDoubleArray();
     }
 
     public static final Parcelable.Creator<OptimiserResult> CREATOR = new Parcelable.Creator<OptimiserResult>() {
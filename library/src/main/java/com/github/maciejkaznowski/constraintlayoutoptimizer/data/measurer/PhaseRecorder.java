@@ -0,0 +1,16 @@
+package com.github.maciejkaznowski.constraintlayoutoptimizer.data.measurer;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Receives the phase durations of the sample a {@link MeasurementStrategy} is running
+ */
+public interface PhaseRecorder {
+
+    /**
+     * Must not allocate, so it can be called between the timestamps of a sample
+     *
+     * @param duration The duration of the phase in ns
+     */
+    void setPhaseDuration(@NonNull MeasurePhase phase, long duration);
+}
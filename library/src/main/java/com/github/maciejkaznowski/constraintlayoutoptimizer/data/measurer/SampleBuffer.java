@@ -0,0 +1,218 @@
+package com.github.maciejkaznowski.constraintlayoutoptimizer.data.measurer;
+
+import androidx.annotation.NonNull;
+import androidx.constraintlayout.solver.Metrics;
+
+import java.util.Arrays;
+
+/**
+ * Preallocated primitive storage for the samples of a single optimisation level.
+ * <p>
+ * Recording a sample never allocates unless the buffer is {@code growable} and full, in which case it grows after the sample
+ * has been stored, i.e. outside of the timed window of any sample.
+ * <p>
+ * Every sample is kept, since the median's confidence interval and the Mann-Whitney test need them, so memory grows linearly
+ * with the number of samples. The percentiles and variance are calculated exactly from the same samples.
+ */
+class SampleBuffer implements PhaseRecorder {
+
+    private static final int PHASE_COUNT = MeasurePhase.values().length;
+    private static final SolverCounter[] COUNTERS = SolverCounter.values();
+
+    private final int optimizer;
+    private final boolean growable;
+    @NonNull private long[] durations;
+    @NonNull private long[] sortedDurations;
+    @NonNull private final long[][] phaseDurations;
+    @NonNull private long[] allocatedBytes;
+    @NonNull private final long[][] solverCounters;
+    private int count = 0;
+    private int gcCount = 0;
+    private int rejectedCount = 0;
+    private long gcTimeMillis = 0;
+    private boolean allocationsMeasured = false;
+    private boolean solverCountersRecorded = false;
+
+    /**
+     * @param optimizer The optimisation level the samples are of
+     * @param capacity  The number of samples which can be recorded without allocating
+     * @param growable  Whether more than {@code capacity} samples can be recorded
+     */
+    SampleBuffer(int optimizer, int capacity, boolean growable) {
+        this.optimizer = optimizer;
+        this.growable = growable;
+        this.durations = new long[capacity];
+        this.sortedDurations = new long[capacity];
+        this.phaseDurations = new long[PHASE_COUNT][capacity];
+        this.allocatedBytes = new long[capacity];
+        this.solverCounters = new long[COUNTERS.length][capacity];
+    }
+
+    /**
+     * Sets the phase duration of the sample which will be stored by the next call to {@link #record(long)}
+     *
+     * @param duration The duration of the phase in ns
+     */
+    @Override
+    public void setPhaseDuration(@NonNull MeasurePhase phase, long duration) {
+        phaseDurations[phase.ordinal()][count] = duration;
+    }
+
+    /**
+     * Sets what the probe saw during the sample which will be stored by the next call to {@link #record(long)}
+     */
+    void setProbeResult(@NonNull GcProbe probe) {
+        if (probe.hadGc()) gcCount++;
+        gcTimeMillis += probe.getGcTimeMillis();
+        long allocated = probe.getAllocatedBytes();
+        allocationsMeasured = allocated != GcProbe.UNAVAILABLE;
+        allocatedBytes[count] = allocationsMeasured ? allocated : 0;
+    }
+
+    /**
+     * Sets the solver work of the sample which will be stored by the next call to {@link #record(long)}
+     *
+     * @param metrics The metrics filled by the ConstraintLayout during the sample
+     */
+    void setSolverCounters(@NonNull Metrics metrics) {
+        solverCountersRecorded = true;
+        for (SolverCounter counter : COUNTERS) {
+            solverCounters[counter.ordinal()][count] = counter.read(metrics);
+        }
+    }
+
+    /**
+     * Discards a sample which was measured but not recorded because a garbage collection ran during it
+     */
+    void reject(@NonNull GcProbe probe) {
+        rejectedCount++;
+        gcTimeMillis += probe.getGcTimeMillis();
+    }
+
+    /**
+     * Stores the sample, along with any phase durations set since the previous sample
+     *
+     * @param duration The total duration of the sample in ns
+     */
+    void record(long duration) {
+        durations[count] = duration;
+        Statistics.insertSorted(sortedDurations, count, duration);
+        count++;
+
+        if (count == durations.length) {
+            if (growable) grow();
+        } else {
+            //phases which aren't set for the next sample must read as 0
+            for (int phase = 0; phase < PHASE_COUNT; phase++) phaseDurations[phase][count] = 0;
+        }
+    }
+
+    /**
+     * Discards all samples without releasing the memory
+     */
+    void clear() {
+        count = 0;
+        gcCount = 0;
+        rejectedCount = 0;
+        gcTimeMillis = 0;
+        allocationsMeasured = false;
+        solverCountersRecorded = false;
+        for (int phase = 0; phase < PHASE_COUNT; phase++) phaseDurations[phase][0] = 0;
+    }
+
+    boolean isFull() {
+        return count == durations.length;
+    }
+
+    int getOptimizer() {
+        return optimizer;
+    }
+
+    int getCount() {
+        return count;
+    }
+
+    /**
+     * @return The recorded durations in ascending order, only the first {@link #getCount()} elements are valid
+     */
+    @NonNull
+    long[] getSortedDurations() {
+        return sortedDurations;
+    }
+
+    /**
+     * @return The recorded durations in the order they were recorded, only the first {@link #getCount()} elements are valid
+     */
+    @NonNull
+    long[] getDurations() {
+        return durations;
+    }
+
+    /**
+     * @return The recorded durations of the phase, only the first {@link #getCount()} elements are valid
+     */
+    @NonNull
+    long[] getPhaseDurations(@NonNull MeasurePhase phase) {
+        return phaseDurations[phase.ordinal()];
+    }
+
+    /**
+     * @return The bytes allocated during each recorded sample, only the first {@link #getCount()} elements are valid and only if
+     * {@link #isAllocationsMeasured()}
+     */
+    @NonNull
+    long[] getAllocatedBytes() {
+        return allocatedBytes;
+    }
+
+    /**
+     * @return The solver work counter of each recorded sample, only the first {@link #getCount()} elements are valid and only
+     * if {@link #isSolverCountersRecorded()}
+     */
+    @NonNull
+    long[] getSolverCounters(@NonNull SolverCounter counter) {
+        return solverCounters[counter.ordinal()];
+    }
+
+    boolean isSolverCountersRecorded() {
+        return solverCountersRecorded;
+    }
+
+    boolean isAllocationsMeasured() {
+        return allocationsMeasured;
+    }
+
+    /**
+     * @return The number of recorded samples during which a garbage collection ran
+     */
+    int getGcCount() {
+        return gcCount;
+    }
+
+    /**
+     * @return The number of samples discarded because a garbage collection ran during them
+     */
+    int getRejectedCount() {
+        return rejectedCount;
+    }
+
+    /**
+     * @return The time spent in garbage collection during all recorded and rejected samples in ms
+     */
+    long getGcTimeMillis() {
+        return gcTimeMillis;
+    }
+
+    private void grow() {
+        int capacity = Math.max(1, durations.length * 2);
+        durations = Arrays.copyOf(durations, capacity);
+        sortedDurations = Arrays.copyOf(sortedDurations, capacity);
+        allocatedBytes = Arrays.copyOf(allocatedBytes, capacity);
+        for (int counter = 0; counter < COUNTERS.length; counter++) {
+            solverCounters[counter] = Arrays.copyOf(solverCounters[counter], capacity);
+        }
+        for (int phase = 0; phase < PHASE_COUNT; phase++) {
+            phaseDurations[phase] = Arrays.copyOf(phaseDurations[phase], capacity);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.github.maciejkaznowski.constraintlayoutoptimizer.data.measurer;
+
+import androidx.annotation.NonNull;
+import androidx.constraintlayout.solver.Metrics;
+
+/**
+ * The solver work counters of {@link Metrics} which are recorded for every sample. Unlike durations, these don't depend on
+ * what else the device is doing, so they are the same for every sample of a level and only a few iterations are needed
+ */
+public enum SolverCounter {
+
+    MEASURES("measures"),
+    SOLVER_PASSES("solver passes"),
+    VARIABLES("variables"),
+    EQUATIONS("equations"),
+    ITERATIONS("iterations");
+
+    @NonNull private final String description;
+
+    SolverCounter(@NonNull String description) {
+        this.description = description;
+    }
+
+    @NonNull
+    public String getDescription() {
+        return description;
+    }
+
+    long read(@NonNull Metrics metrics) {
+        switch (this) {
+            case MEASURES:
+                return metrics.measures;
+            case SOLVER_PASSES:
+                return metrics.minimize;
+            case VARIABLES:
+                return metrics.variables;
+            case EQUATIONS:
+                return metrics.constraints;
+            case ITERATIONS:
+                return metrics.iterations;
+            default:
+                throw new IllegalStateException("Unknown counter " + this);
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package com.github.maciejkaznowski.constraintlayoutoptimizer.data.measurer;
+
+import androidx.annotation.NonNull;
+
+import java.util.Arrays;
+
+class Statistics {
+
+    /**
+     * The standard normal quantile for a two-sided 95% confidence interval
+     */
+    private static final double Z_95 = 1.96;
+
+    /**
+     * Inserts the value into the first {@code count} elements of {@code sorted}, keeping them in ascending order
+     *
+     * @param sorted An array with at least {@code count + 1} elements, whose first {@code count} elements are sorted
+     * @param count  The number of values already in {@code sorted}
+     */
+    static void insertSorted(@NonNull long[] sorted, int count, long value) {
+        int i = count;
+        while (i > 0 && sorted[i - 1] > value) {
+            sorted[i] = sorted[i - 1];
+            i--;
+        }
+        sorted[i] = value;
+    }
+
+    /**
+     * @param sorted The samples in ascending order
+     * @param count  The number of samples in {@code sorted} to use
+     * @return The middle sample, or the mean of the two middle samples if {@code count} is even
+     */
+    static double median(@NonNull long[] sorted, int count) {
+        if (count % 2 == 1) return sorted[count / 2];
+        return (sorted[count / 2 - 1] + sorted[count / 2]) / 2.0;
+    }
+
+    /**
+     * @param sorted   The samples in ascending order
+     * @param count    The number of samples in {@code sorted} to use
+     * @param quantile The quantile between 0 and 1, e.g. 0.99 for the 99th percentile
+     * @return The smallest sample which at least {@code quantile} of the samples are less than or equal to, or 0 if there are
+     * no samples
+     */
+    static double quantile(@NonNull long[] sorted, int count, double quantile) {
+        if (count == 0) return 0;
+        int rank = Math.max(1, (int) Math.ceil(quantile * count));
+        return sorted[Math.min(count, rank) - 1];
+    }
+
+    /**
+     * @param samples The samples in any order
+     * @param count   The number of samples in {@code samples} to use
+     * @return The mean of the samples, or 0 if there are none
+     */
+    static double mean(@NonNull long[] samples, int count) {
+        if (count == 0) return 0;
+        double sum = 0;
+        for (int i = 0; i < count; i++) sum += samples[i];
+        return sum / count;
+    }
+
+    /**
+     * @param samples The samples in any order
+     * @param count   The number of samples in {@code samples} to use
+     * @param mean    The {@link #mean(long[], int) mean} of the samples
+     * @return The sample variance, or 0 if there are fewer than 2 samples
+     */
+    static double variance(@NonNull long[] samples, int count, double mean) {
+        if (count < 2) return 0;
+        double sumOfSquaredDeviations = 0;
+        for (int i = 0; i < count; i++) {
+            double deviation = samples[i] - mean;
+            sumOfSquaredDeviations += deviation * deviation;
+        }
+        return sumOfSquaredDeviations / (count - 1);
+    }
+
+    /**
+     * @param sorted The samples in ascending order
+     * @param count  The number of samples in {@code sorted} to use
+     * @return The lower bound of the 95% confidence interval of the median, or the smallest sample if there are too few samples to bound it
+     */
+    static long medianLowerBound(@NonNull long[] sorted, int count) {
+        return sorted[Math.max(0, medianLowerBoundIndex(count))];
+    }
+
+    /**
+     * @param sorted The samples in ascending order
+     * @param count  The number of samples in {@code sorted} to use
+     * @return The upper bound of the 95% confidence interval of the median, or the largest sample if there are too few samples to bound it
+     */
+    static long medianUpperBound(@NonNull long[] sorted, int count) {
+        return sorted[Math.min(count - 1, medianUpperBoundIndex(count))];
+    }
+
+    /**
+     * Uses the distribution-free order statistic interval, so makes no assumption about the shape of the duration distribution.
+     *
+     * @param sorted The samples in ascending order
+     * @param count  The number of samples in {@code sorted} to use
+     * @return The width of the 95% confidence interval of the median divided by the median, or {@link Double#POSITIVE_INFINITY} if
+     * there are too few samples to bound the median
+     */
+    static double relativeMedianConfidenceWidth(@NonNull long[] sorted, int count) {
+        int lower = medianLowerBoundIndex(count);
+        int upper = medianUpperBoundIndex(count);
+        if (lower < 0 || upper > count - 1) return Double.POSITIVE_INFINITY;
+
+        double median = median(sorted, count);
+        if (median <= 0) return Double.POSITIVE_INFINITY;
+        return (double) (sorted[upper] - sorted[lower]) / median;
+    }
+
+    /**
+     * Two-sided Mann-Whitney U test of whether the samples of {@code a} and {@code b} come from the same distribution. Makes no
+     * assumption about the shape of the distributions, using the normal approximation of U with a tie and continuity correction.
+     *
+     * @param sortedA The samples of the first group in ascending order
+     * @param countA  The number of samples in {@code sortedA} to use
+     * @param sortedB The samples of the second group in ascending order
+     * @param countB  The number of samples in {@code sortedB} to use
+     * @return The p-value, 1 if either group is empty or all samples are equal
+     */
+    static double mannWhitneyPValue(@NonNull long[] sortedA, int countA, @NonNull long[] sortedB, int countB) {
+        if (countA == 0 || countB == 0) return 1;
+
+        //both groups are sorted, so merging them visits the samples in rank order
+        double rankSumA = 0;
+        double tieCorrection = 0;
+        int a = 0;
+        int b = 0;
+        int rank = 1;
+        while (a < countA || b < countB) {
+            long value = a < countA && (b >= countB || sortedA[a] <= sortedB[b]) ? sortedA[a] : sortedB[b];
+            int tiedA = 0;
+            int tiedB = 0;
+            while (a < countA && sortedA[a] == value) {
+                a++;
+                tiedA++;
+            }
+            while (b < countB && sortedB[b] == value) {
+                b++;
+                tiedB++;
+            }
+            int tied = tiedA + tiedB;
+            double averageRank = rank + (tied - 1) / 2.0;
+            rankSumA += averageRank * tiedA;
+            tieCorrection += (double) tied * tied * tied - tied;
+            rank += tied;
+        }
+
+        double n = countA + countB;
+        double u = rankSumA - countA * (countA + 1) / 2.0;
+        double mean = countA * (double) countB / 2;
+        double variance = countA * (double) countB / 12 * ((n + 1) - tieCorrection / (n * (n - 1)));
+        if (variance <= 0) return 1;
+
+        double z = Math.max(0, Math.abs(u - mean) - 0.5) / Math.sqrt(variance);
+        return Math.min(1, 2 * (1 - normalCdf(z)));
+    }
+
+    /**
+     * Holm-Bonferroni adjusts the p-values of several tests made at once, so that rejecting every adjusted p-value at or below
+     * the significance level keeps the chance of any false positive at that level, rather than at that level for each test
+     *
+     * @param pValues The p-values of every test
+     * @return The adjusted p-values, in the same order as {@code pValues}
+     */
+    @NonNull
+    static double[] holmBonferroni(@NonNull double[] pValues) {
+        int count = pValues.length;
+        Integer[] order = new Integer[count];
+        for (int i = 0; i < count; i++) order[i] = i;
+        Arrays.sort(order, (o1, o2) -> Double.compare(pValues[o1], pValues[o2]));
+
+        double[] adjusted = new double[count];
+        double max = 0;
+        for (int rank = 0; rank < count; rank++) {
+            //the adjusted p-values are kept monotonic, so a test is never rejected when one with a smaller p-value isn't
+            max = Math.max(max, Math.min(1, (count - rank) * pValues[order[rank]]));
+            adjusted[order[rank]] = max;
+        }
+        return adjusted;
+    }
+
+    /**
+     * The standard normal cumulative distribution function, using the Abramowitz and Stegun approximation 7.1.26 of erf,
+     * which is accurate to about 1e-7
+     */
+    static double normalCdf(double z) {
+        double x = Math.abs(z) / Math.sqrt(2);
+        double t = 1 / (1 + 0.3275911 * x);
+        double erf = 1 - t * (0.254829592 + t * (-0.284496736 + t * (1.421413741 + t * (-1.453152027 + t * 1.061405429)))) * Math.exp(-x * x);
+        return z >= 0 ? (1 + erf) / 2 : (1 - erf) / 2;
+    }
+
+    /**
+     * @return The 0-based index of the lower bound, whose 1-based rank is floor(n / 2 - 1.96 * sqrt(n) / 2)
+     */
+    private static int medianLowerBoundIndex(int count) {
+        return (int) Math.floor(count / 2.0 - Z_95 * Math.sqrt(count) / 2) - 1;
+    }
+
+    /**
+     * @return The 0-based index of the upper bound, whose 1-based rank is ceil(1 + n / 2 + 1.96 * sqrt(n) / 2)
+     */
+    private static int medianUpperBoundIndex(int count) {
+        return (int) Math.ceil(count / 2.0 + Z_95 * Math.sqrt(count) / 2);
+    }
+}
@@ -0,0 +1,142 @@
+package com.github.maciejkaznowski.constraintlayoutoptimizer.data.regression;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.github.maciejkaznowski.constraintlayoutoptimizer.Layout;
+import com.github.maciejkaznowski.constraintlayoutoptimizer.data.measurer.DeterminedOptimisers;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The measurements of a set of layouts, which later runs are compared against with {@link BaselineComparator}.
+ * <p>
+ * Baselines are stored as JSON so they can be committed and reviewed alongside the layouts they describe:
+ * <pre>
+ * {"version": 1, "entries": [{"key": "activity_main#0@1920x1080px", "level": 7, "medianDuration": 812345.0,
+ *   "standardDeviation": 20456.1, "sampleCount": 5, "bestLevel": 7}]}
+ * </pre>
+ */
+public class Baseline {
+
+    private static final int VERSION = 1;
+
+    @NonNull private final Map<String, BaselineEntry> entries;
+
+    public Baseline(@NonNull Collection<BaselineEntry> entries) {
+        this.entries = new LinkedHashMap<>();
+        for (BaselineEntry entry : entries) {
+            this.entries.put(entry.getKey(), entry);
+        }
+    }
+
+    /**
+     * @param results The results of each layout, as returned by {@link DeterminedOptimisers#fromLayout}
+     */
+    @NonNull
+    public static Baseline fromResults(@NonNull Map<Layout, List<DeterminedOptimisers>> results) {
+        List<BaselineEntry> entries = new ArrayList<>();
+        for (Map.Entry<Layout, List<DeterminedOptimisers>> result : results.entrySet()) {
+            String layoutName = result.getKey().getResourceName();
+            List<DeterminedOptimisers> optimisers = result.getValue();
+            int[] indices = DeterminedOptimisers.getIndicesWithinConfiguration(optimisers);
+            for (int i = 0; i < indices.length; i++) {
+                entries.add(BaselineEntry.from(keyOf(layoutName, indices[i], optimisers.get(i)), optimisers.get(i)));
+            }
+        }
+        return new Baseline(entries);
+    }
+
+    /**
+     * @param index The index of the ConstraintLayout within the layout, see {@link DeterminedOptimisers#getIndicesWithinConfiguration(List)}
+     * @return A key which identifies the ConstraintLayout across runs, e.g. "activity_main#0@1920x1080px"
+     */
+    @NonNull
+    public static String keyOf(@NonNull String layoutName, int index, @NonNull DeterminedOptimisers optimisers) {
+        return layoutName + "#" + index + "@" + optimisers.getDeviceConfiguration().getDescription();
+    }
+
+    @NonNull
+    public static Baseline fromJson(@NonNull String json) throws JSONException {
+        JSONObject root = new JSONObject(json);
+        int version = root.getInt("version");
+        if (version != VERSION) throw new JSONException("Unsupported baseline version " + version);
+
+        JSONArray array = root.getJSONArray("entries");
+        List<BaselineEntry> entries = new ArrayList<>(array.length());
+        for (int i = 0; i < array.length(); i++) {
+            JSONObject entry = array.getJSONObject(i);
+            entries.add(new BaselineEntry(entry.getString("key"),
+                    entry.getInt("level"),
+                    entry.getDouble("medianDuration"),
+                    entry.getDouble("standardDeviation"),
+                    entry.getInt("sampleCount"),
+                    entry.getInt("bestLevel")));
+        }
+        return new Baseline(entries);
+    }
+
+    @NonNull
+    public String toJson() throws JSONException {
+        JSONArray array = new JSONArray();
+        for (BaselineEntry entry : entries.values()) {
+            array.put(new JSONObject()
+                    .put("key", entry.getKey())
+                    .put("level", entry.getLevel())
+                    .put("medianDuration", entry.getMedianDuration())
+                    .put("standardDeviation", entry.getStandardDeviation())
+                    .put("sampleCount", entry.getSampleCount())
+                    .put("bestLevel", entry.getBestLevel()));
+        }
+        return new JSONObject()
+                .put("version", VERSION)
+                .put("entries", array)
+                .toString(2);
+    }
+
+    @NonNull
+    public static Baseline read(@NonNull File file) throws IOException, JSONException {
+        byte[] bytes = new byte[(int) file.length()];
+        try (InputStream inputStream = new FileInputStream(file)) {
+            int offset = 0;
+            while (offset < bytes.length) {
+                int read = inputStream.read(bytes, offset, bytes.length - offset);
+                if (read == -1) throw new IOException("Unexpected end of " + file);
+                offset += read;
+            }
+        }
+        return fromJson(new String(bytes, StandardCharsets.UTF_8));
+    }
+
+    public void write(@NonNull File file) throws IOException, JSONException {
+        try (OutputStream outputStream = new FileOutputStream(file)) {
+            outputStream.write(toJson().getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    @Nullable
+    public BaselineEntry get(@NonNull String key) {
+        return entries.get(key);
+    }
+
+    @NonNull
+    public Collection<BaselineEntry> getEntries() {
+        return Collections.unmodifiableCollection(entries.values());
+    }
+}
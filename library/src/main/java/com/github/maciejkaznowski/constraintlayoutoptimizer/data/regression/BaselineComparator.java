@@ -0,0 +1,123 @@
+package com.github.maciejkaznowski.constraintlayoutoptimizer.data.regression;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compares fresh measurements against a {@link Baseline}.
+ * <p>
+ * A ConstraintLayout has regressed when its median duration at its configured level is more than the {@link #tolerance(double) tolerance}
+ * slower than the baseline's, and the difference is larger than the noise of both measurements, i.e. the medians differ by more
+ * than 1.96 standard errors. Without the noise check, a tolerance tight enough to catch real regressions would fail builds at random.
+ * <p>
+ * Durations are only compared when the ConstraintLayout is still configured with the baseline's level. A changed level is
+ * reported as a {@link BaselineDiff.Difference#isLevelChanged() level change} instead, since the baseline no longer describes
+ * the layout and must be recorded again.
+ */
+public class BaselineComparator {
+
+    /**
+     * The standard normal quantile for a two-sided 95% confidence interval
+     */
+    private static final double Z_95 = 1.96;
+    /**
+     * The standard error of the median of normally distributed samples is sqrt(pi / 2) times that of the mean
+     */
+    private static final double MEDIAN_STANDARD_ERROR_FACTOR = Math.sqrt(Math.PI / 2);
+
+    private double tolerance;
+    private boolean failOnBestLevelChange;
+    private boolean failOnLevelChange;
+    private boolean failOnRemoved;
+
+    public BaselineComparator() {
+        this.tolerance = 0.1;
+        this.failOnBestLevelChange = true;
+        this.failOnLevelChange = true;
+        this.failOnRemoved = false;
+    }
+
+    /**
+     * @param tolerance How much slower than the baseline, as a fraction of the baseline's median, a ConstraintLayout may be
+     *                  before it is a regression, e.g. 0.1 for 10%
+     */
+    @NonNull
+    public BaselineComparator tolerance(double tolerance) {
+        if (tolerance < 0) throw new IllegalArgumentException("tolerance must not be negative, was " + tolerance);
+        this.tolerance = tolerance;
+        return this;
+    }
+
+    /**
+     * @param failOnBestLevelChange Whether it is a failure when the recommended level differs from the baseline's
+     */
+    @NonNull
+    public BaselineComparator failOnBestLevelChange(boolean failOnBestLevelChange) {
+        this.failOnBestLevelChange = failOnBestLevelChange;
+        return this;
+    }
+
+    /**
+     * @param failOnLevelChange Whether it is a failure when the ConstraintLayout is configured with a different level than in the
+     *                          baseline, e.g. after applying a recommendation without recording a new baseline
+     */
+    @NonNull
+    public BaselineComparator failOnLevelChange(boolean failOnLevelChange) {
+        this.failOnLevelChange = failOnLevelChange;
+        return this;
+    }
+
+    /**
+     * @param failOnRemoved Whether it is a failure when a ConstraintLayout in the baseline wasn't measured
+     */
+    @NonNull
+    public BaselineComparator failOnRemoved(boolean failOnRemoved) {
+        this.failOnRemoved = failOnRemoved;
+        return this;
+    }
+
+    @NonNull
+    public BaselineDiff compare(@NonNull Baseline baseline, @NonNull Baseline fresh) {
+        List<BaselineDiff.Difference> differences = new ArrayList<>();
+        for (BaselineEntry entry : baseline.getEntries()) {
+            BaselineEntry freshEntry = fresh.get(entry.getKey());
+            if (freshEntry == null) {
+                differences.add(new BaselineDiff.Difference(entry.getKey(), entry, null, 0, false, false, false, false, failOnRemoved));
+            } else {
+                differences.add(compare(entry, freshEntry));
+            }
+        }
+        for (BaselineEntry freshEntry : fresh.getEntries()) {
+            if (baseline.get(freshEntry.getKey()) == null) {
+                differences.add(new BaselineDiff.Difference(freshEntry.getKey(), null, freshEntry, 0, false, false, false, false, false));
+            }
+        }
+        return new BaselineDiff(differences);
+    }
+
+    @NonNull
+    private BaselineDiff.Difference compare(@NonNull BaselineEntry baseline, @NonNull BaselineEntry fresh) {
+        boolean bestLevelChanged = baseline.getBestLevel() != fresh.getBestLevel();
+        if (baseline.getLevel() != fresh.getLevel()) {
+            //durations at different levels say nothing about a regression
+            return new BaselineDiff.Difference(baseline.getKey(), baseline, fresh, 0, false, false, true, bestLevelChanged, failOnLevelChange);
+        }
+
+        double difference = fresh.getMedianDuration() - baseline.getMedianDuration();
+        double relativeChange = baseline.getMedianDuration() > 0 ? difference / baseline.getMedianDuration() : 0;
+        boolean significant = Math.abs(difference) > Z_95 * standardErrorOfDifference(baseline, fresh);
+
+        boolean regressed = significant && relativeChange > tolerance;
+        boolean improved = significant && relativeChange < -tolerance;
+        boolean failed = regressed || (failOnBestLevelChange && bestLevelChanged);
+        return new BaselineDiff.Difference(baseline.getKey(), baseline, fresh, relativeChange, regressed, improved, false, bestLevelChanged, failed);
+    }
+
+    private static double standardErrorOfDifference(@NonNull BaselineEntry a, @NonNull BaselineEntry b) {
+        double varianceA = a.getStandardDeviation() * a.getStandardDeviation() / Math.max(1, a.getSampleCount());
+        double varianceB = b.getStandardDeviation() * b.getStandardDeviation() / Math.max(1, b.getSampleCount());
+        return MEDIAN_STANDARD_ERROR_FACTOR * Math.sqrt(varianceA + varianceB);
+    }
+}
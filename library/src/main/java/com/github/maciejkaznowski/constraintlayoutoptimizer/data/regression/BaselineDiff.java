@@ -0,0 +1,189 @@
+package com.github.maciejkaznowski.constraintlayoutoptimizer.data.regression;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.github.maciejkaznowski.constraintlayoutoptimizer.Utils;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * The result of {@link BaselineComparator#compare(Baseline, Baseline)}
+ */
+public class BaselineDiff {
+
+    @NonNull private final List<Difference> differences;
+
+    BaselineDiff(@NonNull List<Difference> differences) {
+        this.differences = differences;
+    }
+
+    @NonNull
+    public List<Difference> getDifferences() {
+        return Collections.unmodifiableList(differences);
+    }
+
+    /**
+     * @return Whether any ConstraintLayout regressed, or otherwise failed the comparison, in which case the build should fail
+     */
+    public boolean hasFailures() {
+        for (Difference difference : differences) {
+            if (difference.isFailure()) return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return A human readable report with one line per ConstraintLayout, failures first
+     */
+    @NonNull
+    public String getReport() {
+        StringBuilder report = new StringBuilder();
+        int failures = 0;
+        for (Difference difference : differences) {
+            if (difference.isFailure()) failures++;
+        }
+        report.append(failures).append(" of ").append(differences.size()).append(" ConstraintLayouts failed\n");
+
+        for (Difference difference : differences) {
+            if (difference.isFailure()) report.append("FAIL ").append(difference.describe()).append('\n');
+        }
+        for (Difference difference : differences) {
+            if (!difference.isFailure()) report.append("ok   ").append(difference.describe()).append('\n');
+        }
+        return report.toString();
+    }
+
+    @Override
+    public String toString() {
+        return getReport();
+    }
+
+    public static class Difference {
+
+        @NonNull private final String key;
+        @Nullable private final BaselineEntry baseline;
+        @Nullable private final BaselineEntry fresh;
+        private final double relativeChange;
+        private final boolean regressed;
+        private final boolean improved;
+        private final boolean levelChanged;
+        private final boolean bestLevelChanged;
+        private final boolean failure;
+
+        Difference(@NonNull String key,
+                   @Nullable BaselineEntry baseline,
+                   @Nullable BaselineEntry fresh,
+                   double relativeChange,
+                   boolean regressed,
+                   boolean improved,
+                   boolean levelChanged,
+                   boolean bestLevelChanged,
+                   boolean failure) {
+            this.key = key;
+            this.baseline = baseline;
+            this.fresh = fresh;
+            this.relativeChange = relativeChange;
+            this.regressed = regressed;
+            this.improved = improved;
+            this.levelChanged = levelChanged;
+            this.bestLevelChanged = bestLevelChanged;
+            this.failure = failure;
+        }
+
+        @NonNull
+        public String getKey() {
+            return key;
+        }
+
+        /**
+         * @return The baseline's entry, or null if the ConstraintLayout is new
+         */
+        @Nullable
+        public BaselineEntry getBaseline() {
+            return baseline;
+        }
+
+        /**
+         * @return The fresh entry, or null if the ConstraintLayout wasn't measured
+         */
+        @Nullable
+        public BaselineEntry getFresh() {
+            return fresh;
+        }
+
+        /**
+         * @return The change of the median duration as a fraction of the baseline's, e.g. 0.2 for 20% slower, or 0 if the
+         * {@link #isLevelChanged() level changed}
+         */
+        public double getRelativeChange() {
+            return relativeChange;
+        }
+
+        /**
+         * @return Whether the ConstraintLayout is significantly slower than the baseline by more than the tolerance
+         */
+        public boolean isRegressed() {
+            return regressed;
+        }
+
+        /**
+         * @return Whether the ConstraintLayout is significantly faster than the baseline by more than the tolerance
+         */
+        public boolean isImproved() {
+            return improved;
+        }
+
+        /**
+         * @return Whether the ConstraintLayout is configured with a different optimisation level than in the baseline, in which
+         * case its durations weren't compared
+         */
+        public boolean isLevelChanged() {
+            return levelChanged;
+        }
+
+        /**
+         * @return Whether the recommended optimisation level differs from the baseline's
+         */
+        public boolean isBestLevelChanged() {
+            return bestLevelChanged;
+        }
+
+        public boolean isFailure() {
+            return failure;
+        }
+
+        @NonNull
+        String describe() {
+            if (baseline == null) return key + ": new, " + Utils.nsToMs(fresh.getMedianDuration()) + "ms";
+            if (fresh == null) return key + ": not measured";
+
+            StringBuilder description = new StringBuilder(key).append(": ");
+            if (levelChanged) {
+                description.append("level ")
+                        .append(Utils.describeOptimisations(baseline.getLevel())).append(" -> ")
+                        .append(Utils.describeOptimisations(fresh.getLevel()))
+                        .append(", not compared, record a new baseline");
+            } else {
+                description.append(Utils.nsToMs(baseline.getMedianDuration())).append("ms -> ")
+                        .append(Utils.nsToMs(fresh.getMedianDuration())).append("ms (")
+                        .append(String.format(Locale.US, "%+.1f%%", relativeChange * 100)).append(")");
+            }
+            if (regressed) description.append(", regressed");
+            if (improved) description.append(", improved");
+            if (bestLevelChanged) {
+                description.append(", best level ")
+                        .append(Utils.describeOptimisations(baseline.getBestLevel())).append(" -> ")
+                        .append(Utils.describeOptimisations(fresh.getBestLevel()));
+            }
+            return description.toString();
+        }
+
+        @Override
+        public String toString() {
+            return describe();
+        }
+    }
+}
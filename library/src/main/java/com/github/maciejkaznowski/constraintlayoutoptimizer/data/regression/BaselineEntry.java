@@ -0,0 +1,104 @@
+package com.github.maciejkaznowski.constraintlayoutoptimizer.data.regression;
+
+import androidx.annotation.NonNull;
+
+import com.github.maciejkaznowski.constraintlayoutoptimizer.data.measurer.DeterminedOptimisers;
+import com.github.maciejkaznowski.constraintlayoutoptimizer.data.measurer.OptimiserResult;
+
+import java.util.Objects;
+
+/**
+ * The measurement of a single ConstraintLayout at its configured optimisation level, as stored in a {@link Baseline}
+ */
+public class BaselineEntry {
+
+    @NonNull private final String key;
+    private final int level;
+    private final double medianDuration;
+    private final double standardDeviation;
+    private final int sampleCount;
+    private final int bestLevel;
+
+    /**
+     * @param key               Identifies the ConstraintLayout across runs, see {@link Baseline#keyOf(String, int, DeterminedOptimisers)}
+     * @param level             The optimisation level the ConstraintLayout is configured with
+     * @param medianDuration    The median measure and layout duration at {@code level} in ns
+     * @param standardDeviation The standard deviation of the durations at {@code level} in ns
+     * @param sampleCount       The number of samples at {@code level}
+     * @param bestLevel         The {@link DeterminedOptimisers#getRecommended() recommended} optimisation level
+     */
+    public BaselineEntry(@NonNull String key, int level, double medianDuration, double standardDeviation, int sampleCount, int bestLevel) {
+        this.key = key;
+        this.level = level;
+        this.medianDuration = medianDuration;
+        this.standardDeviation = standardDeviation;
+        this.sampleCount = sampleCount;
+        this.bestLevel = bestLevel;
+    }
+
+    @NonNull
+    static BaselineEntry from(@NonNull String key, @NonNull DeterminedOptimisers optimisers) {
+        OptimiserResult current = optimisers.getCurrent();
+        return new BaselineEntry(key,
+                current.getOptimizer(),
+                current.getMedianDuration(),
+                current.getStandardDeviation(),
+                current.getSampleCount(),
+                optimisers.getRecommended().getOptimizer());
+    }
+
+    @NonNull
+    public String getKey() {
+        return key;
+    }
+
+    public int getLevel() {
+        return level;
+    }
+
+    public double getMedianDuration() {
+        return medianDuration;
+    }
+
+    public double getStandardDeviation() {
+        return standardDeviation;
+    }
+
+    public int getSampleCount() {
+        return sampleCount;
+    }
+
+    public int getBestLevel() {
+        return bestLevel;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        BaselineEntry that = (BaselineEntry) o;
+        return level == that.level &&
+                Double.compare(that.medianDuration, medianDuration) == 0 &&
+                Double.compare(that.standardDeviation, standardDeviation) == 0 &&
+                sampleCount == that.sampleCount &&
+                bestLevel == that.bestLevel &&
+                key.equals(that.key);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(key, level, medianDuration, standardDeviation, sampleCount, bestLevel);
+    }
+
+    @Override
+    public String toString() {
+        return "BaselineEntry{" +
+                "key='" + key + '\'' +
+                ", level=" + level +
+                ", medianDuration=" + medianDuration +
+                ", standardDeviation=" + standardDeviation +
+                ", sampleCount=" + sampleCount +
+                ", bestLevel=" + bestLevel +
+                '}';
+    }
+}
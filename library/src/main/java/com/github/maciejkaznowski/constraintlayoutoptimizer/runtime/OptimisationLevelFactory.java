@@ -0,0 +1,85 @@
+package com.github.maciejkaznowski.constraintlayoutoptimizer.runtime;
+
+import android.content.Context;
+import android.util.AttributeSet;
+import android.view.LayoutInflater;
+import android.view.View;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.appcompat.app.AppCompatActivity;
+import androidx.appcompat.app.AppCompatDelegate;
+import androidx.constraintlayout.widget.ConstraintLayout;
+
+/**
+ * Applies {@link OptimisationLevels} to every ConstraintLayout as it is inflated, so the tuned levels don't need to be copied
+ * into each layout's XML.
+ * <p>
+ * A level is applied when the first child of a ConstraintLayout is inflated, as the inflater doesn't let a factory see views it
+ * creates itself. This covers subclasses of ConstraintLayout and happens before the ConstraintLayout is first measured. Views
+ * are created by the delegate factory, if any, so e.g. AppCompat's widget substitution keeps working.
+ */
+public class OptimisationLevelFactory implements LayoutInflater.Factory2 {
+
+    @NonNull private final OptimisationLevels levels;
+    @Nullable private final LayoutInflater.Factory2 delegate;
+
+    /**
+     * @param delegate The factory which creates the views, or null to let the inflater create them
+     */
+    public OptimisationLevelFactory(@NonNull OptimisationLevels levels, @Nullable LayoutInflater.Factory2 delegate) {
+        this.levels = levels;
+        this.delegate = delegate;
+    }
+
+    /**
+     * A LayoutInflater's factory can only be set once, so this must be called before anything else sets it
+     *
+     * @throws IllegalStateException If the inflater already has a factory
+     */
+    public static void install(@NonNull LayoutInflater inflater, @NonNull OptimisationLevels levels) {
+        install(inflater, levels, null);
+    }
+
+    /**
+     * Installs the factory in place of AppCompat's, delegating to AppCompat to create the views.
+     * Must be called before {@code super.onCreate()}.
+     */
+    public static void install(@NonNull AppCompatActivity activity, @NonNull OptimisationLevels levels) {
+        final AppCompatDelegate appCompatDelegate = activity.getDelegate();
+        install(activity.getLayoutInflater(), levels, new LayoutInflater.Factory2() {
+            @Override
+            public View onCreateView(View parent, String name, Context context, AttributeSet attrs) {
+                return appCompatDelegate.createView(parent, name, context, attrs);
+            }
+
+            @Override
+            public View onCreateView(String name, Context context, AttributeSet attrs) {
+                return onCreateView(null, name, context, attrs);
+            }
+        });
+    }
+
+    private static void install(@NonNull LayoutInflater inflater, @NonNull OptimisationLevels levels, @Nullable LayoutInflater.Factory2 delegate) {
+        if (inflater.getFactory() != null) {
+            throw new IllegalStateException("The LayoutInflater already has a factory, install the OptimisationLevelFactory first or create one delegating to the existing factory");
+        }
+        inflater.setFactory2(new OptimisationLevelFactory(levels, delegate));
+    }
+
+    @Nullable
+    @Override
+    public View onCreateView(@Nullable View parent, @NonNull String name, @NonNull Context context, @NonNull AttributeSet attrs) {
+        //the child being inflated isn't added yet, so only the first child of each ConstraintLayout applies its level
+        if (parent instanceof ConstraintLayout && ((ConstraintLayout) parent).getChildCount() == 0) {
+            levels.apply((ConstraintLayout) parent);
+        }
+        return delegate == null ? null : delegate.onCreateView(parent, name, context, attrs);
+    }
+
+    @Nullable
+    @Override
+    public View onCreateView(@NonNull String name, @NonNull Context context, @NonNull AttributeSet attrs) {
+        return onCreateView(null, name, context, attrs);
+    }
+}
@@ -0,0 +1,120 @@
+package com.github.maciejkaznowski.constraintlayoutoptimizer.runtime;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.util.Log;
+import android.util.SparseBooleanArray;
+import android.util.SparseIntArray;
+import android.view.View;
+
+import androidx.annotation.IdRes;
+import androidx.annotation.NonNull;
+import androidx.constraintlayout.widget.ConstraintLayout;
+
+import com.github.maciejkaznowski.constraintlayoutoptimizer.Layout;
+import com.github.maciejkaznowski.constraintlayoutoptimizer.data.measurer.DeterminedOptimisers;
+
+import java.util.List;
+
+/**
+ * The optimisation level to apply to each ConstraintLayout, by the ConstraintLayout's id.
+ * <p>
+ * The levels are kept in a {@link SparseIntArray}, so looking up a level while inflating is a binary search over primitive ints
+ * without any boxing or allocation. Build the levels once, e.g. in {@link android.app.Application#onCreate()}, and share them.
+ */
+public class OptimisationLevels {
+
+    private static final String TAG = "OptimisationLevels";
+
+    @NonNull private final SparseIntArray levels;
+
+    private OptimisationLevels(@NonNull SparseIntArray levels) {
+        this.levels = levels;
+    }
+
+    /**
+     * @return The level of the ConstraintLayout with the id, or {@code defaultLevel} if it has none
+     */
+    public int getLevel(@IdRes int id, int defaultLevel) {
+        return levels.get(id, defaultLevel);
+    }
+
+    /**
+     * Sets the optimisation level of the ConstraintLayout, if it has one
+     *
+     * @return Whether a level was applied
+     */
+    public boolean apply(@NonNull ConstraintLayout constraintLayout) {
+        int index = levels.indexOfKey(constraintLayout.getId());
+        if (index < 0) return false;
+
+        constraintLayout.setOptimizationLevel(levels.valueAt(index));
+        return true;
+    }
+
+    public int size() {
+        return levels.size();
+    }
+
+    public static class Builder {
+
+        @NonNull private final SparseIntArray levels = new SparseIntArray();
+        @NonNull private final SparseBooleanArray conflicts = new SparseBooleanArray();
+
+        /**
+         * Different levels for the same id, e.g. when layouts reuse an id for their root, are a conflict and that id is left out,
+         * so the ConstraintLayouts keep the level they were inflated with
+         */
+        @NonNull
+        public Builder put(@IdRes int id, int level) {
+            if (id == View.NO_ID) throw new IllegalArgumentException("ConstraintLayouts without an id can't be looked up");
+            if (level < 0) throw new IllegalArgumentException("level must not be negative, was " + level);
+            if (conflicts.get(id)) return this;
+
+            int index = levels.indexOfKey(id);
+            if (index >= 0 && levels.valueAt(index) != level) {
+                Log.w(TAG, "Conflicting levels " + levels.valueAt(index) + " and " + level + " for id " + id + ", leaving it out");
+                conflicts.put(id, true);
+            } else {
+                levels.put(id, level);
+            }
+            return this;
+        }
+
+        /**
+         * Adds the recommended level of every ConstraintLayout which has an id and a
+         * {@link DeterminedOptimisers#hasRecommendation() recommendation}, looking the id up by its
+         * {@link DeterminedOptimisers#getConstraintLayoutId() name}. The results may cover several device configurations, so
+         * configurations recommending different levels for the same id are a conflict like any other.
+         *
+         * @param context    Used to look up the ids in its package, nothing is inflated
+         * @param optimisers Results in any order, e.g. from {@link DeterminedOptimisers#fromLayout(Context, Layout)} or a
+         *                   {@link com.github.maciejkaznowski.constraintlayoutoptimizer.data.cache.ResultCache}
+         */
+        @NonNull
+        public Builder putRecommended(@NonNull Context context, @NonNull List<DeterminedOptimisers> optimisers) {
+            Resources resources = context.getResources();
+            for (DeterminedOptimisers optimiser : optimisers) {
+                String idName = optimiser.getConstraintLayoutId();
+                if (idName == null || !optimiser.hasRecommendation()) continue;
+
+                int id = resources.getIdentifier(idName, "id", context.getPackageName());
+                if (id == 0) {
+                    Log.w(TAG, "No id named " + idName + ", it has changed since it was measured");
+                    continue;
+                }
+                put(id, optimiser.getRecommended().getOptimizer());
+            }
+            return this;
+        }
+
+        @NonNull
+        public OptimisationLevels build() {
+            SparseIntArray built = new SparseIntArray(levels.size());
+            for (int i = 0; i < levels.size(); i++) {
+                if (!conflicts.get(levels.keyAt(i))) built.put(levels.keyAt(i), levels.valueAt(i));
+            }
+            return new OptimisationLevels(built);
+        }
+    }
+}
@@ -5,15 +5,20 @@ import android.content.Intent;
 import android.os.Bundle;
 import android.widget.TextView;
 
+import androidx.annotation.IdRes;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.appcompat.app.AppCompatActivity;
 
 import com.github.maciejkaznowski.constraintlayoutoptimizer.data.measurer.DeterminedOptimisers;
+import com.github.maciejkaznowski.constraintlayoutoptimizer.data.measurer.MeasurePhase;
+import com.github.maciejkaznowski.constraintlayoutoptimizer.data.measurer.OptimiserResult;
 import com.github.maciejkaznowski.constraintlayoutoptimizer.Layout;
 import com.github.maciejkaznowski.constraintlayoutoptimizer.R;
 import com.github.maciejkaznowski.constraintlayoutoptimizer.Utils;
 
+import java.util.Locale;
+
 public class ResultDetailsActivity extends AppCompatActivity {
 
     private static final String KEY_OPTIMISERS = "KEY_OPTIMISERS";
@@ -36,7 +41,7 @@ public class ResultDetailsActivity extends AppCompatActivity {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_details);
         getExtras();
-        setTitle(layout.getResourceName());
+        setTitle(getString(R.string.layout_with_configuration, layout.getResourceName(), optimisers.getDeviceConfiguration().getDescription()));
         bindText();
     }
 
@@ -44,6 +49,10 @@ public class ResultDetailsActivity extends AppCompatActivity {
         ((TextView) findViewById(R.id.current_min_duration)).setText(formatNs(optimisers.getCurrent().getMinDuration()));
         ((TextView) findViewById(R.id.current_mean_duration)).setText(formatNs(optimisers.getCurrent().getMedianDuration()));
         ((TextView) findViewById(R.id.current_max_duration)).setText(formatNs(optimisers.getCurrent().getMaxDuration()));
+        ((TextView) findViewById(R.id.current_p90_duration)).setText(formatNs(optimisers.getCurrent().getP90Duration()));
+        ((TextView) findViewById(R.id.current_p99_duration)).setText(formatNs(optimisers.getCurrent().getP99Duration()));
+        ((TextView) findViewById(R.id.current_iqr)).setText(formatNs(optimisers.getCurrent().getInterquartileRange()));
+        ((TextView) findViewById(R.id.current_standard_deviation)).setText(formatNs(optimisers.getCurrent().getStandardDeviation()));
 
         String flags = optimisers.getCurrent().getOptimizer() + "=" + Integer.toBinaryString(optimisers.getCurrent().getOptimizer());
         ((TextView) findViewById(R.id.current_flags)).setText(flags);
@@ -51,9 +60,40 @@ public class ResultDetailsActivity extends AppCompatActivity {
         String codeFlags = Utils.describeOptimisations(optimisers.getCurrent().getOptimizer());
         ((TextView) findViewById(R.id.current_code_flags)).setText(codeFlags);
 
-        //TODO
-//        String xmlFlags =
-//        ((TextView) findViewById(R.id.current_xml_flags)).setText(formatNs(optimisers.getCurrent().getMinDuration()));
+        OptimiserResult coldCurrent = optimisers.getColdCurrent();
+        OptimiserResult coldBest = optimisers.getColdBestByMean();
+        if (coldCurrent != null && coldBest != null) {
+            ((TextView) findViewById(R.id.current_cold_mean_duration)).setText(formatNs(coldCurrent.getMedianDuration()));
+            String bestCold = formatNs(coldBest.getMedianDuration()) + ", " + Utils.describeOptimisations(coldBest.getOptimizer());
+            ((TextView) findViewById(R.id.best_cold)).setText(bestCold);
+        } else {
+            ((TextView) findViewById(R.id.current_cold_mean_duration)).setText(R.string.not_measured);
+            ((TextView) findViewById(R.id.best_cold)).setText(R.string.not_measured);
+        }
+
+        bindPhase(R.id.current_wrap_measure, MeasurePhase.WRAP_MEASURE);
+        bindPhase(R.id.current_wrap_layout, MeasurePhase.WRAP_LAYOUT);
+        bindPhase(R.id.current_exact_measure, MeasurePhase.EXACT_MEASURE);
+        bindPhase(R.id.current_exact_layout, MeasurePhase.EXACT_LAYOUT);
+
+        if (optimisers.hasRecommendation()) {
+            OptimiserResult recommended = optimisers.getRecommended();
+            String text = formatNs(recommended.getMedianDuration()) + ", " + Utils.describeOptimisations(recommended.getOptimizer()) +
+                    " (p=" + String.format(Locale.US, "%.3g", recommended.getPValue()) + ")";
+            ((TextView) findViewById(R.id.recommended)).setText(text);
+        } else {
+            ((TextView) findViewById(R.id.recommended)).setText(R.string.no_significant_improvement);
+        }
+
+        String xmlFlags = "app:layout_optimizationLevel=\"" + Utils.describeXmlOptimisations(optimisers.getCurrent().getOptimizer()) + "\"";
+        ((TextView) findViewById(R.id.current_xml_flags)).setText(xmlFlags);
+    }
+
+    private void bindPhase(@IdRes int textViewId, @NonNull MeasurePhase phase) {
+        OptimiserResult best = optimisers.getBestByPhase(phase);
+        String text = formatNs(optimisers.getCurrent().getPhaseMedianDuration(phase)) +
+                " (best " + formatNs(best.getPhaseMedianDuration(phase)) + ", " + Utils.describeOptimisations(best.getOptimizer()) + ")";
+        ((TextView) findViewById(textViewId)).setText(text);
     }
 
     @NonNull
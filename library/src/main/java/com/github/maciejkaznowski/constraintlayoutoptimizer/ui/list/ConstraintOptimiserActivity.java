@@ -8,26 +8,43 @@ import android.util.Log;
 import android.widget.Toast;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.github.maciejkaznowski.constraintlayoutoptimizer.Layout;
 import com.github.maciejkaznowski.constraintlayoutoptimizer.Layouts;
 import com.github.maciejkaznowski.constraintlayoutoptimizer.R;
+import com.github.maciejkaznowski.constraintlayoutoptimizer.data.cache.ResultCache;
+import com.github.maciejkaznowski.constraintlayoutoptimizer.data.export.JsonLinesExporter;
+import com.github.maciejkaznowski.constraintlayoutoptimizer.data.export.ResultExporter;
 import com.github.maciejkaznowski.constraintlayoutoptimizer.data.measurer.DeterminedOptimisers;
-import com.github.maciejkaznowski.constraintlayoutoptimizer.data.measurer.ViewLayoutException;
-import com.github.maciejkaznowski.constraintlayoutoptimizer.data.measurer.ViewMeasureException;
-
+import com.github.maciejkaznowski.constraintlayoutoptimizer.data.measurer.MeasurementOptions;
+import com.github.maciejkaznowski.constraintlayoutoptimizer.data.measurer.MeasurementRunner;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
 
-public class ConstraintOptimiserActivity extends Activity {
+public class ConstraintOptimiserActivity extends Activity implements MeasurementRunner.Listener {
 
     private static final String EXTRA_LAYOUTS = "ConstraintOptimiserActivity.EXTRA_LAYOUTS";
+    private static final String EXTRA_OPTIONS = "ConstraintOptimiserActivity.EXTRA_OPTIONS";
+    private static final String TAG = "ConstraintOptimiser";
+    private static final String RESULTS_FILE_NAME = "optimiser-results.jsonl";
 
     private RecyclerView recyclerView;
     private OptimisationResultsAdapter adapter;
     private Layouts layouts = null;
+    private MeasurementOptions options = null;
+    private MeasurementRunner measurementRunner;
+    private int layoutCount = 0;
+    private int measuredLayoutCount = 0;
 
     public static void start(@NonNull Context context) {
         context.startActivity(getStartIntent(context));
@@ -37,10 +54,20 @@ public class ConstraintOptimiserActivity extends Activity {
         context.startActivity(getStartIntent(context, layouts));
     }
 
+    public static void start(@NonNull Context context, @NonNull Layouts layouts, @NonNull MeasurementOptions options) {
+        context.startActivity(getStartIntent(context, layouts, options));
+    }
+
     @NonNull
     public static Intent getStartIntent(@NonNull Context context, @NonNull Layouts layouts) {
+        return getStartIntent(context, layouts, new MeasurementOptions());
+    }
+
+    @NonNull
+    public static Intent getStartIntent(@NonNull Context context, @NonNull Layouts layouts, @NonNull MeasurementOptions options) {
         Bundle extras = new Bundle();
         extras.putParcelable(EXTRA_LAYOUTS, layouts);
+        extras.putParcelable(EXTRA_OPTIONS, options);
 
         Intent intent = getStartIntent(context);
         intent.putExtras(extras);
@@ -61,38 +88,71 @@ public class ConstraintOptimiserActivity extends Activity {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_layout);
         getExtras();
+        adapter = new OptimisationResultsAdapter(new ArrayList<>());
+        showResult();
         measureLayouts();
     }
 
+    @Override
+    protected void onDestroy() {
+        if (measurementRunner != null) measurementRunner.cancel();
+        super.onDestroy();
+    }
+
     private void measureLayouts() {
         Toast.makeText(this, R.string.toast_measuring_layouts, Toast.LENGTH_LONG).show();
-        List<OptimisationResultsAdapter.Item> items = new ArrayList<>();
+        measurementRunner = new MeasurementRunner(this, layouts, options, new ResultCache(this), createExporter(), this);
+        measurementRunner.start();
+    }
 
+    /**
+     * @return An exporter writing to the app's external files directory, so results can be pulled with adb for offline analysis
+     */
+    @Nullable
+    private ResultExporter createExporter() {
+        File directory = getExternalFilesDir(null);
+        if (directory == null) return null;
+        File file = new File(directory, RESULTS_FILE_NAME);
         try {
-            List<Layout> layouts = this.layouts.find(this);
-            for (Layout layout : layouts) {
-                List<DeterminedOptimisers> determinedOptimisers = new ArrayList<>();
-
-                try {
-                    determinedOptimisers = DeterminedOptimisers.fromLayout(this, layout);
-                } catch (ViewMeasureException | ViewLayoutException e) {
-                    e.printStackTrace();
-                }
-
-                Log.d("ConstraintOptimiser", "finished determining optimisers for " + layout);
-                for (DeterminedOptimisers determinedOptimiser : determinedOptimisers) {
-                    items.add(new OptimisationResultsAdapter.Item(layout, determinedOptimiser));
-                }
-            }
-            Log.d("ConstraintOptimiser", "Finished");
-            adapter = new OptimisationResultsAdapter(items);
-            showResult();
-            adapter.notifyDataSetChanged();
-        } catch (Throwable throwable) {
-            throw new RuntimeException(throwable);
+            Writer writer = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8);
+            return new JsonLinesExporter(writer, options.isKeepingSamples());
+        } catch (IOException e) {
+            Log.w(TAG, "Could not export results to " + file, e);
+            return null;
         }
     }
 
+    @Override
+    public void onLayoutsFound(@NonNull List<Layout> layouts) {
+        layoutCount = layouts.size();
+        showProgress();
+    }
+
+    @Override
+    public void onLayoutMeasured(@NonNull Layout layout, @NonNull List<DeterminedOptimisers> optimisers) {
+        List<OptimisationResultsAdapter.Item> items = new ArrayList<>(optimisers.size());
+        for (DeterminedOptimisers determinedOptimiser : optimisers) {
+            items.add(new OptimisationResultsAdapter.Item(layout, determinedOptimiser));
+        }
+        adapter.addItems(items);
+        measuredLayoutCount++;
+        showProgress();
+    }
+
+    @Override
+    public void onFinished() {
+        Toast.makeText(this, R.string.toast_measuring_layouts_finished, Toast.LENGTH_SHORT).show();
+    }
+
+    @Override
+    public void onError(@NonNull Throwable throwable) {
+        throw new RuntimeException(throwable);
+    }
+
+    private void showProgress() {
+        setTitle(getString(R.string.title_measuring_progress, measuredLayoutCount, layoutCount));
+    }
+
     private void showResult() {
         recyclerView = findViewById(R.id.recycler_view);
         recyclerView.setLayoutManager(new LinearLayoutManager(this, LinearLayoutManager.VERTICAL, false));
@@ -103,5 +163,7 @@ public class ConstraintOptimiserActivity extends Activity {
         Bundle extras = getIntent().getExtras();
         if (extras != null) layouts = extras.getParcelable(EXTRA_LAYOUTS);
         if (layouts == null) layouts = new Layouts().includeAllLayouts(true);
+        if (extras != null) options = extras.getParcelable(EXTRA_OPTIONS);
+        if (options == null) options = new MeasurementOptions();
     }
 }
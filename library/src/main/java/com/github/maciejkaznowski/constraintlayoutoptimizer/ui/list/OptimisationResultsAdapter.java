@@ -29,6 +29,12 @@ class OptimisationResultsAdapter extends RecyclerView.Adapter<OptimisationResult
         this.items = items;
     }
 
+    void addItems(@NonNull List<Item> items) {
+        int positionStart = this.items.size();
+        this.items.addAll(items);
+        notifyItemRangeInserted(positionStart, items.size());
+    }
+
     @Override
     public void onAttachedToRecyclerView(RecyclerView recyclerView) {
         super.onAttachedToRecyclerView(recyclerView);
@@ -67,7 +73,8 @@ class OptimisationResultsAdapter extends RecyclerView.Adapter<OptimisationResult
     public void onBindViewHolder(ViewHolder holder, int position) {
         Item item = items.get(position);
 
-        holder.layout.setText(item.getLayout().getResourceName());
+        String configuration = item.getDeterminedOptimiser().getDeviceConfiguration().getDescription();
+        holder.layout.setText(holder.layout.getContext().getString(R.string.layout_with_configuration, item.getLayout().getResourceName(), configuration));
         holder.boxPlotView.setBoxes(item.getBoxes());
     }
 
@@ -100,6 +107,7 @@ class OptimisationResultsAdapter extends RecyclerView.Adapter<OptimisationResult
             for (OptimiserResult result : determinedOptimiser.getResults()) {
                 HorizontalBoxPlotView.Box box = new HorizontalBoxPlotView.Box(result.getMinDuration(), (float) result.getMedianDuration(), result.getMaxDuration());
                 if (result == determinedOptimiser.getCurrent()) box.setColor(Color.GREEN);
+                else if (result.isEliminated()) box.setColor(Color.GRAY);
                 else box.setColor(Color.RED);
                 box.setText(Integer.toBinaryString(result.getOptimizer()));
                 boxes.add(box);
@@ -0,0 +1,140 @@
+package com.github.maciejkaznowski.constraintlayoutoptimizer.data.graph;
+
+import android.content.Context;
+import android.view.View;
+
+import androidx.constraintlayout.solver.widgets.ConstraintWidget;
+import androidx.constraintlayout.solver.widgets.ConstraintWidgetContainer;
+import androidx.constraintlayout.widget.ConstraintLayout;
+import androidx.test.core.app.ApplicationProvider;
+
+import com.github.maciejkaznowski.constraintlayoutoptimizer.solver.ConstraintGraphReader;
+
+import org.json.JSONObject;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class ConstraintGraphTest {
+
+    private static final int WIDTH = 1080;
+    private static final int HEIGHT = 1920;
+
+    private static final int GONE_ID = 1;
+    private static final int AFTER_GONE_ID = 2;
+    private static final int AFTER_GONE_RELATIVE_ID = 3;
+    private static final int WRAPPED_ID = 4;
+    private static final int WRAPPED_TOO_WIDE_ID = 5;
+    private static final int SPREAD_ID = 6;
+
+    private final Context context = ApplicationProvider.getApplicationContext();
+    private final ConstraintLayout constraintLayout = new ConstraintLayout(context);
+
+    @Test
+    public void exportedGraph_solvesToTheSameBounds() throws Exception {
+        ConstraintLayout.LayoutParams gone = addView(GONE_ID, 200, 100);
+        gone.leftToLeft = ConstraintLayout.LayoutParams.PARENT_ID;
+        gone.topToTop = ConstraintLayout.LayoutParams.PARENT_ID;
+        gone.leftMargin = 16;
+        gone.topMargin = 16;
+        constraintLayout.findViewById(GONE_ID).setVisibility(View.GONE);
+
+        ConstraintLayout.LayoutParams afterGone = addView(AFTER_GONE_ID, 100, 50);
+        afterGone.leftToRight = GONE_ID;
+        afterGone.topToBottom = GONE_ID;
+        afterGone.leftMargin = 8;
+        afterGone.topMargin = 8;
+        afterGone.goneLeftMargin = 48;
+        afterGone.goneTopMargin = 64;
+
+        ConstraintLayout.LayoutParams afterGoneRelative = addView(AFTER_GONE_RELATIVE_ID, 100, 50);
+        afterGoneRelative.startToEnd = GONE_ID;
+        afterGoneRelative.topToBottom = AFTER_GONE_ID;
+        afterGoneRelative.setMarginStart(8);
+        afterGoneRelative.goneStartMargin = 24;
+
+        ConstraintLayout.LayoutParams wrapped = addView(WRAPPED_ID, 300, 40);
+        wrapped.width = ConstraintLayout.LayoutParams.MATCH_CONSTRAINT;
+        wrapped.matchConstraintDefaultWidth = ConstraintLayout.LayoutParams.MATCH_CONSTRAINT_WRAP;
+        wrapped.leftToLeft = ConstraintLayout.LayoutParams.PARENT_ID;
+        wrapped.rightToRight = ConstraintLayout.LayoutParams.PARENT_ID;
+        wrapped.topToBottom = AFTER_GONE_RELATIVE_ID;
+
+        ConstraintLayout.LayoutParams wrappedTooWide = addView(WRAPPED_TOO_WIDE_ID, 2000, 40);
+        wrappedTooWide.width = ConstraintLayout.LayoutParams.MATCH_CONSTRAINT;
+        wrappedTooWide.matchConstraintDefaultWidth = ConstraintLayout.LayoutParams.MATCH_CONSTRAINT_WRAP;
+        wrappedTooWide.leftToLeft = ConstraintLayout.LayoutParams.PARENT_ID;
+        wrappedTooWide.rightToRight = ConstraintLayout.LayoutParams.PARENT_ID;
+        wrappedTooWide.topToBottom = WRAPPED_ID;
+        wrappedTooWide.leftMargin = 20;
+        wrappedTooWide.rightMargin = 20;
+
+        ConstraintLayout.LayoutParams spread = addView(SPREAD_ID, 10, 10);
+        spread.width = ConstraintLayout.LayoutParams.MATCH_CONSTRAINT;
+        spread.leftToLeft = ConstraintLayout.LayoutParams.PARENT_ID;
+        spread.rightToRight = ConstraintLayout.LayoutParams.PARENT_ID;
+        spread.topToBottom = WRAPPED_TOO_WIDE_ID;
+        spread.leftMargin = 32;
+        spread.rightMargin = 32;
+
+        constraintLayout.measure(View.MeasureSpec.makeMeasureSpec(WIDTH, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(HEIGHT, View.MeasureSpec.EXACTLY));
+        constraintLayout.layout(0, 0, WIDTH, HEIGHT);
+
+        JSONObject graph = ConstraintGraph.toJson(constraintLayout, "test");
+        ConstraintWidgetContainer container = ConstraintGraphReader.read(graph);
+        container.layout();
+
+        List<ConstraintWidget> widgets = container.getChildren();
+        assertEquals(constraintLayout.getChildCount(), widgets.size());
+        for (int i = 0; i < widgets.size(); i++) {
+            View child = constraintLayout.getChildAt(i);
+            if (child.getVisibility() == View.GONE) continue;
+            ConstraintWidget widget = widgets.get(i);
+            String name = widget.getDebugName();
+            assertEquals(name, child.getLeft(), widget.getX());
+            assertEquals(name, child.getTop(), widget.getY());
+            assertEquals(name, child.getWidth(), widget.getWidth());
+            assertEquals(name, child.getHeight(), widget.getHeight());
+        }
+    }
+
+    /**
+     * @return The layout params of a wrap_content view whose content has the given size
+     */
+    private ConstraintLayout.LayoutParams addView(int id, int contentWidth, int contentHeight) {
+        View view = new FixedContentView(context, contentWidth, contentHeight);
+        view.setId(id);
+        ConstraintLayout.LayoutParams params = new ConstraintLayout.LayoutParams(
+                ConstraintLayout.LayoutParams.WRAP_CONTENT, ConstraintLayout.LayoutParams.WRAP_CONTENT);
+        constraintLayout.addView(view, params);
+        return params;
+    }
+
+    /**
+     * Wraps content of a fixed size, so wrap_content measurements don't depend on fonts or resources
+     */
+    private static class FixedContentView extends View {
+
+        private final int contentWidth;
+        private final int contentHeight;
+
+        FixedContentView(Context context, int contentWidth, int contentHeight) {
+            super(context);
+            this.contentWidth = contentWidth;
+            this.contentHeight = contentHeight;
+        }
+
+        @Override
+        protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+            setMeasuredDimension(resolveSize(contentWidth, widthMeasureSpec), resolveSize(contentHeight, heightMeasureSpec));
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.github.maciejkaznowski.constraintlayoutoptimizer.data.measurer;
+
+import android.content.Context;
+import android.view.View;
+
+import androidx.constraintlayout.solver.widgets.Optimizer;
+import androidx.constraintlayout.widget.Barrier;
+import androidx.constraintlayout.widget.ConstraintLayout;
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class ConstraintFeaturesTest {
+
+    private static final int FIRST_ID = 1;
+    private static final int SECOND_ID = 2;
+
+    private final Context context = ApplicationProvider.getApplicationContext();
+    private final ConstraintLayout constraintLayout = new ConstraintLayout(context);
+
+    @Test
+    public void plainLayout_onlyDirectIsRelevant() {
+        ConstraintLayout.LayoutParams params = addView(FIRST_ID);
+        params.leftToLeft = ConstraintLayout.LayoutParams.PARENT_ID;
+        params.topToTop = ConstraintLayout.LayoutParams.PARENT_ID;
+
+        assertEquals(Optimizer.OPTIMIZATION_DIRECT, ConstraintFeatures.getRelevantFlags(constraintLayout));
+    }
+
+    @Test
+    public void matchConstraintAndRatio() {
+        ConstraintLayout.LayoutParams params = addView(FIRST_ID);
+        params.width = ConstraintLayout.LayoutParams.MATCH_CONSTRAINT;
+        params.dimensionRatio = "16:9";
+
+        assertEquals(Optimizer.OPTIMIZATION_DIRECT | Optimizer.OPTIMIZATION_DIMENSIONS | Optimizer.OPTIMIZATION_RATIO,
+                ConstraintFeatures.getRelevantFlags(constraintLayout));
+    }
+
+    @Test
+    public void barrier() {
+        Barrier barrier = new Barrier(context);
+        barrier.setId(FIRST_ID);
+        constraintLayout.addView(barrier, new ConstraintLayout.LayoutParams(ConstraintLayout.LayoutParams.WRAP_CONTENT, ConstraintLayout.LayoutParams.WRAP_CONTENT));
+
+        assertEquals(Optimizer.OPTIMIZATION_DIRECT | Optimizer.OPTIMIZATION_BARRIER, ConstraintFeatures.getRelevantFlags(constraintLayout));
+    }
+
+    @Test
+    public void leftRightChain() {
+        addView(FIRST_ID).rightToLeft = SECOND_ID;
+        addView(SECOND_ID).leftToRight = FIRST_ID;
+
+        assertChained();
+    }
+
+    @Test
+    public void startEndChain() {
+        addView(FIRST_ID).endToStart = SECOND_ID;
+        addView(SECOND_ID).startToEnd = FIRST_ID;
+
+        assertChained();
+    }
+
+    @Test
+    public void chainMixingStartEndWithLeftRight() {
+        addView(FIRST_ID).endToStart = SECOND_ID;
+        addView(SECOND_ID).leftToRight = FIRST_ID;
+
+        assertChained();
+    }
+
+    @Test
+    public void verticalChain() {
+        addView(FIRST_ID).bottomToTop = SECOND_ID;
+        addView(SECOND_ID).topToBottom = FIRST_ID;
+
+        assertChained();
+    }
+
+    @Test
+    public void oneWayConstraint_isNotAChain() {
+        addView(FIRST_ID).rightToLeft = SECOND_ID;
+        addView(SECOND_ID).rightToRight = ConstraintLayout.LayoutParams.PARENT_ID;
+
+        assertEquals(Optimizer.OPTIMIZATION_DIRECT, ConstraintFeatures.getRelevantFlags(constraintLayout));
+    }
+
+    @Test
+    public void candidateLevels_onlyUseRelevantFlags() {
+        int relevantFlags = Optimizer.OPTIMIZATION_DIRECT | Optimizer.OPTIMIZATION_CHAIN;
+
+        assertArrayEquals(new int[]{0, 1, 4, 5}, ConstraintFeatures.getCandidateLevels(relevantFlags, 5));
+    }
+
+    @Test
+    public void candidateLevels_alwaysIncludeCurrentLevel() {
+        int relevantFlags = Optimizer.OPTIMIZATION_DIRECT | Optimizer.OPTIMIZATION_CHAIN;
+
+        assertArrayEquals(new int[]{0, 1, 4, 5, 7}, ConstraintFeatures.getCandidateLevels(relevantFlags, 7));
+    }
+
+    @Test
+    public void candidateLevels_allFlagsRelevant() {
+        int allFlags = Optimizer.OPTIMIZATION_DIRECT | Optimizer.OPTIMIZATION_BARRIER | Optimizer.OPTIMIZATION_CHAIN
+                | Optimizer.OPTIMIZATION_DIMENSIONS | Optimizer.OPTIMIZATION_RATIO;
+
+        int[] levels = ConstraintFeatures.getCandidateLevels(allFlags, 7);
+        assertEquals(32, levels.length);
+        for (int i = 0; i < levels.length; i++) assertEquals(i, levels[i]);
+    }
+
+    private void assertChained() {
+        assertEquals(Optimizer.OPTIMIZATION_DIRECT | Optimizer.OPTIMIZATION_CHAIN, ConstraintFeatures.getRelevantFlags(constraintLayout));
+    }
+
+    private ConstraintLayout.LayoutParams addView(int id) {
+        View view = new View(context);
+        view.setId(id);
+        ConstraintLayout.LayoutParams params = new ConstraintLayout.LayoutParams(ConstraintLayout.LayoutParams.WRAP_CONTENT,
+                ConstraintLayout.LayoutParams.WRAP_CONTENT);
+        constraintLayout.addView(view, params);
+        return params;
+    }
+}
@@ -0,0 +1,63 @@
+package com.github.maciejkaznowski.constraintlayoutoptimizer.data.measurer;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class DeterminedOptimisersTest {
+
+    private static final int CURRENT_LEVEL = 7;
+    private static final int LEVEL_COUNT = 32;
+    private static final int SAMPLE_COUNT = 30;
+
+    @Test
+    public void levelsFromTheSameDistribution_recommendCurrent() {
+        //without adjusting for 31 comparisons, about a quarter of these seeds recommend a level by chance
+        for (int seed = 0; seed < 50; seed++) {
+            OptimiserResult[] results = DeterminedOptimisers.toResults(measure(new Random(seed), -1), CURRENT_LEVEL, false);
+            OptimiserResult current = find(results, CURRENT_LEVEL);
+
+            assertSame("seed " + seed, current, DeterminedOptimisers.findRecommended(results, current, new MeasurementOptions()));
+        }
+    }
+
+    @Test
+    public void clearlyFasterLevel_isRecommended() {
+        OptimiserResult[] results = DeterminedOptimisers.toResults(measure(new Random(0), 3), CURRENT_LEVEL, false);
+        OptimiserResult current = find(results, CURRENT_LEVEL);
+
+        assertEquals(3, DeterminedOptimisers.findRecommended(results, current, new MeasurementOptions()).getOptimizer());
+    }
+
+    @Test
+    public void currentLevel_hasPValueOfOne() {
+        OptimiserResult[] results = DeterminedOptimisers.toResults(measure(new Random(0), -1), CURRENT_LEVEL, false);
+
+        assertEquals(1, find(results, CURRENT_LEVEL).getPValue(), 0);
+    }
+
+    /**
+     * @param fasterLevel A level whose samples are half as long as the others, or -1 for none
+     */
+    private static OptimiserMeasurements measure(Random random, int fasterLevel) {
+        SampleBuffer[] buffers = new SampleBuffer[LEVEL_COUNT];
+        for (int level = 0; level < LEVEL_COUNT; level++) {
+            buffers[level] = new SampleBuffer(level, SAMPLE_COUNT, false);
+            double scale = level == fasterLevel ? 500_000 : 1_000_000;
+            for (int i = 0; i < SAMPLE_COUNT; i++) {
+                buffers[level].record((long) (scale * Math.exp(0.3 * random.nextGaussian())));
+            }
+        }
+        return new OptimiserMeasurements(buffers, new boolean[LEVEL_COUNT]);
+    }
+
+    private static OptimiserResult find(OptimiserResult[] results, int level) {
+        for (OptimiserResult result : results) {
+            if (result.getOptimizer() == level) return result;
+        }
+        throw new AssertionError("No result for level " + level);
+    }
+}
@@ -0,0 +1,165 @@
+package com.github.maciejkaznowski.constraintlayoutoptimizer.data.measurer;
+
+import androidx.annotation.NonNull;
+import androidx.constraintlayout.solver.Metrics;
+import androidx.constraintlayout.widget.ConstraintLayout;
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class OptimiserPerformanceMeasurerTest {
+
+    private static final int CAPACITY = 10_000;
+
+    @Test
+    public void measuringSamples_doesNotAllocate() throws Throwable {
+        com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+
+        ConstraintLayout constraintLayout = new ConstraintLayout(ApplicationProvider.getApplicationContext());
+        DeviceConfiguration viewport = new DeviceConfiguration(1080, 1920);
+        MeasurementStrategy strategy = new PhasesOnlyStrategy();
+        GcProbe probe = new ConstantGcProbe();
+        Metrics metrics = new Metrics();
+
+        //let the JIT compile the sampling loop so that the interpreter doesn't allocate on our behalf
+        SampleBuffer warmup = new SampleBuffer(0, CAPACITY, false);
+        for (int i = 0; i < 5; i++) {
+            fill(constraintLayout, strategy, viewport, warmup, probe, metrics);
+            warmup.clear();
+        }
+
+        SampleBuffer buffer = new SampleBuffer(0, CAPACITY, false);
+        long overhead = allocatedBytesOfNothing(threadBean, threadId);
+        long before = threadBean.getThreadAllocatedBytes(threadId);
+        fill(constraintLayout, strategy, viewport, buffer, probe, metrics);
+        long after = threadBean.getThreadAllocatedBytes(threadId);
+
+        assertEquals(CAPACITY, buffer.getCount());
+        assertTrue(buffer.isAllocationsMeasured());
+        assertTrue(buffer.isSolverCountersRecorded());
+        assertEquals(0, after - before - overhead);
+    }
+
+    @Test
+    public void rejectedColdSamples_areMeasuredAgain() throws Throwable {
+        MeasurementOptions options = new MeasurementOptions()
+                .coldIterations(3)
+                .gcPolicy(MeasurementOptions.GcPolicy.REJECT);
+        int[] levels = {0, 1, 2};
+
+        OptimiserMeasurements measurements = OptimiserPerformanceMeasurer.measureColdOptimisers(
+                () -> new ConstraintLayout(ApplicationProvider.getApplicationContext()),
+                levels,
+                options,
+                new DeviceConfiguration(1080, 1920),
+                42,
+                new AlwaysGcProbe());
+
+        for (SampleBuffer buffer : measurements.getBuffers()) {
+            assertEquals(3, buffer.getCount());
+            assertEquals(2, buffer.getRejectedCount());
+        }
+    }
+
+    private static void fill(ConstraintLayout constraintLayout,
+                             MeasurementStrategy strategy,
+                             DeviceConfiguration viewport,
+                             SampleBuffer buffer,
+                             GcProbe probe,
+                             Metrics metrics) throws ViewMeasureException, ViewLayoutException {
+        for (int i = 0; i < CAPACITY; i++) {
+            OptimiserPerformanceMeasurer.measureOnce(constraintLayout, i & 31, strategy, viewport, buffer, probe, metrics);
+        }
+    }
+
+    private static long allocatedBytesOfNothing(com.sun.management.ThreadMXBean threadBean, long threadId) {
+        long before = threadBean.getThreadAllocatedBytes(threadId);
+        long after = threadBean.getThreadAllocatedBytes(threadId);
+        return after - before;
+    }
+
+    /**
+     * Only records phases, so that the test covers the sampling loop rather than the framework's measure and layout passes
+     */
+    private static class PhasesOnlyStrategy implements MeasurementStrategy {
+
+        private long sample = 0;
+
+        @Override
+        public void prepare(@NonNull DeviceConfiguration viewport) {
+        }
+
+        @Override
+        public void measure(@NonNull ConstraintLayout constraintLayout,
+                            @NonNull DeviceConfiguration viewport,
+                            @NonNull PhaseRecorder recorder) {
+            sample++;
+            recorder.setPhaseDuration(MeasurePhase.WRAP_MEASURE, sample);
+            recorder.setPhaseDuration(MeasurePhase.EXACT_MEASURE, sample);
+            recorder.setPhaseDuration(MeasurePhase.EXACT_LAYOUT, sample);
+        }
+    }
+
+    /**
+     * Reads counters which never change, so every sample is kept and reports no allocations
+     */
+    private static class ConstantGcProbe extends GcProbe {
+
+        ConstantGcProbe() {
+            super(true);
+        }
+
+        @Override
+        long readGcCount() {
+            return 3;
+        }
+
+        @Override
+        long readGcTimeMillis() {
+            return 40;
+        }
+
+        @Override
+        long readAllocatedBytes() {
+            return 1_000_000;
+        }
+    }
+
+    /**
+     * Reports a garbage collection during every sample, so the probe rejects as many samples as it's allowed to
+     */
+    private static class AlwaysGcProbe extends GcProbe {
+
+        private long gcCount = 0;
+
+        AlwaysGcProbe() {
+            super(true);
+        }
+
+        @Override
+        long readGcCount() {
+            return gcCount++;
+        }
+
+        @Override
+        long readGcTimeMillis() {
+            return 0;
+        }
+
+        @Override
+        long readAllocatedBytes() {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.github.maciejkaznowski.constraintlayoutoptimizer.data.measurer;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class SampleBufferTest {
+
+    private static final int CAPACITY = 10_000;
+
+    @Test
+    public void recordingSamples_doesNotAllocate() {
+        com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+
+        //let the JIT compile record() so that the interpreter doesn't allocate on our behalf
+        SampleBuffer warmup = new SampleBuffer(0, CAPACITY, false);
+        for (int i = 0; i < 5; i++) {
+            fill(warmup);
+            warmup.clear();
+        }
+
+        SampleBuffer buffer = new SampleBuffer(0, CAPACITY, false);
+        long overhead = allocatedBytesOfNothing(threadBean, threadId);
+        long before = threadBean.getThreadAllocatedBytes(threadId);
+        fill(buffer);
+        long after = threadBean.getThreadAllocatedBytes(threadId);
+
+        assertEquals(CAPACITY, buffer.getCount());
+        assertEquals(0, after - before - overhead);
+    }
+
+    @Test
+    public void record_keepsSortedDurationsAndPhases() {
+        SampleBuffer buffer = new SampleBuffer(3, 4, false);
+        buffer.setPhaseDuration(MeasurePhase.EXACT_MEASURE, 7);
+        buffer.record(30);
+        buffer.record(10);
+        buffer.setPhaseDuration(MeasurePhase.EXACT_MEASURE, 9);
+        buffer.record(20);
+
+        assertEquals(3, buffer.getOptimizer());
+        assertEquals(3, buffer.getCount());
+        assertArrayEquals(new long[]{10, 20, 30}, Arrays.copyOf(buffer.getSortedDurations(), 3));
+        assertArrayEquals(new long[]{30, 10, 20}, Arrays.copyOf(buffer.getDurations(), 3));
+        assertArrayEquals(new long[]{7, 0, 9}, Arrays.copyOf(buffer.getPhaseDurations(MeasurePhase.EXACT_MEASURE), 3));
+    }
+
+    @Test
+    public void growableBuffer_growsWhenFull() {
+        SampleBuffer buffer = new SampleBuffer(0, 1, true);
+        for (int i = 0; i < 5; i++) buffer.record(i);
+
+        assertEquals(5, buffer.getCount());
+        assertFalse(buffer.isFull());
+    }
+
+    private static void fill(SampleBuffer buffer) {
+        //record in descending order, which is the worst case for keeping the durations sorted
+        for (int i = CAPACITY; i > 0; i--) {
+            buffer.setPhaseDuration(MeasurePhase.WRAP_MEASURE, i);
+            buffer.setPhaseDuration(MeasurePhase.EXACT_LAYOUT, i);
+            buffer.record(i);
+        }
+    }
+
+    private static long allocatedBytesOfNothing(com.sun.management.ThreadMXBean threadBean, long threadId) {
+        long before = threadBean.getThreadAllocatedBytes(threadId);
+        long after = threadBean.getThreadAllocatedBytes(threadId);
+        return after - before;
+    }
+}
@@ -0,0 +1,164 @@
+package com.github.maciejkaznowski.constraintlayoutoptimizer.data.measurer;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class StatisticsTest {
+
+    private static final double DELTA = 1e-6;
+
+    @Test
+    public void normalCdf_matchesTable() {
+        assertEquals(0.5, Statistics.normalCdf(0), DELTA);
+        assertEquals(0.8413447, Statistics.normalCdf(1), DELTA);
+        assertEquals(0.1586553, Statistics.normalCdf(-1), DELTA);
+        assertEquals(0.9750021, Statistics.normalCdf(1.96), DELTA);
+        assertEquals(0.0013499, Statistics.normalCdf(-3), DELTA);
+    }
+
+    @Test
+    public void mannWhitney_separatedSamples() {
+        //U = 0, so z = (12.5 - 0.5) / sqrt(25 * 11 / 12)
+        long[] a = {1, 2, 3, 4, 5};
+        long[] b = {6, 7, 8, 9, 10};
+
+        assertEquals(0.0121858, Statistics.mannWhitneyPValue(a, 5, b, 5), DELTA);
+        assertEquals(0.0121858, Statistics.mannWhitneyPValue(b, 5, a, 5), DELTA);
+    }
+
+    @Test
+    public void mannWhitney_tiedSamples() {
+        //ties get the average rank, so U = 6 with a variance of 30 / 12 * (12 - 48 / 110)
+        long[] a = {1, 2, 2, 3, 4};
+        long[] b = {2, 3, 3, 5, 6, 7};
+
+        assertEquals(0.1139031, Statistics.mannWhitneyPValue(a, 5, b, 6), DELTA);
+    }
+
+    @Test
+    public void mannWhitney_onlyUsesCountSamples() {
+        long[] a = {1, 2, 3, 4, 5, 100, 200};
+        long[] b = {6, 7, 8, 9, 10, 0};
+
+        assertEquals(0.0121858, Statistics.mannWhitneyPValue(a, 5, b, 5), DELTA);
+    }
+
+    @Test
+    public void holmBonferroni_adjustsByRankAndStaysMonotonic() {
+        double[] adjusted = Statistics.holmBonferroni(new double[]{0.04, 0.01, 0.03, 0.5});
+
+        //sorted 0.01, 0.03, 0.04, 0.5 are multiplied by 4, 3, 2 and 1, then 0.08 is raised to the 0.09 before it
+        assertEquals(0.09, adjusted[0], DELTA);
+        assertEquals(0.04, adjusted[1], DELTA);
+        assertEquals(0.09, adjusted[2], DELTA);
+        assertEquals(0.5, adjusted[3], DELTA);
+    }
+
+    @Test
+    public void holmBonferroni_capsAtOne() {
+        double[] adjusted = Statistics.holmBonferroni(new double[]{0.7, 0.6});
+
+        assertEquals(1, adjusted[0], DELTA);
+        assertEquals(1, adjusted[1], DELTA);
+    }
+
+    @Test
+    public void mannWhitney_identicalSamples() {
+        long[] a = {10, 20, 30, 40};
+        long[] b = {10, 20, 30, 40};
+
+        assertEquals(1, Statistics.mannWhitneyPValue(a, 4, b, 4), DELTA);
+    }
+
+    @Test
+    public void mannWhitney_allSamplesEqual() {
+        long[] a = {5, 5, 5};
+        long[] b = {5, 5};
+
+        assertEquals(1, Statistics.mannWhitneyPValue(a, 3, b, 2), 0);
+    }
+
+    @Test
+    public void mannWhitney_emptyGroup() {
+        long[] a = {1, 2, 3};
+
+        assertEquals(1, Statistics.mannWhitneyPValue(a, 3, new long[0], 0), 0);
+        assertEquals(1, Statistics.mannWhitneyPValue(new long[0], 0, a, 3), 0);
+        assertEquals(1, Statistics.mannWhitneyPValue(a, 0, a, 0), 0);
+    }
+
+    @Test
+    public void median_oddAndEvenCounts() {
+        long[] sorted = {1, 2, 4, 8};
+
+        assertEquals(2, Statistics.median(sorted, 3), 0);
+        assertEquals(3, Statistics.median(sorted, 4), 0);
+    }
+
+    @Test
+    public void medianConfidenceInterval_usesOrderStatistics() {
+        long[] sorted = ascending(100);
+
+        //ranks floor(50 - 1.96 * 10 / 2) and ceil(1 + 50 + 1.96 * 10 / 2)
+        assertEquals(40, Statistics.medianLowerBound(sorted, 100));
+        assertEquals(61, Statistics.medianUpperBound(sorted, 100));
+        assertEquals(21 / 50.5, Statistics.relativeMedianConfidenceWidth(sorted, 100), DELTA);
+    }
+
+    @Test
+    public void medianConfidenceInterval_tooFewSamples() {
+        long[] sorted = ascending(5);
+
+        assertEquals(1, Statistics.medianLowerBound(sorted, 5));
+        assertEquals(5, Statistics.medianUpperBound(sorted, 5));
+        assertEquals(Double.POSITIVE_INFINITY, Statistics.relativeMedianConfidenceWidth(sorted, 5), 0);
+    }
+
+    @Test
+    public void quantile_isTheExactNearestRankSample() {
+        long[] sorted = ascending(100);
+
+        assertEquals(25, Statistics.quantile(sorted, 100, 0.25), 0);
+        assertEquals(90, Statistics.quantile(sorted, 100, 0.90), 0);
+        assertEquals(99, Statistics.quantile(sorted, 100, 0.99), 0);
+        assertEquals(1, Statistics.quantile(sorted, 100, 0), 0);
+        assertEquals(100, Statistics.quantile(sorted, 100, 1), 0);
+        assertEquals(3, Statistics.quantile(sorted, 3, 0.99), 0);
+        assertEquals(0, Statistics.quantile(sorted, 0, 0.5), 0);
+    }
+
+    @Test
+    public void meanAndVariance() {
+        long[] samples = {2, 4, 4, 4, 5, 5, 7, 9, 1000};
+
+        assertEquals(5, Statistics.mean(samples, 8), DELTA);
+        //the sum of squared deviations is 32
+        assertEquals(32 / 7.0, Statistics.variance(samples, 8, 5), DELTA);
+        assertEquals(0, Statistics.variance(samples, 1, 2), 0);
+        assertEquals(0, Statistics.mean(samples, 0), 0);
+    }
+
+    @Test
+    public void insertSorted_keepsAscendingOrder() {
+        long[] sorted = new long[4];
+        Statistics.insertSorted(sorted, 0, 3);
+        Statistics.insertSorted(sorted, 1, 1);
+        Statistics.insertSorted(sorted, 2, 2);
+        Statistics.insertSorted(sorted, 3, 3);
+
+        assertEquals(1, sorted[0]);
+        assertEquals(2, sorted[1]);
+        assertEquals(3, sorted[2]);
+        assertEquals(3, sorted[3]);
+    }
+
+    /**
+     * @return 1, 2, ..., count
+     */
+    private static long[] ascending(int count) {
+        long[] sorted = new long[count];
+        for (int i = 0; i < count; i++) sorted[i] = i + 1;
+        return sorted;
+    }
+}
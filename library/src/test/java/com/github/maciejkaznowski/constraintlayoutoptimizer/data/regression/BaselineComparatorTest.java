@@ -0,0 +1,114 @@
+package com.github.maciejkaznowski.constraintlayoutoptimizer.data.regression;
+
+import org.junit.Test;
+
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class BaselineComparatorTest {
+
+    private static final String KEY = "activity_main#0@1080x1920px";
+
+    @Test
+    public void slowerBeyondNoiseAndTolerance_regresses() {
+        BaselineDiff.Difference difference = compare(new BaselineComparator(),
+                entry(1_000_000, 10_000, 7), entry(1_200_000, 10_000, 7));
+
+        assertTrue(difference.isRegressed());
+        assertTrue(difference.isFailure());
+        assertEquals(0.2, difference.getRelativeChange(), 1e-9);
+    }
+
+    @Test
+    public void slowerWithinNoise_doesNotRegress() {
+        //the medians differ by 20%, but the standard error of the difference is about 0.4ms
+        BaselineDiff.Difference difference = compare(new BaselineComparator(),
+                entry(1_000_000, 1_000_000, 7), entry(1_200_000, 1_000_000, 7));
+
+        assertFalse(difference.isRegressed());
+        assertFalse(difference.isFailure());
+    }
+
+    @Test
+    public void slowerWithinTolerance_doesNotRegress() {
+        BaselineComparator comparator = new BaselineComparator().tolerance(0.25);
+        BaselineDiff.Difference difference = compare(comparator, entry(1_000_000, 10_000, 7), entry(1_200_000, 10_000, 7));
+
+        assertFalse(difference.isRegressed());
+        assertFalse(difference.isFailure());
+    }
+
+    @Test
+    public void fasterBeyondTolerance_improves() {
+        BaselineDiff.Difference difference = compare(new BaselineComparator(),
+                entry(1_000_000, 10_000, 7), entry(800_000, 10_000, 7));
+
+        assertTrue(difference.isImproved());
+        assertFalse(difference.isFailure());
+    }
+
+    @Test
+    public void bestLevelChange_failsUnlessDisabled() {
+        BaselineEntry baseline = entry(1_000_000, 10_000, 7);
+        BaselineEntry fresh = new BaselineEntry(KEY, 7, 1_000_000, 10_000, 20, 3);
+
+        assertTrue(compare(new BaselineComparator(), baseline, fresh).isFailure());
+        assertFalse(compare(new BaselineComparator().failOnBestLevelChange(false), baseline, fresh).isFailure());
+    }
+
+    @Test
+    public void levelChange_isReportedInsteadOfComparingDurations() {
+        BaselineEntry baseline = entry(1_000_000, 10_000, 7);
+        BaselineEntry fresh = new BaselineEntry(KEY, 3, 2_000_000, 10_000, 20, 7);
+
+        BaselineDiff.Difference difference = compare(new BaselineComparator(), baseline, fresh);
+        assertTrue(difference.isLevelChanged());
+        assertFalse(difference.isRegressed());
+        assertEquals(0, difference.getRelativeChange(), 0);
+        assertTrue(difference.isFailure());
+        assertTrue(difference.toString().contains("not compared"));
+
+        assertFalse(compare(new BaselineComparator().failOnLevelChange(false), baseline, fresh).isFailure());
+    }
+
+    @Test
+    public void removedLayout_failsOnlyWhenEnabled() {
+        Baseline baseline = new Baseline(Collections.singletonList(entry(1_000_000, 10_000, 7)));
+        Baseline fresh = new Baseline(Collections.<BaselineEntry>emptyList());
+
+        BaselineDiff diff = new BaselineComparator().compare(baseline, fresh);
+        assertNull(diff.getDifferences().get(0).getFresh());
+        assertFalse(diff.hasFailures());
+
+        assertTrue(new BaselineComparator().failOnRemoved(true).compare(baseline, fresh).hasFailures());
+    }
+
+    @Test
+    public void newLayout_neverFails() {
+        Baseline baseline = new Baseline(Collections.<BaselineEntry>emptyList());
+        Baseline fresh = new Baseline(Collections.singletonList(entry(1_000_000, 10_000, 7)));
+
+        BaselineDiff diff = new BaselineComparator().failOnRemoved(true).compare(baseline, fresh);
+        assertNull(diff.getDifferences().get(0).getBaseline());
+        assertFalse(diff.hasFailures());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void negativeTolerance_throws() {
+        new BaselineComparator().tolerance(-0.1);
+    }
+
+    private static BaselineDiff.Difference compare(BaselineComparator comparator, BaselineEntry baseline, BaselineEntry fresh) {
+        BaselineDiff diff = comparator.compare(new Baseline(Collections.singletonList(baseline)), new Baseline(Collections.singletonList(fresh)));
+        assertEquals(1, diff.getDifferences().size());
+        return diff.getDifferences().get(0);
+    }
+
+    private static BaselineEntry entry(double medianDuration, double standardDeviation, int level) {
+        return new BaselineEntry(KEY, level, medianDuration, standardDeviation, 20, level);
+    }
+}
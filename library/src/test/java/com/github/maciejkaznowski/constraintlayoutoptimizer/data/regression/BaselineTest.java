@@ -0,0 +1,48 @@
+package com.github.maciejkaznowski.constraintlayoutoptimizer.data.regression;
+
+import org.json.JSONException;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class BaselineTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final Baseline baseline = new Baseline(Arrays.asList(
+            new BaselineEntry("activity_main#0@1080x1920px", 7, 812345.5, 20456.1, 5, 3),
+            new BaselineEntry("activity_main#1@1920x1080px, land", 257, 1000.0, 0, 1, 257)));
+
+    @Test
+    public void jsonRoundTrip_keepsEntriesInOrder() throws JSONException {
+        Baseline read = Baseline.fromJson(baseline.toJson());
+
+        assertEquals(new ArrayList<>(baseline.getEntries()), new ArrayList<>(read.getEntries()));
+    }
+
+    @Test
+    public void fileRoundTrip() throws Exception {
+        File file = folder.newFile("optimiser-baseline.json");
+        baseline.write(file);
+
+        Baseline read = Baseline.read(file);
+        List<BaselineEntry> entries = new ArrayList<>(read.getEntries());
+        assertEquals(2, entries.size());
+        assertEquals(baseline.get("activity_main#0@1080x1920px"), read.get("activity_main#0@1080x1920px"));
+        assertNull(read.get("activity_main#2@1080x1920px"));
+    }
+
+    @Test(expected = JSONException.class)
+    public void unsupportedVersion_throws() throws JSONException {
+        Baseline.fromJson("{\"version\": 2, \"entries\": []}");
+    }
+}
@@ -19,11 +19,10 @@ public class SampleActivity extends AppCompatActivity {
 
     private void startAnalyseActivity() {
         Layouts layouts = new Layouts()
-                .includeAllLayouts(true);
-        //TODO excluding the 3 layouts below causes no layouts to be diplayed as a result, despite there definitely being R.layout.sample_layout_1
-//                .excludeLayout(R.layout.list_item_result)
-//                .excludeLayout(R.layout.activity_details)
-//                .excludeLayout(R.layout.activity_layout);
+                .includeAllLayouts(true)
+                .excludeLayout(R.layout.list_item_result)
+                .excludeLayout(R.layout.activity_details)
+                .excludeLayout(R.layout.activity_layout);
 
         Intent intent = ConstraintOptimiserActivity.getStartIntent(this, layouts);
         startActivity(intent);
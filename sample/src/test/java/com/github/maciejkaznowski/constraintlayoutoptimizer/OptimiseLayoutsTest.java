@@ -0,0 +1,32 @@
+package com.github.maciejkaznowski.constraintlayoutoptimizer;
+
+import com.github.maciejkaznowski.constraintlayoutoptimizer.headless.OptimiserRule;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+
+/**
+ * Measures the sample's layouts headlessly, writing the results to build/optimiser/results.txt, and fails if they regressed
+ * compared to optimiser-baseline.json. It only runs with {@code ./gradlew :sample:test -Poptimiser.verify=true}, run
+ * {@code ./gradlew :sample:test -PrecordBaseline=true} on the same machine to record a new baseline
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class OptimiseLayoutsTest {
+
+    @Rule
+    public OptimiserRule optimiser = new OptimiserRule(
+            new Layouts().includeLayout(R.layout.sample_layout_1),
+            new File("build/optimiser/results.txt"));
+
+    @Test
+    public void optimiseLayouts() throws Exception {
+        OptimiserRule.assumeVerifying();
+        optimiser.verifyBaseline(optimiser.optimise(), new File("optimiser-baseline.json"));
+    }
+}
@@ -0,0 +1,79 @@
+package com.github.maciejkaznowski.constraintlayoutoptimizer.data.measurer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The statistics computed for every optimisation level once its samples have been recorded, and recording the samples themselves
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+public class OptimiserResultBenchmark {
+
+    private static final long SEED = 42;
+
+    @Param({"5", "100", "1000"})
+    public int sampleCount;
+
+    private long[] durations;
+    private SampleBuffer buffer;
+    private SampleBuffer otherBuffer;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(SEED);
+        durations = createDurations(random);
+        buffer = createBuffer(durations);
+        otherBuffer = createBuffer(createDurations(random));
+    }
+
+    /**
+     * Layout durations are roughly log-normal, around 100us with a long tail
+     */
+    private long[] createDurations(Random random) {
+        long[] durations = new long[sampleCount];
+        for (int i = 0; i < sampleCount; i++) {
+            durations[i] = (long) (100_000 * Math.exp(random.nextGaussian() * 0.3));
+        }
+        return durations;
+    }
+
+    private SampleBuffer createBuffer(long[] durations) {
+        SampleBuffer buffer = new SampleBuffer(0, sampleCount, false);
+        for (long duration : durations) buffer.record(duration);
+        return buffer;
+    }
+
+    @Benchmark
+    public OptimiserResult createResult() {
+        return new OptimiserResult(buffer, false, 1, false);
+    }
+
+    @Benchmark
+    public double mannWhitneyPValue() {
+        return Statistics.mannWhitneyPValue(buffer.getSortedDurations(), sampleCount, otherBuffer.getSortedDurations(), sampleCount);
+    }
+
+    @Benchmark
+    public int recordSamples() {
+        otherBuffer.clear();
+        for (long duration : durations) otherBuffer.record(duration);
+        return otherBuffer.getCount();
+    }
+}
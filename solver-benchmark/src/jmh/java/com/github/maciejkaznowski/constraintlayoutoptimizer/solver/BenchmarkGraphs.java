@@ -0,0 +1,162 @@
+package com.github.maciejkaznowski.constraintlayoutoptimizer.solver;
+
+import androidx.constraintlayout.solver.widgets.Barrier;
+import androidx.constraintlayout.solver.widgets.ConstraintAnchor;
+import androidx.constraintlayout.solver.widgets.ConstraintWidget;
+import androidx.constraintlayout.solver.widgets.ConstraintWidgetContainer;
+
+/**
+ * Representative constraint graphs, each exercising the feature one of the optimisation flags targets
+ */
+public enum BenchmarkGraphs {
+
+    /**
+     * Rows of widgets in spread horizontal chains
+     */
+    CHAINS {
+        @Override
+        void addWidgets(ConstraintWidgetContainer container) {
+            for (int row = 0; row < ROWS; row++) {
+                ConstraintWidget previous = null;
+                for (int column = 0; column < COLUMNS; column++) {
+                    ConstraintWidget widget = addWidget(container, "chain" + row + "_" + column, WIDGET_SIZE, WIDGET_SIZE);
+                    widget.connect(ConstraintAnchor.Type.TOP, container, ConstraintAnchor.Type.TOP, row * WIDGET_SIZE);
+                    if (previous == null) {
+                        widget.connect(ConstraintAnchor.Type.LEFT, container, ConstraintAnchor.Type.LEFT, 0);
+                    } else {
+                        widget.connect(ConstraintAnchor.Type.LEFT, previous, ConstraintAnchor.Type.RIGHT, 0);
+                        previous.connect(ConstraintAnchor.Type.RIGHT, widget, ConstraintAnchor.Type.LEFT, 0);
+                    }
+                    previous = widget;
+                }
+                previous.connect(ConstraintAnchor.Type.RIGHT, container, ConstraintAnchor.Type.RIGHT, 0);
+            }
+        }
+    },
+
+    /**
+     * A form, with labels of different widths and values constrained to a barrier at the end of the labels
+     */
+    BARRIERS {
+        @Override
+        void addWidgets(ConstraintWidgetContainer container) {
+            Barrier barrier = new Barrier();
+            barrier.setDebugName("barrier");
+            barrier.setBarrierType(Barrier.RIGHT);
+            container.add(barrier);
+
+            for (int row = 0; row < ROWS * 2; row++) {
+                ConstraintWidget label = addWidget(container, "label" + row, WIDGET_SIZE + row * 20, WIDGET_SIZE);
+                label.connect(ConstraintAnchor.Type.LEFT, container, ConstraintAnchor.Type.LEFT, MARGIN);
+                label.connect(ConstraintAnchor.Type.TOP, container, ConstraintAnchor.Type.TOP, row * WIDGET_SIZE);
+                barrier.add(label);
+
+                ConstraintWidget value = addWidget(container, "value" + row, WIDGET_SIZE, WIDGET_SIZE);
+                value.connect(ConstraintAnchor.Type.LEFT, barrier, ConstraintAnchor.Type.RIGHT, MARGIN);
+                value.connect(ConstraintAnchor.Type.TOP, label, ConstraintAnchor.Type.TOP, 0);
+            }
+        }
+    },
+
+    /**
+     * A column of full width widgets whose heights come from their dimension ratios
+     */
+    RATIOS {
+        @Override
+        void addWidgets(ConstraintWidgetContainer container) {
+            ConstraintWidget previous = null;
+            for (int row = 0; row < ROWS * 2; row++) {
+                ConstraintWidget widget = addWidget(container, "ratio" + row, 0, 0);
+                widget.setHorizontalDimensionBehaviour(ConstraintWidget.DimensionBehaviour.MATCH_CONSTRAINT);
+                widget.setVerticalDimensionBehaviour(ConstraintWidget.DimensionBehaviour.MATCH_CONSTRAINT);
+                widget.setDimensionRatio(row % 2 == 0 ? "16:9" : "4:3");
+                widget.connect(ConstraintAnchor.Type.LEFT, container, ConstraintAnchor.Type.LEFT, MARGIN);
+                widget.connect(ConstraintAnchor.Type.RIGHT, container, ConstraintAnchor.Type.RIGHT, MARGIN);
+                connectBelow(container, widget, previous);
+                previous = widget;
+            }
+        }
+    },
+
+    /**
+     * A column of widgets which fill the space between the parent's sides, or between fixed size siblings
+     */
+    MATCH_CONSTRAINT_DIMENSIONS {
+        @Override
+        void addWidgets(ConstraintWidgetContainer container) {
+            ConstraintWidget previous = null;
+            for (int row = 0; row < ROWS * 2; row++) {
+                ConstraintWidget icon = addWidget(container, "icon" + row, WIDGET_SIZE, WIDGET_SIZE);
+                icon.connect(ConstraintAnchor.Type.LEFT, container, ConstraintAnchor.Type.LEFT, MARGIN);
+                connectBelow(container, icon, previous);
+
+                ConstraintWidget text = addWidget(container, "text" + row, 0, WIDGET_SIZE);
+                text.setHorizontalDimensionBehaviour(ConstraintWidget.DimensionBehaviour.MATCH_CONSTRAINT);
+                text.connect(ConstraintAnchor.Type.LEFT, icon, ConstraintAnchor.Type.RIGHT, MARGIN);
+                text.connect(ConstraintAnchor.Type.RIGHT, container, ConstraintAnchor.Type.RIGHT, MARGIN);
+                text.connect(ConstraintAnchor.Type.TOP, icon, ConstraintAnchor.Type.TOP, 0);
+                previous = icon;
+            }
+        }
+    },
+
+    /**
+     * A long path of dependencies, each widget placed relative to the previous one. This is how deeply nested layouts look when
+     * they are flattened into a single ConstraintLayout, nested ConstraintLayouts are solved separately and are only fixed size
+     * widgets to their parent.
+     */
+    DEEP {
+        @Override
+        void addWidgets(ConstraintWidgetContainer container) {
+            ConstraintWidget previous = null;
+            for (int depth = 0; depth < ROWS * COLUMNS; depth++) {
+                ConstraintWidget widget = addWidget(container, "deep" + depth, WIDGET_SIZE, WIDGET_SIZE / 4);
+                if (previous == null) {
+                    widget.connect(ConstraintAnchor.Type.LEFT, container, ConstraintAnchor.Type.LEFT, 0);
+                    widget.connect(ConstraintAnchor.Type.TOP, container, ConstraintAnchor.Type.TOP, 0);
+                } else {
+                    //centred between the previous widget and the parent, so every level depends on the solved position above it
+                    widget.connect(ConstraintAnchor.Type.LEFT, previous, ConstraintAnchor.Type.LEFT, MARGIN);
+                    widget.connect(ConstraintAnchor.Type.RIGHT, container, ConstraintAnchor.Type.RIGHT, 0);
+                    widget.connect(ConstraintAnchor.Type.TOP, previous, ConstraintAnchor.Type.BOTTOM, 0);
+                }
+                previous = widget;
+            }
+        }
+    };
+
+    private static final int WIDTH = 1080;
+    private static final int HEIGHT = 1920;
+    private static final int ROWS = 5;
+    private static final int COLUMNS = 6;
+    private static final int WIDGET_SIZE = 120;
+    private static final int MARGIN = 16;
+
+    abstract void addWidgets(ConstraintWidgetContainer container);
+
+    ConstraintWidgetContainer create() {
+        ConstraintWidgetContainer container = new ConstraintWidgetContainer();
+        container.setDebugName(name());
+        container.setHorizontalDimensionBehaviour(ConstraintWidget.DimensionBehaviour.FIXED);
+        container.setVerticalDimensionBehaviour(ConstraintWidget.DimensionBehaviour.FIXED);
+        container.setWidth(WIDTH);
+        container.setHeight(HEIGHT);
+        addWidgets(container);
+        return container;
+    }
+
+    private static ConstraintWidget addWidget(ConstraintWidgetContainer container, String name, int width, int height) {
+        ConstraintWidget widget = new ConstraintWidget(width, height);
+        widget.setDebugName(name);
+        container.add(widget);
+        return widget;
+    }
+
+    private static void connectBelow(ConstraintWidgetContainer container, ConstraintWidget widget, ConstraintWidget previous) {
+        if (previous == null) {
+            widget.connect(ConstraintAnchor.Type.TOP, container, ConstraintAnchor.Type.TOP, MARGIN);
+        } else {
+            widget.connect(ConstraintAnchor.Type.TOP, previous, ConstraintAnchor.Type.BOTTOM, MARGIN);
+        }
+    }
+}
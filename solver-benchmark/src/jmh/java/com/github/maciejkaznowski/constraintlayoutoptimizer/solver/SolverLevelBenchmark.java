@@ -0,0 +1,62 @@
+package com.github.maciejkaznowski.constraintlayoutoptimizer.solver;
+
+import androidx.constraintlayout.solver.widgets.ConstraintWidget;
+import androidx.constraintlayout.solver.widgets.ConstraintWidgetContainer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Solves each of the {@link BenchmarkGraphs} at every optimisation level {@link androidx.constraintlayout.solver.widgets.Optimizer} exposes
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+public class SolverLevelBenchmark {
+
+    @Param
+    public BenchmarkGraphs graph;
+
+    @Param({"0", "1", "2", "3", "4", "5", "6", "7", "8", "9", "10", "11", "12", "13", "14", "15",
+            "16", "17", "18", "19", "20", "21", "22", "23", "24", "25", "26", "27", "28", "29", "30", "31"})
+    public int level;
+
+    private ConstraintWidgetContainer container;
+    private List<ConstraintWidget> children;
+
+    @Setup
+    public void setUp() {
+        container = graph.create();
+        container.setOptimizationLevel(level);
+        children = container.getChildren();
+    }
+
+    @Benchmark
+    public void layout(Blackhole blackhole) {
+        container.layout();
+        //consume the solved bounds so the solve can't be eliminated
+        for (int i = 0; i < children.size(); i++) {
+            ConstraintWidget child = children.get(i);
+            blackhole.consume(child.getX());
+            blackhole.consume(child.getY());
+            blackhole.consume(child.getWidth());
+            blackhole.consume(child.getHeight());
+        }
+    }
+}
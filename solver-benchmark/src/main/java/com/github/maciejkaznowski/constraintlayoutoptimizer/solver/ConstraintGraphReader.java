@@ -0,0 +1,156 @@
+package com.github.maciejkaznowski.constraintlayoutoptimizer.solver;
+
+import androidx.constraintlayout.solver.widgets.Barrier;
+import androidx.constraintlayout.solver.widgets.ConstraintAnchor;
+import androidx.constraintlayout.solver.widgets.ConstraintWidget;
+import androidx.constraintlayout.solver.widgets.ConstraintWidgetContainer;
+import androidx.constraintlayout.solver.widgets.Guideline;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Builds a solver widget graph from a constraint graph written by the library's ConstraintGraph, applying the layout params
+ * the same way ConstraintLayout does before solving.
+ */
+public class ConstraintGraphReader {
+
+    private static final int FORMAT_VERSION = 2;
+    private static final int PARENT_ID = 0;
+    private static final int UNSET = -1;
+
+    private ConstraintGraphReader() {
+    }
+
+    /**
+     * @return The container of the graph's widgets, in the order of the ConstraintLayout's children, ready to be laid out
+     */
+    public static ConstraintWidgetContainer read(JSONObject graph) {
+        int version = graph.getInt("version");
+        if (version != FORMAT_VERSION) throw new IllegalArgumentException("Unsupported constraint graph version " + version);
+
+        ConstraintWidgetContainer container = new ConstraintWidgetContainer();
+        container.setDebugName(graph.getString("name"));
+        container.setHorizontalDimensionBehaviour(ConstraintWidget.DimensionBehaviour.FIXED);
+        container.setVerticalDimensionBehaviour(ConstraintWidget.DimensionBehaviour.FIXED);
+        container.setWidth(graph.getInt("width"));
+        container.setHeight(graph.getInt("height"));
+
+        //widgets can be constrained to widgets which come after them, so all widgets are created before connecting any
+        JSONArray widgetsJson = graph.getJSONArray("widgets");
+        ConstraintWidget[] widgets = new ConstraintWidget[widgetsJson.length()];
+        Map<Integer, ConstraintWidget> widgetsById = new HashMap<>();
+        for (int i = 0; i < widgets.length; i++) {
+            JSONObject widgetJson = widgetsJson.getJSONObject(i);
+            ConstraintWidget widget = create(widgetJson.getString("type"));
+            widget.setDebugName(widgetJson.getString("name"));
+            widget.setVisibility(widgetJson.getInt("visibility"));
+            container.add(widget);
+            widgets[i] = widget;
+
+            int id = widgetJson.getInt("id");
+            if (id != UNSET) widgetsById.put(id, widget);
+        }
+
+        for (int i = 0; i < widgets.length; i++) {
+            JSONObject widgetJson = widgetsJson.getJSONObject(i);
+            if (widgets[i] instanceof Guideline) {
+                applyGuideline((Guideline) widgets[i], widgetJson);
+                continue;
+            }
+            if (widgets[i] instanceof Barrier) applyBarrier((Barrier) widgets[i], widgetJson, widgetsById);
+            applyWidget(widgets[i], widgetJson, container, widgetsById);
+        }
+        return container;
+    }
+
+    private static ConstraintWidget create(String type) {
+        switch (type) {
+            case "guideline":
+                return new Guideline();
+            case "barrier":
+                return new Barrier();
+            case "widget":
+                return new ConstraintWidget();
+            default:
+                throw new IllegalArgumentException("Unknown widget type " + type);
+        }
+    }
+
+    private static void applyGuideline(Guideline guideline, JSONObject json) {
+        guideline.setOrientation(json.getInt("orientation"));
+        if (json.getDouble("guidePercent") != UNSET) guideline.setGuidePercent((float) json.getDouble("guidePercent"));
+        if (json.getInt("guideBegin") != UNSET) guideline.setGuideBegin(json.getInt("guideBegin"));
+        if (json.getInt("guideEnd") != UNSET) guideline.setGuideEnd(json.getInt("guideEnd"));
+    }
+
+    private static void applyBarrier(Barrier barrier, JSONObject json, Map<Integer, ConstraintWidget> widgetsById) {
+        barrier.setBarrierType(json.getInt("barrierType"));
+        barrier.setAllowsGoneWidget(json.getBoolean("allowsGoneWidget"));
+        JSONArray referenced = json.getJSONArray("referenced");
+        for (int i = 0; i < referenced.length(); i++) {
+            ConstraintWidget widget = widgetsById.get(referenced.getInt(i));
+            if (widget != null) barrier.add(widget);
+        }
+    }
+
+    private static void applyWidget(ConstraintWidget widget,
+                                    JSONObject json,
+                                    ConstraintWidgetContainer container,
+                                    Map<Integer, ConstraintWidget> widgetsById) {
+        applyDimension(widget, true, json.getJSONObject("width"));
+        applyDimension(widget, false, json.getJSONObject("height"));
+
+        widget.setHorizontalBiasPercent((float) json.getDouble("horizontalBias"));
+        widget.setVerticalBiasPercent((float) json.getDouble("verticalBias"));
+        widget.setHorizontalChainStyle(json.getInt("horizontalChainStyle"));
+        widget.setVerticalChainStyle(json.getInt("verticalChainStyle"));
+        if (json.getDouble("horizontalWeight") >= 0) widget.setHorizontalWeight((float) json.getDouble("horizontalWeight"));
+        if (json.getDouble("verticalWeight") >= 0) widget.setVerticalWeight((float) json.getDouble("verticalWeight"));
+        if (json.has("dimensionRatio")) widget.setDimensionRatio(json.getString("dimensionRatio"));
+        if (json.getInt("baseline") > 0) widget.setBaselineDistance(json.getInt("baseline"));
+
+        JSONArray connections = json.getJSONArray("connections");
+        for (int i = 0; i < connections.length(); i++) {
+            JSONObject connection = connections.getJSONObject(i);
+            int targetId = connection.getInt("target");
+            ConstraintWidget target = targetId == PARENT_ID ? container : widgetsById.get(targetId);
+            //constraints to views outside of the ConstraintLayout are ignored by ConstraintLayout too
+            if (target == null) continue;
+            //connected directly, as ConstraintLayout does, connect() would also reset the baseline of top and bottom anchors
+            widget.immediateConnect(ConstraintAnchor.Type.valueOf(connection.getString("from")),
+                    target,
+                    ConstraintAnchor.Type.valueOf(connection.getString("to")),
+                    connection.getInt("margin"),
+                    connection.getInt("goneMargin"));
+        }
+    }
+
+    /**
+     * Match constraint dimensions are solved, every other dimension is fixed to the size it was measured with. Match constraint
+     * dimensions which wrap their content start at their wrap_content size, as ConstraintLayout measures them before solving
+     */
+    private static void applyDimension(ConstraintWidget widget, boolean horizontal, JSONObject json) {
+        ConstraintWidget.DimensionBehaviour behaviour = ConstraintWidget.DimensionBehaviour.valueOf(json.getString("behaviour"));
+        int size = behaviour == ConstraintWidget.DimensionBehaviour.FIXED ? json.getInt("size") : 0;
+        if (json.has("wrapSize")) size = json.getInt("wrapSize");
+        if (horizontal) {
+            widget.setHorizontalDimensionBehaviour(behaviour);
+            widget.setWidth(size);
+            if (json.has("wrapSize")) widget.setWrapWidth(size);
+            if (behaviour == ConstraintWidget.DimensionBehaviour.MATCH_CONSTRAINT) {
+                widget.setHorizontalMatchStyle(json.getInt("matchDefault"), json.getInt("min"), json.getInt("max"), (float) json.getDouble("percent"));
+            }
+        } else {
+            widget.setVerticalDimensionBehaviour(behaviour);
+            widget.setHeight(size);
+            if (json.has("wrapSize")) widget.setWrapHeight(size);
+            if (behaviour == ConstraintWidget.DimensionBehaviour.MATCH_CONSTRAINT) {
+                widget.setVerticalMatchStyle(json.getInt("matchDefault"), json.getInt("min"), json.getInt("max"), (float) json.getDouble("percent"));
+            }
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.github.maciejkaznowski.constraintlayoutoptimizer.solver;
+
+import androidx.constraintlayout.solver.widgets.ConstraintWidget;
+import androidx.constraintlayout.solver.widgets.ConstraintWidgetContainer;
+import androidx.constraintlayout.solver.widgets.Optimizer;
+
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Benchmarks the ConstraintLayout solver at every optimisation level on a plain JVM, using constraint graphs exported from
+ * measured layouts, e.g. by the headless module's OptimiserRule#exportConstraintGraphs.
+ * <p>
+ * Only the solver is timed, no views are measured, laid out or drawn, so the durations are much less noisy than those measured
+ * on a device but don't include the cost of measuring children. Levels are measured in rounds, starting from a different level
+ * every round, so that drift is spread across all levels.
+ * <p>
+ * Run with {@code ./gradlew :solver-benchmark:run --args="[--iterations N] [--warmup N] graphs.jsonl..."}
+ */
+public class SolverBenchmark {
+
+    private static final int ALL_OPTIMISATIONS = 31; //bitwise or of all available optimisers
+
+    private final int iterations;
+    private final int warmupIterations;
+
+    /**
+     * @param iterations       The number of times each optimisation level is sampled
+     * @param warmupIterations The number of times each optimisation level is solved and discarded before sampling, so the JIT
+     *                         has compiled the solver
+     */
+    public SolverBenchmark(int iterations, int warmupIterations) {
+        if (iterations < 1) throw new IllegalArgumentException("iterations must be at least 1, was " + iterations);
+        if (warmupIterations < 0) throw new IllegalArgumentException("warmupIterations must not be negative, was " + warmupIterations);
+        this.iterations = iterations;
+        this.warmupIterations = warmupIterations;
+    }
+
+    /**
+     * @param graph A constraint graph, as written by the library's ConstraintGraph
+     * @return The result of every optimisation level, fastest median first
+     */
+    public List<SolverResult> run(JSONObject graph) {
+        ConstraintWidgetContainer container = ConstraintGraphReader.read(graph);
+        int[] levels = getLevels(graph.optInt("currentLevel", Optimizer.OPTIMIZATION_STANDARD));
+
+        container.setOptimizationLevel(Optimizer.OPTIMIZATION_NONE);
+        container.layout();
+        int[] unoptimisedBounds = getBounds(container);
+
+        boolean[] changesLayout = new boolean[levels.length];
+        for (int i = 0; i < levels.length; i++) {
+            container.setOptimizationLevel(levels[i]);
+            container.layout();
+            changesLayout[i] = !Arrays.equals(unoptimisedBounds, getBounds(container));
+        }
+
+        for (int iteration = 0; iteration < warmupIterations; iteration++) {
+            for (int level : levels) {
+                container.setOptimizationLevel(level);
+                container.layout();
+            }
+        }
+
+        long[][] durations = new long[levels.length][iterations];
+        for (int iteration = 0; iteration < iterations; iteration++) {
+            for (int i = 0; i < levels.length; i++) {
+                int index = (i + iteration) % levels.length;
+                long fromNs = System.nanoTime();
+                container.setOptimizationLevel(levels[index]);
+                container.layout();
+                durations[index][iteration] = System.nanoTime() - fromNs;
+            }
+        }
+
+        List<SolverResult> results = new ArrayList<>(levels.length);
+        for (int i = 0; i < levels.length; i++) {
+            results.add(new SolverResult(levels[i], durations[i], changesLayout[i]));
+        }
+        results.sort(Comparator.comparingDouble(SolverResult::getMedianDuration));
+        return results;
+    }
+
+    /**
+     * @return Every level from 0 to 31, plus the current level if it has other flags
+     */
+    private static int[] getLevels(int currentLevel) {
+        boolean currentIncluded = currentLevel >= 0 && currentLevel <= ALL_OPTIMISATIONS;
+        int[] levels = new int[currentIncluded ? ALL_OPTIMISATIONS + 1 : ALL_OPTIMISATIONS + 2];
+        for (int level = 0; level <= ALL_OPTIMISATIONS; level++) levels[level] = level;
+        if (!currentIncluded) levels[ALL_OPTIMISATIONS + 1] = currentLevel;
+        return levels;
+    }
+
+    private static int[] getBounds(ConstraintWidgetContainer container) {
+        List<ConstraintWidget> children = container.getChildren();
+        int[] bounds = new int[children.size() * 4];
+        for (int i = 0; i < children.size(); i++) {
+            ConstraintWidget child = children.get(i);
+            bounds[i * 4] = child.getX();
+            bounds[i * 4 + 1] = child.getY();
+            bounds[i * 4 + 2] = child.getWidth();
+            bounds[i * 4 + 3] = child.getHeight();
+        }
+        return bounds;
+    }
+
+    /**
+     * @param args Optional {@code --iterations N} and {@code --warmup N}, followed by JSON Lines files with one graph per line
+     */
+    public static void main(String[] args) throws IOException {
+        int iterations = 100;
+        int warmupIterations = 10;
+        List<File> files = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--iterations":
+                    iterations = Integer.parseInt(args[++i]);
+                    break;
+                case "--warmup":
+                    warmupIterations = Integer.parseInt(args[++i]);
+                    break;
+                default:
+                    files.add(new File(args[i]));
+            }
+        }
+        if (files.isEmpty()) {
+            System.err.println("Usage: SolverBenchmark [--iterations N] [--warmup N] graphs.jsonl...");
+            System.exit(1);
+        }
+
+        SolverBenchmark benchmark = new SolverBenchmark(iterations, warmupIterations);
+        for (File file : files) {
+            for (String line : Files.readAllLines(file.toPath(), StandardCharsets.UTF_8)) {
+                if (line.trim().isEmpty()) continue;
+                JSONObject graph = new JSONObject(line);
+                printResults(graph, benchmark.run(graph));
+            }
+        }
+    }
+
+    private static void printResults(JSONObject graph, List<SolverResult> results) {
+        int currentLevel = graph.optInt("currentLevel", Optimizer.OPTIMIZATION_STANDARD);
+        System.out.println(graph.getString("name"));
+        for (SolverResult result : results) {
+            System.out.println((result.getOptimizer() == currentLevel ? "  * " : "    ") + result);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.github.maciejkaznowski.constraintlayoutoptimizer.solver;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * The durations of solving a constraint graph at a single optimisation level
+ */
+public class SolverResult {
+
+    private final int optimizer;
+    private final long[] sortedDurations;
+    private final boolean changesLayout;
+
+    /**
+     * @param durations     The duration of each sample in ns, which is sorted in place
+     * @param changesLayout Whether the solved positions or sizes differ from those without any optimisations
+     */
+    SolverResult(int optimizer, long[] durations, boolean changesLayout) {
+        this.optimizer = optimizer;
+        this.sortedDurations = durations;
+        this.changesLayout = changesLayout;
+        Arrays.sort(sortedDurations);
+    }
+
+    public int getOptimizer() {
+        return optimizer;
+    }
+
+    public long getMinDuration() {
+        return sortedDurations[0];
+    }
+
+    public long getMaxDuration() {
+        return sortedDurations[sortedDurations.length - 1];
+    }
+
+    public double getMedianDuration() {
+        int middle = sortedDurations.length / 2;
+        if (sortedDurations.length % 2 == 1) return sortedDurations[middle];
+        return (sortedDurations[middle - 1] + sortedDurations[middle]) / 2.0;
+    }
+
+    public int getSampleCount() {
+        return sortedDurations.length;
+    }
+
+    /**
+     * @return Whether this level solved the graph differently than {@link androidx.constraintlayout.solver.widgets.Optimizer#OPTIMIZATION_NONE},
+     * in which case its duration isn't comparable and the level may lay the layout out incorrectly
+     */
+    public boolean changesLayout() {
+        return changesLayout;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.US, "level %2d: median = %.1fus, min = %.1fus, max = %.1fus, samples = %d%s",
+                optimizer,
+                getMedianDuration() / 1_000F,
+                getMinDuration() / 1_000F,
+                getMaxDuration() / 1_000F,
+                getSampleCount(),
+                changesLayout ? " (changes layout)" : "");
+    }
+}